@@ -29,3 +29,11 @@ java {
 tasks.test {
     useJUnitPlatform()
 }
+
+// Runs one of the benchmarks in src/test/java/edu/kit/kastel/vads/compiler/bench,
+// e.g. `./gradlew bench -Pbench=SpanLookupBenchmark`
+tasks.register<JavaExec>("bench") {
+    group = "verification"
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass = providers.gradleProperty("bench").map { "edu.kit.kastel.vads.compiler.bench.$it" }
+}
@@ -1,3 +1,19 @@
 #!/usr/bin/env sh
 BIN_DIR="$(dirname "$0")/build/install/compiler/bin"
+# Hand the request to a running compile server (`compiler --server <socket>`) if there is one.
+# socat speaks its line protocol directly, so no JVM is started for the request.
+if [ -n "$COMPILER_SERVER" ] && [ -S "$COMPILER_SERVER" ] && [ $# -eq 2 ] && command -v socat > /dev/null; then
+    case "$1" in /*) input="$1" ;; *) input="$PWD/$1" ;; esac
+    case "$2" in /*) output="$2" ;; *) output="$PWD/$2" ;; esac
+    # the last line of the response is the exit code, everything before it are the diagnostics
+    response="$(printf '%s\n%s\n' "$input" "$output" | socat -t 3600 - "UNIX-CONNECT:$COMPILER_SERVER")"
+    code="$(printf '%s\n' "$response" | tail -n 1)"
+    case "$code" in
+        ''|*[!0-9]*) echo "run.sh: no answer from $COMPILER_SERVER, compiling in-process" >&2 ;;
+        *)
+            printf '%s\n' "$response" | sed '$d' >&2
+            exit "$code"
+            ;;
+    esac
+fi
 $BIN_DIR/compiler "$@"
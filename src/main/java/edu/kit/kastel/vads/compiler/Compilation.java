@@ -0,0 +1,283 @@
+package edu.kit.kastel.vads.compiler;
+
+import edu.kit.kastel.vads.compiler.backend.x86_64.Assembler;
+import edu.kit.kastel.vads.compiler.backend.x86_64.AssemblerException;
+import edu.kit.kastel.vads.compiler.backend.x86_64.CodeGenerator;
+import edu.kit.kastel.vads.compiler.backend.x86_64.ElfWriter;
+import edu.kit.kastel.vads.compiler.cache.CompilationCache;
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.SsaTranslation;
+import edu.kit.kastel.vads.compiler.ir.optimize.LocalValueNumbering;
+import edu.kit.kastel.vads.compiler.ir.util.YCompPrinter;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.ParallelLexer;
+import edu.kit.kastel.vads.compiler.parser.ParseException;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.profiling.AssemblingEvent;
+import edu.kit.kastel.vads.compiler.profiling.LexingEvent;
+import edu.kit.kastel.vads.compiler.profiling.ParsingEvent;
+import edu.kit.kastel.vads.compiler.profiling.PhaseProfiler;
+import edu.kit.kastel.vads.compiler.semantic.SemanticAnalysis;
+import edu.kit.kastel.vads.compiler.semantic.SemanticException;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/// Compiles a single L1 source file into an executable.
+///
+/// Unlike [Main], this never terminates the JVM. The result of a compilation is the exit code
+/// the compiler process is expected to terminate with, so a single JVM can serve many compilations,
+/// possibly concurrently.
+public final class Compilation {
+    public static final int EXIT_SUCCESS = 0;
+    /// Anything unexpected, e.g. an I/O error or a failing `gcc` invocation.
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_INVALID_ARGUMENTS = 3;
+    public static final int EXIT_SEMANTIC_ERROR = 7;
+    public static final int EXIT_PARSE_ERROR = 42;
+
+    private final Path input;
+    private final Path output;
+    private final PrintStream diagnostics;
+    private final @Nullable CompilationCache cache;
+    private final PhaseProfiler profiler;
+
+    /// Creates a compilation using the [shared][CompilationCache#shared()] cache, if one is configured.
+    ///
+    /// @param diagnostics where errors are reported to, usually [System#err]
+    public Compilation(Path input, Path output, PrintStream diagnostics) {
+        this(input, output, diagnostics, CompilationCache.shared(), PhaseProfiler.disabled());
+    }
+
+    /// @param diagnostics where errors are reported to, usually [System#err]
+    /// @param cache where successful results are looked up and stored, or `null` to always compile
+    /// @param profiler measures the phases of this compilation, may be shared by concurrent compilations
+    public Compilation(Path input, Path output, PrintStream diagnostics, @Nullable CompilationCache cache,
+            PhaseProfiler profiler) {
+        this.input = input;
+        this.output = output;
+        this.diagnostics = diagnostics;
+        this.cache = cache;
+        this.profiler = profiler;
+    }
+
+    /// {@return the exit code of this compilation}
+    public int run() {
+        return start().join();
+    }
+
+    /// Runs everything up to the `gcc` invocation on the calling thread, but doesn't wait for `gcc`.
+    /// With the builtin assembler or a cache hit, the compilation is already done once this returns.
+    ///
+    /// @return a future completing with the exit code of this compilation
+    public CompletableFuture<Integer> start() {
+        CompilationCache.@Nullable Key key = null;
+        try {
+            SourceFile source = SourceFile.read(this.input);
+            // dumping graphs is a side effect that a cache hit could not reproduce
+            if (this.cache != null && !dumpGraphs()) {
+                key = this.cache.key(source.bytes(), "assembler=" + (useGcc() ? "gcc" : "builtin"));
+                if (this.cache.restore(key, assemblyFile(), this.output)) {
+                    return CompletableFuture.completedFuture(EXIT_SUCCESS);
+                }
+            }
+            String assembly = generateAssembly(source);
+            if (!useGcc() && tryAssemble(assembly)) {
+                store(key);
+                return CompletableFuture.completedFuture(EXIT_SUCCESS);
+            }
+        } catch (ParseException e) {
+            e.printStackTrace(this.diagnostics);
+            return CompletableFuture.completedFuture(EXIT_PARSE_ERROR);
+        } catch (SemanticException e) {
+            e.printStackTrace(this.diagnostics);
+            return CompletableFuture.completedFuture(EXIT_SEMANTIC_ERROR);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace(this.diagnostics);
+            return CompletableFuture.completedFuture(EXIT_FAILURE);
+        }
+        CompilationCache.@Nullable Key gccKey = key;
+        long gccStart = System.nanoTime();
+        return GccRunner.start(assemblyFile(), this.output, this.diagnostics)
+                .handle((_, e) -> {
+                    this.profiler.recordExternal("gcc", System.nanoTime() - gccStart);
+                    if (e == null) {
+                        store(gccKey);
+                        return EXIT_SUCCESS;
+                    }
+                    (e instanceof CompletionException ? e.getCause() : e).printStackTrace(this.diagnostics);
+                    return EXIT_FAILURE;
+                });
+    }
+
+    /// Failing to fill the cache does not fail the compilation.
+    private void store(CompilationCache.@Nullable Key key) {
+        if (this.cache == null || key == null) {
+            return;
+        }
+        try {
+            this.cache.store(key, assemblyFile(), this.output);
+        } catch (IOException e) {
+            this.diagnostics.println("Warning: cannot store result in compilation cache: " + e.getMessage());
+        }
+    }
+
+    /// Generates the assembly and writes it next to the output file.
+    private String generateAssembly(SourceFile source) throws IOException {
+        FlatTree program = lexAndParse(source);
+
+        try (PhaseProfiler.Phase _ = this.profiler.phase("semantic analysis")) {
+            new SemanticAnalysis(program).analyze();
+        }
+
+        // Functions are translated independently of each other, the resulting list keeps the source order
+        List<IrGraph> graphs = Arrays.stream(program.children(program.root())).parallel()
+                .mapToObj(function -> {
+                    try (PhaseProfiler.Phase _ = this.profiler.phase("ssa translation")) {
+                        return new SsaTranslation(program, function, new LocalValueNumbering()).translate();
+                    }
+                })
+                .toList();
+
+        if (dumpGraphs()) {
+            Path tmp = this.output.toAbsolutePath().resolveSibling("graphs");
+            Files.createDirectories(tmp);
+            for (IrGraph graph : graphs) {
+                dumpGraph(graph, source, tmp, "before-codegen");
+            }
+        }
+
+        String s = new CodeGenerator(this.profiler).generateCode(graphs, source);
+        Files.writeString(assemblyFile(), s);
+        return s;
+    }
+
+    private static boolean dumpGraphs() {
+        return "vcg".equals(System.getenv("DUMP_GRAPHS")) || "vcg".equals(System.getProperty("dumpGraphs"));
+    }
+
+    private Path assemblyFile() {
+        return Path.of(this.output + ".s");
+    }
+
+    /// The builtin assembler is used unless `gcc` is requested explicitly by setting the
+    /// `ASSEMBLER` environment variable or the `assembler` system property to `gcc`.
+    private static boolean useGcc() {
+        return "gcc".equals(System.getenv("ASSEMBLER")) || "gcc".equals(System.getProperty("assembler"));
+    }
+
+    /// Assembles the given file directly into a static executable.
+    ///
+    /// @return `false` if the assembly uses something the builtin assembler doesn't support
+    private boolean tryAssemble(String assembly) throws IOException {
+        AssemblingEvent event = new AssemblingEvent();
+        event.begin();
+        Assembler.MachineCode machineCode;
+        byte[] executable;
+        try (PhaseProfiler.Phase _ = this.profiler.phase("assembling")) {
+            machineCode = Assembler.assemble(assembly);
+            executable = ElfWriter.executable(machineCode, "main");
+        } catch (AssemblerException _) {
+            return false;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.assemblyLength = assembly.length();
+            event.codeSize = machineCode.code().length;
+            event.commit();
+        }
+        Files.write(this.output, executable);
+        if (!this.output.toFile().setExecutable(true, false)) {
+            throw new IOException("cannot make " + this.output + " executable");
+        }
+        return true;
+    }
+
+    private FlatTree lexAndParse(SourceFile source) {
+        TokenSource tokenSource;
+        boolean streaming = !this.profiler.isEnabled() && !ParallelLexer.isWorthwhile(source);
+        if (!streaming) {
+            // tokenize upfront, so lexing shows up as its own phase. Huge inputs are lexed in parallel,
+            // which can't interleave with parsing anyway.
+            tokenSource = tokenize(source);
+        } else {
+            // the parser pulls tokens while parsing, so only a few of them are in memory at once.
+            // The byte lexer is faster, but positions would be off for non-ASCII characters.
+            tokenSource = source.isAscii()
+                    ? TokenSource.streaming(ByteLexer.forSource(source))
+                    : TokenSource.streaming(Lexer.forSource(source));
+        }
+        // when streaming, lexing is committed once parsing is done, with the time spent in the lexer
+        LexingEvent lexingEvent = new LexingEvent();
+        if (streaming && lexingEvent.isEnabled()) {
+            tokenSource.measureLexing();
+        }
+        lexingEvent.begin();
+
+        ParsingEvent parsingEvent = new ParsingEvent();
+        parsingEvent.begin();
+        FlatTree program;
+        try (PhaseProfiler.Phase _ = this.profiler.phase("parsing")) {
+            Parser parser = new Parser(tokenSource);
+            program = parser.parse();
+        }
+        parsingEvent.end();
+        if (parsingEvent.shouldCommit()) {
+            parsingEvent.tokenCount = tokenSource.tokenCount();
+            parsingEvent.functionCount = program.childCount(program.root());
+            parsingEvent.commit();
+        }
+        if (streaming) {
+            lexingEvent.end();
+            if (lexingEvent.shouldCommit()) {
+                lexingEvent.sourceLength = source.length();
+                lexingEvent.tokenCount = tokenSource.tokenCount();
+                lexingEvent.streaming = true;
+                lexingEvent.lexingTime = tokenSource.lexingNanos();
+                lexingEvent.commit();
+            }
+        }
+        return program;
+    }
+
+    private TokenSource tokenize(SourceFile source) {
+        LexingEvent lexingEvent = new LexingEvent();
+        lexingEvent.begin();
+        long start = System.nanoTime();
+        TokenSource tokenSource;
+        try (PhaseProfiler.Phase _ = this.profiler.phase("lexing")) {
+            if (ParallelLexer.isWorthwhile(source)) {
+                tokenSource = new TokenSource(ParallelLexer.forSource(source));
+            } else if (source.isAscii()) {
+                tokenSource = new TokenSource(ByteLexer.forSource(source));
+            } else {
+                tokenSource = new TokenSource(Lexer.forSource(source));
+            }
+        }
+        lexingEvent.end();
+        if (lexingEvent.shouldCommit()) {
+            lexingEvent.sourceLength = source.length();
+            lexingEvent.tokenCount = tokenSource.tokenCount();
+            lexingEvent.lexingTime = System.nanoTime() - start;
+            lexingEvent.commit();
+        }
+        return tokenSource;
+    }
+
+    private static void dumpGraph(IrGraph graph, SourceFile source, Path path, String key) throws IOException {
+        Files.writeString(
+                path.resolve(graph.name() + "-" + key + ".vcg"),
+                YCompPrinter.print(graph, source));
+    }
+}
@@ -4,7 +4,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import edu.kit.kastel.vads.compiler.profiling.GccEvent;
 
 import org.fusesource.jansi.Ansi.Color;
 import static org.fusesource.jansi.Ansi.*;
@@ -21,39 +26,80 @@ public class GccRunner {
         }
     }
 
-    private static void consumeStream(InputStream stream, StreamName streamName) throws IOException {
+    private static void consumeStream(InputStream stream, StreamName streamName, PrintStream diagnostics)
+            throws IOException {
         Color color = streamName == StreamName.STDOUT ? Color.GREEN : Color.RED;
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
             String line;
-            System.err.println(ansi().fg(color).a("┌─── BEGIN GCC ─── " + streamName.name + " ───").reset());
+            diagnostics.println(ansi().fg(color).a("┌─── BEGIN GCC ─── " + streamName.name + " ───").reset());
             while ((line = reader.readLine()) != null) {
-                System.err.print(ansi().fg(color).a("│ ").reset());
-                System.err.println(line);
+                diagnostics.print(ansi().fg(color).a("│ ").reset());
+                diagnostics.println(line);
             }
-            System.err.println(ansi().fg(color).a("└──── END GCC ──── " + streamName.name + " ───").reset());
+            diagnostics.println(ansi().fg(color).a("└──── END GCC ──── " + streamName.name + " ───").reset());
         }
     }
 
     public static void invoke(Path assemblyFile, Path outputFile) {
+        invoke(assemblyFile, outputFile, System.err);
+    }
+
+    private static void commit(GccEvent event, Path assemblyFile, int exitCode) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.assemblyFile = assemblyFile.toString();
+            event.exitCode = exitCode;
+            event.commit();
+        }
+    }
+
+    /// Assembles and links the given file, reporting failures to `diagnostics`.
+    public static void invoke(Path assemblyFile, Path outputFile, PrintStream diagnostics) {
+        try {
+            start(assemblyFile, outputFile, diagnostics).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /// Like [#invoke(Path, Path, PrintStream)], but doesn't wait for `gcc` to finish.
+    /// This allows overlapping the external process with other work.
+    ///
+    /// @return a future that completes once `gcc` has exited
+    public static CompletableFuture<Void> start(Path assemblyFile, Path outputFile, PrintStream diagnostics) {
+        GccEvent event = new GccEvent();
+        event.begin();
+        Process process;
         try {
             ProcessBuilder processBuilder = new ProcessBuilder(
                     "gcc", "-g",
                     "-o", outputFile.toString(),
                     assemblyFile.toString());
 
-            Process process = processBuilder.start();
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                try (InputStream stdout = process.getInputStream()) {
-                    consumeStream(stdout, StreamName.STDOUT);
+            process = processBuilder.start();
+        } catch (IOException e) {
+            diagnostics.println("Error invoking GCC: " + e.getMessage());
+            commit(event, assemblyFile, -1);
+            return CompletableFuture.completedFuture(null);
+        }
+        return process.onExit().thenAccept(p -> {
+            commit(event, assemblyFile, p.exitValue());
+            if (p.exitValue() != 0) {
+                try (InputStream stdout = p.getInputStream()) {
+                    consumeStream(stdout, StreamName.STDOUT, diagnostics);
+                } catch (IOException e) {
+                    diagnostics.println("Error invoking GCC: " + e.getMessage());
                 }
-                try (InputStream stderr = process.getErrorStream()) {
-                    consumeStream(stderr, StreamName.STDERR);
+                try (InputStream stderr = p.getErrorStream()) {
+                    consumeStream(stderr, StreamName.STDERR, diagnostics);
+                } catch (IOException e) {
+                    diagnostics.println("Error invoking GCC: " + e.getMessage());
                 }
                 throw new RuntimeException("Error invoking GCC");
             }
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error invoking GCC: " + e.getMessage());
-        }
+        });
     }
 }
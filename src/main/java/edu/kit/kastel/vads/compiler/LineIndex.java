@@ -0,0 +1,115 @@
+package edu.kit.kastel.vads.compiler;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/// The offsets at which the lines of a [SourceFile] start, so positions can be mapped to the source in
+/// constant time.
+///
+/// The lexer records every line start it passes, so the index is complete once lexing reached the end
+/// of the input. Lines beyond what was lexed so far are found by scanning the rest of the source.
+/// Like in the lexer, `\n` and `\r` each end a line.
+public final class LineIndex {
+    private final SourceFile source;
+    private int[] starts = new int[64];
+    private int count = 1;
+    /// Everything before this offset was either scanned or lexed, all line starts in there are known.
+    private int scanned;
+    private volatile boolean complete;
+
+    LineIndex(SourceFile source) {
+        this.source = source;
+    }
+
+    /// Called by the lexer for every line break, `offset` is the position after the line break.
+    /// Offsets that are already known are ignored, so lexing a source twice is fine.
+    public synchronized void recordLineStart(int offset) {
+        if (offset <= this.starts[this.count - 1]) {
+            return;
+        }
+        add(offset);
+        this.scanned = Math.max(this.scanned, offset);
+    }
+
+    /// Called by the lexer once it reached the end of the source.
+    public synchronized void recordEnd() {
+        if (this.scanned < this.source.length()) {
+            scan(Integer.MAX_VALUE);
+        }
+    }
+
+    /// {@return the offset of the first character of the given line}
+    ///
+    /// @throws IndexOutOfBoundsException if the source doesn't have that many lines
+    public int lineStart(int line) {
+        // the lock is only needed until the index is complete, afterwards it doesn't change anymore
+        if (this.complete) {
+            return this.starts[Objects.checkIndex(line, this.count)];
+        }
+        synchronized (this) {
+            if (line >= this.count) {
+                scan(line);
+            }
+            return this.starts[Objects.checkIndex(line, this.count)];
+        }
+    }
+
+    /// {@return the line containing the given offset}
+    public int lineOf(int offset) {
+        int lines = lineCount();
+        int index = Arrays.binarySearch(this.starts, 0, lines, offset);
+        // not a line start, so the insertion point is the line after the one containing the offset
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /// {@return the offset of the line break ending the given line, or the length of the source for the last line}
+    public int lineEnd(int line) {
+        lineStart(line);
+        return hasLine(line + 1) ? lineStart(line + 1) - 1 : this.source.length();
+    }
+
+    private boolean hasLine(int line) {
+        if (this.complete) {
+            return line < this.count;
+        }
+        synchronized (this) {
+            if (line >= this.count) {
+                scan(line);
+            }
+            return line < this.count;
+        }
+    }
+
+    /// {@return the number of lines, a source ending with a line break ends with an empty line}
+    public int lineCount() {
+        if (!this.complete) {
+            synchronized (this) {
+                scan(Integer.MAX_VALUE);
+            }
+        }
+        return this.count;
+    }
+
+    /// Scans the part of the source the lexer hasn't seen until `line` is known or the source ends.
+    private void scan(int line) {
+        int length = this.source.length();
+        int offset = this.scanned;
+        while (offset < length && this.count <= line) {
+            char c = this.source.charAt(offset++);
+            if (c == '\n' || c == '\r') {
+                add(offset);
+            }
+        }
+        this.scanned = offset;
+        if (offset >= length) {
+            this.complete = true;
+        }
+    }
+
+    private void add(int offset) {
+        if (this.count == this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, this.count * 2);
+        }
+        this.starts[this.count++] = offset;
+    }
+}
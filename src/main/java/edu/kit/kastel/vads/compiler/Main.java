@@ -1,83 +1,100 @@
 package edu.kit.kastel.vads.compiler;
 
-import edu.kit.kastel.vads.compiler.backend.x86_64.CodeGenerator;
-import edu.kit.kastel.vads.compiler.ir.IrGraph;
-import edu.kit.kastel.vads.compiler.ir.SsaTranslation;
-import edu.kit.kastel.vads.compiler.ir.optimize.LocalValueNumbering;
-import edu.kit.kastel.vads.compiler.ir.util.YCompPrinter;
-import edu.kit.kastel.vads.compiler.lexer.Lexer;
-import edu.kit.kastel.vads.compiler.parser.ParseException;
-import edu.kit.kastel.vads.compiler.parser.Parser;
-import edu.kit.kastel.vads.compiler.parser.TokenSource;
-import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
-import edu.kit.kastel.vads.compiler.semantic.SemanticAnalysis;
-import edu.kit.kastel.vads.compiler.semantic.SemanticException;
+import edu.kit.kastel.vads.compiler.batch.BatchCompilation;
+import edu.kit.kastel.vads.compiler.cache.CompilationCache;
+import edu.kit.kastel.vads.compiler.profiling.PhaseProfiler;
+import edu.kit.kastel.vads.compiler.server.CompileClient;
+import edu.kit.kastel.vads.compiler.server.CompileServer;
+
+import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
+    private static final String TIME_PASSES = "--time-passes";
+
     public static void main(String[] args) throws IOException {
-        if (args.length != 2) {
-            System.err.println("Invalid arguments: Expected one input file and one output file");
-            System.exit(3);
+        // --time-passes prints a report of all compiler phases, --time-passes=<file> also writes it as JSON
+        if (args.length > 0 && args[0].startsWith(TIME_PASSES)) {
+            String option = args[0];
+            PhaseProfiler profiler = PhaseProfiler.create();
+            int exitCode = compile(Arrays.copyOfRange(args, 1, args.length), profiler);
+            profiler.report(System.err);
+            if (option.startsWith(TIME_PASSES + "=")) {
+                Files.writeString(Path.of(option.substring(TIME_PASSES.length() + 1)), profiler.toJson());
+            }
+            if (exitCode != Compilation.EXIT_SUCCESS) {
+                System.exit(exitCode);
+            }
+            return;
         }
-
-        Path input = Path.of(args[0]);
-        Path output = Path.of(args[1]);
-
-        String inputStr = Files.readString(input);
-        ProgramTree program = lexAndParse(input);
-
-        try {
-            new SemanticAnalysis(program).analyze();
-        } catch (SemanticException e) {
-            e.printStackTrace();
-            System.exit(7);
+        if (args.length == 2 && args[0].equals("--server")) {
+            serve(Path.of(args[1]));
             return;
         }
-
-        List<IrGraph> graphs = new ArrayList<>();
-        for (FunctionTree funcTree : program.topLevelTrees()) {
-            SsaTranslation translation = new SsaTranslation(funcTree, new LocalValueNumbering());
-            graphs.add(translation.translate());
+        if (args.length == 4 && args[0].equals("--connect")) {
+            System.exit(CompileClient.compile(Path.of(args[1]), Path.of(args[2]), Path.of(args[3]), System.err));
+            return;
+        }
+        int exitCode = compile(args, PhaseProfiler.disabled());
+        if (exitCode != Compilation.EXIT_SUCCESS) {
+            System.exit(exitCode);
         }
+    }
 
-        if ("vcg".equals(System.getenv("DUMP_GRAPHS")) || "vcg".equals(System.getProperty("dumpGraphs"))) {
-            Path tmp = output.toAbsolutePath().resolveSibling("graphs");
-            if (!Files.exists(tmp)) {
-                Files.createDirectory(tmp);
-            }
-            for (IrGraph graph : graphs) {
-                dumpGraph(graph, tmp, "before-codegen");
-            }
+    /// Compiles a single file or a batch of files.
+    private static int compile(String[] args, PhaseProfiler profiler) throws IOException {
+        if ((args.length == 2 || args.length == 3) && args[0].equals("--batch")) {
+            return batch(Path.of(args[1]), args.length == 3 ? Path.of(args[2]) : null, profiler);
         }
+        if (args.length != 2) {
+            System.err.println("Invalid arguments: Expected one input file and one output file");
+            return Compilation.EXIT_INVALID_ARGUMENTS;
+        }
+
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
 
-        String s = new CodeGenerator().generateCode(graphs, inputStr);
-        Files.writeString(Path.of(output + ".s"), s);
-        GccRunner.invoke(Path.of(output + ".s"), output);
+        // a cache hit would skip all phases that are to be measured
+        CompilationCache cache = profiler.isEnabled() ? null : CompilationCache.shared();
+        return new Compilation(input, output, System.err, cache, profiler).run();
     }
 
-    private static ProgramTree lexAndParse(Path input) throws IOException {
-        try {
-            Lexer lexer = Lexer.forString(Files.readString(input));
-            TokenSource tokenSource = new TokenSource(lexer);
-            Parser parser = new Parser(tokenSource);
-            return parser.parseProgram();
-        } catch (ParseException e) {
-            e.printStackTrace();
-            System.exit(42);
-            throw new AssertionError("unreachable");
+    /// @return the exit code of the first file that failed, see [BatchCompilation#exitCode]
+    private static int batch(Path inputs, @Nullable Path outputDirectory, PhaseProfiler profiler) throws IOException {
+        BatchCompilation batch = Files.isDirectory(inputs)
+                ? BatchCompilation.fromDirectory(inputs, outputDirectory != null ? outputDirectory : inputs)
+                : BatchCompilation.fromManifest(inputs);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<BatchCompilation.Result> results;
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            results = batch.run(pool, 2 * parallelism, profiler);
+        }
+        BatchCompilation.report(results, System.out, System.err);
+        CompilationCache cache = CompilationCache.shared();
+        if (cache != null) {
+            CompilationCache.Stats stats = cache.stats();
+            System.out.printf("# cache: %d hits, %d misses, %d evictions%n",
+                    stats.hits(), stats.misses(), stats.evictions());
         }
+        return BatchCompilation.exitCode(results);
     }
 
-    private static void dumpGraph(IrGraph graph, Path path, String key) throws IOException {
-        Files.writeString(
-                path.resolve(graph.name() + "-" + key + ".vcg"),
-                YCompPrinter.print(graph));
+    private static void serve(Path socket) throws IOException {
+        CompileServer server = CompileServer.bind(socket);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Error shutting down compile server: " + e.getMessage());
+            }
+        }));
+        System.err.println("Listening on " + socket.toAbsolutePath());
+        server.serve();
     }
 }
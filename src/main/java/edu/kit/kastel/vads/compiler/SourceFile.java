@@ -0,0 +1,125 @@
+package edu.kit.kastel.vads.compiler;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/// The contents of a source file, read exactly once and shared by all phases of a compilation.
+///
+/// Large files are memory-mapped, small files are read into a single array. As L1 sources are ASCII,
+/// the characters are read directly from the bytes without decoding them into a [String]. Only files
+/// containing other characters (e.g. in comments) are decoded once, so positions still count characters.
+///
+/// Lines are separated by `\n` or `\r`, each of them ends a line. This matches how the lexer counts lines.
+public final class SourceFile implements CharSequence {
+    /// Mapping a file has a fixed cost that only pays off for larger files.
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
+    private final MemorySegment bytes;
+    private final @Nullable String decoded;
+    private final int length;
+    private final LineIndex lineIndex;
+
+    private SourceFile(MemorySegment bytes, @Nullable String decoded) {
+        this.bytes = bytes;
+        this.decoded = decoded;
+        this.length = decoded != null ? decoded.length() : (int) bytes.byteSize();
+        this.lineIndex = new LineIndex(this);
+    }
+
+    public static SourceFile read(Path path) throws IOException {
+        MemorySegment bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large");
+            }
+            bytes = size < MAP_THRESHOLD
+                    ? MemorySegment.ofArray(Files.readAllBytes(path))
+                    // unmapped by the garbage collector once nothing refers to the source anymore
+                    : channel.map(FileChannel.MapMode.READ_ONLY, 0, size, Arena.ofAuto());
+        }
+        String decoded = isAscii(bytes) ? null : StandardCharsets.UTF_8.decode(bytes.asByteBuffer()).toString();
+        return new SourceFile(bytes, decoded);
+    }
+
+    public static SourceFile of(String source) {
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        return new SourceFile(MemorySegment.ofArray(bytes), bytes.length == source.length() ? null : source);
+    }
+
+    private static boolean isAscii(MemorySegment bytes) {
+        for (long i = 0; i < bytes.byteSize(); i++) {
+            if (bytes.get(ValueLayout.JAVA_BYTE, i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /// {@return whether the file only contains ASCII characters, so every byte is one character}
+    public boolean isAscii() {
+        return this.decoded == null;
+    }
+
+    /// {@return the raw bytes of the file, read-only}
+    public MemorySegment segment() {
+        return this.bytes.asReadOnly();
+    }
+
+    /// {@return the raw bytes of the file, e.g. to hash them}
+    public ByteBuffer bytes() {
+        return this.bytes.asByteBuffer().asReadOnlyBuffer();
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (this.decoded != null) {
+            return this.decoded.charAt(index);
+        }
+        return (char) this.bytes.get(ValueLayout.JAVA_BYTE, index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return substring(start, end);
+    }
+
+    public String substring(int start, int end) {
+        if (this.decoded != null) {
+            return this.decoded.substring(start, end);
+        }
+        return new String(this.bytes.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE),
+                StandardCharsets.US_ASCII);
+    }
+
+    public LineIndex lineIndex() {
+        return this.lineIndex;
+    }
+
+    /// {@return the given line without its line separator}
+    ///
+    /// @throws IndexOutOfBoundsException if there is no such line
+    public String line(int line) {
+        return substring(this.lineIndex.lineStart(line), this.lineIndex.lineEnd(line));
+    }
+
+    @Override
+    public String toString() {
+        return substring(0, this.length);
+    }
+}
@@ -1,7 +1,5 @@
 package edu.kit.kastel.vads.compiler;
 
-import java.util.List;
-
 public sealed interface Span {
     Position start();
 
@@ -9,7 +7,20 @@ public sealed interface Span {
 
     Span merge(Span later);
 
-    String fromSource(String source);
+    String fromSource(SourceFile source);
+
+    /// {@return the start and end offset packed into a single `long`}
+    static long pack(int start, int end) {
+        return (long) start << 32 | Integer.toUnsignedLong(end);
+    }
+
+    static int startOffset(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    static int endOffset(long packed) {
+        return (int) packed;
+    }
 
     record SimpleSpan(Position start, Position end) implements Span {
         @Override
@@ -23,12 +34,76 @@ public sealed interface Span {
         }
 
         @Override
-        public String fromSource(String source) {
+        public String fromSource(SourceFile source) {
             if (start.line() != end.line()) {
                 return toString();
             }
-            List<String> lines = source.lines().toList();
-            return lines.get(start.line()).substring(start.column(), end.column()).trim();
+            int lineStart = source.lineIndex().lineStart(start.line());
+            return source.substring(lineStart + start.column(), lineStart + end.column()).trim();
+        }
+    }
+
+    /// A span stored as the [#pack packed] start and end offsets in the source. Lines and columns are
+    /// only computed from the line index when they are asked for, e.g. for printing.
+    ///
+    /// Spans are equal if their offsets are, like [SimpleSpan]s are equal if their positions are.
+    record PackedSpan(long offsets, LineIndex lines) implements Span {
+        public PackedSpan(int start, int end, LineIndex lines) {
+            this(pack(start, end), lines);
+        }
+
+        public int startOffset() {
+            return Span.startOffset(this.offsets);
+        }
+
+        public int endOffset() {
+            return Span.endOffset(this.offsets);
+        }
+
+        @Override
+        public Position start() {
+            return position(startOffset());
+        }
+
+        @Override
+        public Position end() {
+            return position(endOffset());
+        }
+
+        private Position position(int offset) {
+            int line = this.lines.lineOf(offset);
+            return new Position.SimplePosition(line, offset - this.lines.lineStart(line));
+        }
+
+        @Override
+        public Span merge(Span later) {
+            if (later instanceof PackedSpan packed && packed.lines == this.lines) {
+                return new PackedSpan(startOffset(), packed.endOffset(), this.lines);
+            }
+            return new SimpleSpan(start(), later.end());
+        }
+
+        @Override
+        public String fromSource(SourceFile source) {
+            if (this.lines.lineOf(startOffset()) != this.lines.lineOf(endOffset())) {
+                return toString();
+            }
+            return source.substring(startOffset(), endOffset()).trim();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PackedSpan other && other.offsets == this.offsets;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.offsets);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start() + "|" + end() + "]";
         }
     }
 }
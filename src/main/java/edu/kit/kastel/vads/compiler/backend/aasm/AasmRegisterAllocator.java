@@ -1,7 +1,9 @@
 package edu.kit.kastel.vads.compiler.backend.aasm;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.backend.regalloc.Register;
 import edu.kit.kastel.vads.compiler.backend.regalloc.RegisterAllocator;
+import edu.kit.kastel.vads.compiler.ir.BasicNodeOrder;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
@@ -10,31 +12,20 @@ import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
 import edu.kit.kastel.vads.compiler.ir.node.StartNode;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 public class AasmRegisterAllocator implements RegisterAllocator {
     private int id;
     private final Map<Node, Register> registers = new HashMap<>();
 
     @Override
-    public Map<Node, Register> allocateRegisters(IrGraph graph, String source) {
-        Set<Node> visited = new HashSet<>();
-        visited.add(graph.endBlock());
-        scan(graph.endBlock(), visited);
-        return Map.copyOf(this.registers);
-    }
-
-    private void scan(Node node, Set<Node> visited) {
-        for (Node predecessor : node.predecessors()) {
-            if (visited.add(predecessor)) {
-                scan(predecessor, visited);
+    public Map<Node, Register> allocateRegisters(IrGraph graph, SourceFile source) {
+        for (Node node : BasicNodeOrder.buildBasicNodeOrder(graph)) {
+            if (needsRegister(node)) {
+                this.registers.put(node, new VirtualRegister(this.id++));
             }
         }
-        if (needsRegister(node)) {
-            this.registers.put(node, new VirtualRegister(this.id++));
-        }
+        return Map.copyOf(this.registers);
     }
 
     private static boolean needsRegister(Node node) {
@@ -1,6 +1,8 @@
 package edu.kit.kastel.vads.compiler.backend.aasm;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.backend.regalloc.Register;
+import edu.kit.kastel.vads.compiler.ir.BasicNodeOrder;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.node.AddNode;
 import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
@@ -16,16 +18,14 @@ import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
 import edu.kit.kastel.vads.compiler.ir.node.StartNode;
 import edu.kit.kastel.vads.compiler.ir.node.SubNode;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import static edu.kit.kastel.vads.compiler.ir.util.NodeSupport.predecessorSkipProj;
 
 public class CodeGenerator {
 
-    public String generateCode(List<IrGraph> program, String source) {
+    public String generateCode(List<IrGraph> program, SourceFile source) {
         StringBuilder builder = new StringBuilder();
         for (IrGraph graph : program) {
             AasmRegisterAllocator allocator = new AasmRegisterAllocator();
@@ -39,18 +39,12 @@ public class CodeGenerator {
 
     private void generateForGraph(IrGraph graph, StringBuilder builder,
             Map<Node, Register> registers) {
-        Set<Node> visited = new HashSet<>();
-        scan(graph.endBlock(), visited, builder, registers);
-    }
-
-    private void scan(Node node, Set<Node> visited, StringBuilder builder,
-            Map<Node, Register> registers) {
-        for (Node predecessor : node.predecessors()) {
-            if (visited.add(predecessor)) {
-                scan(predecessor, visited, builder, registers);
-            }
+        for (Node node : BasicNodeOrder.buildBasicNodeOrder(graph)) {
+            emit(node, builder, registers);
         }
+    }
 
+    private void emit(Node node, StringBuilder builder, Map<Node, Register> registers) {
         switch (node) {
             case AddNode add -> binary(builder, registers, add, "add");
             case SubNode sub -> binary(builder, registers, sub, "sub");
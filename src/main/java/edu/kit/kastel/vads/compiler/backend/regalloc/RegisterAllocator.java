@@ -1,5 +1,6 @@
 package edu.kit.kastel.vads.compiler.backend.regalloc;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 
@@ -7,5 +8,5 @@ import java.util.Map;
 
 public interface RegisterAllocator {
 
-    Map<Node, Register> allocateRegisters(IrGraph graph, String source);
+    Map<Node, Register> allocateRegisters(IrGraph graph, SourceFile source);
 }
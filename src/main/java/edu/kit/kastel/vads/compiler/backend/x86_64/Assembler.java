@@ -0,0 +1,394 @@
+package edu.kit.kastel.vads.compiler.backend.x86_64;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Turns the assembly emitted by [CodeGenerator] into x86-64 machine code without going through `gcc`.
+///
+/// Only the subset of the AT&T syntax the code generator actually uses is supported:
+/// `mov`, `add`, `sub`, `and`, `imul`, `idiv`, `cdq`, `sar` and `shr` by immediates, `push`, `pop`,
+/// `call`, `ret` and `syscall` on general purpose registers, immediates and `disp(%reg)` memory operands.
+/// Anything else, and malformed assembly, is rejected with an [AssemblerException], so callers can fall back to
+/// `gcc`.
+public final class Assembler {
+    private static final Map<String, Integer> REGISTERS_64 = registers(
+            "rax", "rcx", "rdx", "rbx", "rsp", "rbp", "rsi", "rdi",
+            "r8", "r9", "r10", "r11", "r12", "r13", "r14", "r15");
+    private static final Map<String, Integer> REGISTERS_32 = registers(
+            "eax", "ecx", "edx", "ebx", "esp", "ebp", "esi", "edi",
+            "r8d", "r9d", "r10d", "r11d", "r12d", "r13d", "r14d", "r15d");
+
+    private final Map<String, Integer> labels = new HashMap<>();
+    private final List<Fixup> fixups = new ArrayList<>();
+    private byte[] code = new byte[256];
+    private int size;
+
+    private Assembler() {
+
+    }
+
+    /// The assembled code, to be placed at a single location in memory.
+    ///
+    /// @param symbols the offsets of all labels into `code`
+    public record MachineCode(byte[] code, Map<String, Integer> symbols) {
+        public MachineCode {
+            symbols = Map.copyOf(symbols);
+        }
+    }
+
+    public static MachineCode assemble(String assembly) {
+        Assembler assembler = new Assembler();
+        assembly.lines().forEach(assembler::assembleLine);
+        assembler.resolveFixups();
+        return new MachineCode(Arrays.copyOf(assembler.code, assembler.size), assembler.labels);
+    }
+
+    private sealed interface Operand {
+    }
+
+    private record Reg(int number, boolean wide) implements Operand {
+    }
+
+    private record Mem(int base, int displacement) implements Operand {
+    }
+
+    private record Imm(long value) implements Operand {
+    }
+
+    private record Label(String name) implements Operand {
+    }
+
+    /// A 32-bit pc-relative reference to a label that might not be known yet.
+    private record Fixup(int position, String label) {
+    }
+
+    private void assembleLine(String rawLine) {
+        int comment = rawLine.indexOf('#');
+        String line = (comment < 0 ? rawLine : rawLine.substring(0, comment)).strip();
+        if (line.isEmpty()) {
+            return;
+        }
+        if (line.endsWith(":")) {
+            String label = line.substring(0, line.length() - 1);
+            if (this.labels.putIfAbsent(label, this.size) != null) {
+                throw new AssemblerException("duplicate label " + label);
+            }
+            return;
+        }
+        if (line.startsWith(".")) {
+            // .global and .text don't matter, there is a single section and no linking
+            if (line.startsWith(".global") || line.equals(".text")) {
+                return;
+            }
+            throw new AssemblerException("unsupported directive " + line);
+        }
+
+        int space = line.indexOf(' ');
+        String mnemonic = space < 0 ? line : line.substring(0, space);
+        List<Operand> operands = space < 0 ? List.of() : parseOperands(line.substring(space + 1));
+        switch (mnemonic) {
+            case "movl" -> mov(operands, false);
+            case "movq" -> mov(operands, true);
+            case "addl" -> arithmetic(operands, false, 0x01, 0x03, 0);
+            case "addq" -> arithmetic(operands, true, 0x01, 0x03, 0);
+            case "subl" -> arithmetic(operands, false, 0x29, 0x2B, 5);
+            case "subq" -> arithmetic(operands, true, 0x29, 0x2B, 5);
+            case "andl" -> arithmetic(operands, false, 0x21, 0x23, 4);
+            case "imull" -> imul(operands);
+            case "sarl" -> shift(operands, 7);
+            case "shrl" -> shift(operands, 5);
+            case "idivl" -> {
+                Operand divisor = single(operands);
+                checkWidth(divisor, false);
+                emitModRm(false, 0xF7, 7, divisor);
+            }
+            case "cdq", "cltd" -> {
+                expectCount(operands, 0);
+                emit8(0x99);
+            }
+            case "pushq" -> pushPop(operands, 0x50);
+            case "popq" -> pushPop(operands, 0x58);
+            case "call" -> {
+                if (!(single(operands) instanceof Label(String name))) {
+                    throw new AssemblerException("indirect calls are not supported");
+                }
+                emit8(0xE8);
+                this.fixups.add(new Fixup(this.size, name));
+                emit32(0);
+            }
+            case "ret" -> {
+                expectCount(operands, 0);
+                emit8(0xC3);
+            }
+            case "syscall" -> {
+                expectCount(operands, 0);
+                emit8(0x0F);
+                emit8(0x05);
+            }
+            default -> throw new AssemblerException("unsupported instruction " + line);
+        }
+    }
+
+    private void mov(List<Operand> operands, boolean wide) {
+        expectCount(operands, 2);
+        Operand src = operands.get(0);
+        Operand dst = operands.get(1);
+        checkWidth(src, wide);
+        checkWidth(dst, wide);
+        switch (src) {
+            case Imm(long value) when dst instanceof Reg(int reg, _) && !wide -> {
+                // the short form, B8+r with a 32-bit immediate
+                emitRex(false, 0, reg);
+                emit8(0xB8 + (reg & 7));
+                emit32(imm32(value, false));
+            }
+            case Imm(long value) -> {
+                emitModRm(wide, 0xC7, 0, dst);
+                emit32(imm32(value, wide));
+            }
+            case Reg(int reg, _) -> emitModRm(wide, 0x89, reg, dst);
+            case Mem _ when dst instanceof Reg(int reg, _) -> emitModRm(wide, 0x8B, reg, src);
+            default -> throw new AssemblerException("unsupported mov " + operands);
+        }
+    }
+
+    /// @param toRm the opcode for `reg -> r/m`
+    /// @param fromRm the opcode for `r/m -> reg`
+    /// @param extension the opcode extension for the immediate forms
+    private void arithmetic(List<Operand> operands, boolean wide, int toRm, int fromRm, int extension) {
+        expectCount(operands, 2);
+        Operand src = operands.get(0);
+        Operand dst = operands.get(1);
+        checkWidth(src, wide);
+        checkWidth(dst, wide);
+        switch (src) {
+            case Imm(long value) when value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE -> {
+                emitModRm(wide, 0x83, extension, dst);
+                emit8((int) value);
+            }
+            case Imm(long value) -> {
+                emitModRm(wide, 0x81, extension, dst);
+                emit32(imm32(value, wide));
+            }
+            case Reg(int reg, _) -> emitModRm(wide, toRm, reg, dst);
+            case Mem _ when dst instanceof Reg(int reg, _) -> emitModRm(wide, fromRm, reg, src);
+            default -> throw new AssemblerException("unsupported operands " + operands);
+        }
+    }
+
+    private void imul(List<Operand> operands) {
+        expectCount(operands, 2);
+        Operand src = operands.get(0);
+        checkWidth(src, false);
+        if (!(operands.get(1) instanceof Reg(int dst, boolean wide)) || wide || src instanceof Imm) {
+            throw new AssemblerException("unsupported imul " + operands);
+        }
+        emitModRm(false, 0x0FAF, dst, src);
+    }
+
+    /// @param extension the opcode extension of the shift
+    private void shift(List<Operand> operands, int extension) {
+        expectCount(operands, 2);
+        Operand dst = operands.get(1);
+        checkWidth(dst, false);
+        if (!(operands.get(0) instanceof Imm(long count)) || count < 0 || count > 31) {
+            throw new AssemblerException("unsupported shift " + operands);
+        }
+        emitModRm(false, 0xC1, extension, dst);
+        emit8((int) count);
+    }
+
+    private void pushPop(List<Operand> operands, int base) {
+        if (!(single(operands) instanceof Reg(int reg, boolean wide)) || !wide) {
+            throw new AssemblerException("unsupported push/pop " + operands);
+        }
+        emitRex(false, 0, reg);
+        emit8(base + (reg & 7));
+    }
+
+    /// Emits an instruction of the form `[REX] opcode ModRM [SIB] [disp]`.
+    ///
+    /// @param opcode one byte, or two bytes for `0x0F` escaped opcodes
+    /// @param reg the register or opcode extension for the `reg` field
+    private void emitModRm(boolean wide, int opcode, int reg, Operand rm) {
+        switch (rm) {
+            case Reg(int number, _) -> {
+                emitRex(wide, reg, number);
+                emitOpcode(opcode);
+                emit8(0b11_000_000 | (reg & 7) << 3 | (number & 7));
+            }
+            case Mem(int base, int displacement) -> {
+                emitRex(wide, reg, base);
+                emitOpcode(opcode);
+                int mod;
+                if (displacement == 0 && (base & 7) != 5) {
+                    // [rbp] and [r13] without displacement would mean rip-relative addressing
+                    mod = 0b00;
+                } else if (displacement >= Byte.MIN_VALUE && displacement <= Byte.MAX_VALUE) {
+                    mod = 0b01;
+                } else {
+                    mod = 0b10;
+                }
+                emit8(mod << 6 | (reg & 7) << 3 | (base & 7));
+                if ((base & 7) == 4) {
+                    // rsp and r12 as base always need a SIB byte
+                    emit8(0x24);
+                }
+                if (mod == 0b01) {
+                    emit8(displacement);
+                } else if (mod == 0b10) {
+                    emit32(displacement);
+                }
+            }
+            default -> throw new AssemblerException("expected register or memory but got " + rm);
+        }
+    }
+
+    private void emitOpcode(int opcode) {
+        if (opcode > 0xFF) {
+            emit8(opcode >> 8);
+        }
+        emit8(opcode);
+    }
+
+    private void emitRex(boolean wide, int reg, int rm) {
+        int rex = (wide ? 0b1000 : 0) | (reg >> 3) << 2 | (rm >> 3);
+        if (rex != 0) {
+            emit8(0x40 | rex);
+        }
+    }
+
+    private void emit8(int value) {
+        if (this.size == this.code.length) {
+            this.code = Arrays.copyOf(this.code, this.code.length * 2);
+        }
+        this.code[this.size++] = (byte) value;
+    }
+
+    private void emit32(int value) {
+        emit8(value);
+        emit8(value >> 8);
+        emit8(value >> 16);
+        emit8(value >> 24);
+    }
+
+    private void resolveFixups() {
+        for (Fixup fixup : this.fixups) {
+            Integer target = this.labels.get(fixup.label());
+            if (target == null) {
+                throw new AssemblerException("undefined label " + fixup.label());
+            }
+            int relative = target - (fixup.position() + 4);
+            for (int i = 0; i < 4; i++) {
+                this.code[fixup.position() + i] = (byte) (relative >> (8 * i));
+            }
+        }
+    }
+
+    private static int imm32(long value, boolean signExtended) {
+        long min = Integer.MIN_VALUE;
+        // 32-bit operations simply truncate, so unsigned values are fine as well
+        long max = signExtended ? Integer.MAX_VALUE : 0xFFFF_FFFFL;
+        if (value < min || value > max) {
+            throw new AssemblerException("immediate out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static List<Operand> parseOperands(String operands) {
+        List<Operand> result = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < operands.length(); i++) {
+            switch (operands.charAt(i)) {
+                case '(' -> depth++;
+                case ')' -> depth--;
+                case ',' -> {
+                    if (depth == 0) {
+                        result.add(parseOperand(operands.substring(start, i).strip()));
+                        start = i + 1;
+                    }
+                }
+                default -> {
+                    // part of the current operand
+                }
+            }
+        }
+        result.add(parseOperand(operands.substring(start).strip()));
+        return result;
+    }
+
+    private static Operand parseOperand(String operand) {
+        if (operand.startsWith("%")) {
+            return parseRegister(operand);
+        }
+        if (operand.startsWith("$")) {
+            return new Imm(parseNumber(operand.substring(1)));
+        }
+        int paren = operand.indexOf('(');
+        if (paren >= 0 && operand.endsWith(")")) {
+            Reg base = parseRegister(operand.substring(paren + 1, operand.length() - 1));
+            if (!base.wide()) {
+                throw new AssemblerException("expected 64-bit base register in " + operand);
+            }
+            long displacement = paren == 0 ? 0 : parseNumber(operand.substring(0, paren));
+            if (displacement < Integer.MIN_VALUE || displacement > Integer.MAX_VALUE) {
+                throw new AssemblerException("displacement out of range: " + operand);
+            }
+            return new Mem(base.number(), (int) displacement);
+        }
+        if (!operand.isEmpty() && (Character.isLetter(operand.charAt(0)) || operand.charAt(0) == '_')) {
+            return new Label(operand);
+        }
+        throw new AssemblerException("unsupported operand " + operand);
+    }
+
+    private static Reg parseRegister(String operand) {
+        String name = operand.substring(1);
+        Integer number = REGISTERS_64.get(name);
+        if (number != null) {
+            return new Reg(number, true);
+        }
+        number = REGISTERS_32.get(name);
+        if (number != null) {
+            return new Reg(number, false);
+        }
+        throw new AssemblerException("unsupported register " + operand);
+    }
+
+    private static long parseNumber(String number) {
+        try {
+            return Long.decode(number);
+        } catch (NumberFormatException e) {
+            throw new AssemblerException("unsupported number " + number);
+        }
+    }
+
+    private static void checkWidth(Operand operand, boolean wide) {
+        if (operand instanceof Reg reg && reg.wide() != wide) {
+            throw new AssemblerException("operand size mismatch for " + operand);
+        }
+    }
+
+    private static Operand single(List<Operand> operands) {
+        expectCount(operands, 1);
+        return operands.getFirst();
+    }
+
+    private static void expectCount(List<Operand> operands, int count) {
+        if (operands.size() != count) {
+            throw new AssemblerException("expected " + count + " operands but got " + operands);
+        }
+    }
+
+    private static Map<String, Integer> registers(String... names) {
+        Map<String, Integer> registers = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            registers.put(names[i], i);
+        }
+        return Map.copyOf(registers);
+    }
+}
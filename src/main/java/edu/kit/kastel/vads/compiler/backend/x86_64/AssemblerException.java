@@ -0,0 +1,11 @@
+package edu.kit.kastel.vads.compiler.backend.x86_64;
+
+/// Thrown by the [Assembler] and the [ElfWriter] for assembly they can't turn into an executable,
+/// whether it is unsupported or malformed. Callers fall back to `gcc` then.
+public class AssemblerException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public AssemblerException(String message) {
+        super(message);
+    }
+}
@@ -1,12 +1,14 @@
 package edu.kit.kastel.vads.compiler.backend.x86_64;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.backend.regalloc.Register;
+import edu.kit.kastel.vads.compiler.ir.BasicNodeOrder;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.analysis.ValueRange;
+import edu.kit.kastel.vads.compiler.ir.analysis.ValueRangeAnalysis;
 import edu.kit.kastel.vads.compiler.ir.node.AddNode;
 import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
@@ -22,14 +24,19 @@ import edu.kit.kastel.vads.compiler.ir.node.StartNode;
 import edu.kit.kastel.vads.compiler.ir.node.SubNode;
 import edu.kit.kastel.vads.compiler.ir.util.DebugInfo;
 import edu.kit.kastel.vads.compiler.ir.util.NodeSupport;
+import edu.kit.kastel.vads.compiler.profiling.CodeEmissionEvent;
+import edu.kit.kastel.vads.compiler.profiling.PhaseProfiler;
 
 public class CodeGenerator {
     private static final String INDENT = "    ";
     private static final String SPILL_REG = "%r11d";
+    /// Longer source snippets are cut in the debug comments, as nested expressions would repeat
+    /// each other and make the output quadratic in the nesting depth.
+    private static final int DEBUG_SOURCE_LIMIT = 80;
 
-    private static final String TEMPLATE = """
+    private static final String PROGRAM_TEMPLATE = """
             .global main
-            .global _main
+            {{DECLARATIONS}}
             .text
 
             main:
@@ -38,8 +45,11 @@ public class CodeGenerator {
                 movq %rax, %rdi
                 movq $0x3C, %rax
                 syscall
+            {{FUNCTIONS}}""";
 
-            _main:
+    private static final String FUNCTION_TEMPLATE = """
+
+            {{NAME}}:
                 pushq %rbp
                 movq %rsp, %rbp
 
@@ -49,45 +59,83 @@ public class CodeGenerator {
                 ret
             """;
 
-    public String generateCode(List<IrGraph> program, String source) {
-        if (program.size() > 1) {
-            throw new UnsupportedOperationException("multiple graphs not supported yet");
+    private final PhaseProfiler profiler;
+
+    public CodeGenerator() {
+        this(PhaseProfiler.disabled());
+    }
+
+    public CodeGenerator(PhaseProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public String generateCode(List<IrGraph> program, SourceFile source) {
+        // Register allocation and emission only look at a single graph, so all functions are handled
+        // in parallel. The resulting list keeps the order of the input, which keeps the output deterministic.
+        List<String> functions = program.parallelStream()
+                .map(graph -> generateFunction(graph, source))
+                .toList();
+
+        StringBuilder declarations = new StringBuilder();
+        for (IrGraph graph : program) {
+            if (!declarations.isEmpty()) {
+                declarations.append('\n');
+            }
+            declarations.append(".global ").append(functionLabel(graph));
         }
+        return PROGRAM_TEMPLATE
+                .replace("{{DECLARATIONS}}", declarations)
+                .replace("{{FUNCTIONS}}", String.join("", functions));
+    }
 
-        // FIXME: This assumes that the program consists of a single graph
+    private String generateFunction(IrGraph graph, SourceFile source) {
         StringBuilder builder = new StringBuilder();
-        IrGraph graph = program.get(0);
 
-        GatRegisterAllocator allocator = new GatRegisterAllocator();
+        GatRegisterAllocator allocator = new GatRegisterAllocator(this.profiler);
         Map<Node, Register> registers = allocator.allocateRegisters(graph, source);
 
-        generateForGraph(graph, builder, registers, source);
-        return TEMPLATE.replace(INDENT + "{{GENERATED_CODE}}", builder.toString());
+        CodeEmissionEvent event = new CodeEmissionEvent();
+        event.begin();
+        try (PhaseProfiler.Phase _ = this.profiler.phase("code emission")) {
+            generateForGraph(graph, builder, registers, source);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.function = graph.name();
+            event.nodeCount = registers.size();
+            event.assemblyLength = builder.length();
+            event.commit();
+        }
+        return FUNCTION_TEMPLATE
+                .replace("{{NAME}}", functionLabel(graph))
+                .replace(INDENT + "{{GENERATED_CODE}}", builder.toString());
     }
 
-    // TODO: Implement graph tiling and proper interference so we don't have to
-    // exclude registers from being used for useful thingies.
-    private void generateForGraph(IrGraph graph, StringBuilder builder, Map<Node, Register> registers, String source) {
-        Set<Node> visited = new HashSet<>();
-        scan(graph.endBlock(), visited, builder, registers, source);
+    /// Function names are prefixed, so `main` is free for the entry point.
+    private static String functionLabel(IrGraph graph) {
+        return "_" + graph.name();
     }
 
-    private void scan(Node node, Set<Node> visited, StringBuilder builder, Map<Node, Register> registers,
-            String source) {
-
-        for (Node predecessor : node.predecessors()) {
-            if (visited.add(predecessor)) {
-                scan(predecessor, visited, builder, registers, source);
-            }
+    // TODO: Implement graph tiling and proper interference so we don't have to
+    // exclude registers from being used for useful thingies.
+    private void generateForGraph(IrGraph graph, StringBuilder builder, Map<Node, Register> registers,
+            SourceFile source) {
+        ValueRangeAnalysis ranges = new ValueRangeAnalysis();
+        // predecessors first, without recursion as graphs of deeply nested expressions are deep
+        for (Node node : BasicNodeOrder.buildBasicNodeOrder(graph)) {
+            emit(node, builder, registers, ranges, source);
         }
+    }
 
+    private void emit(Node node, StringBuilder builder, Map<Node, Register> registers, ValueRangeAnalysis ranges,
+            SourceFile source) {
         emitDebugInfo(builder, registers, node, source);
         switch (node) {
-            case AddNode add -> emitBinaryOp(builder, registers, add, "addl");
-            case SubNode sub -> emitBinaryOp(builder, registers, sub, "subl");
-            case MulNode mul -> emitBinaryOp(builder, registers, mul, "imull");
-            case DivNode div -> emitBinaryOp(builder, registers, div, "idivl");
-            case ModNode mod -> emitBinaryOp(builder, registers, mod, "imodl");
+            case AddNode add -> emitBinaryOp(builder, registers, ranges, add, "addl");
+            case SubNode sub -> emitBinaryOp(builder, registers, ranges, sub, "subl");
+            case MulNode mul -> emitBinaryOp(builder, registers, ranges, mul, "imull");
+            case DivNode div -> emitBinaryOp(builder, registers, ranges, div, "idivl");
+            case ModNode mod -> emitBinaryOp(builder, registers, ranges, mod, "imodl");
             case ReturnNode r -> emitReturn(builder, registers, r);
             case ConstIntNode c -> emitConstAssign(builder, registers, c);
             case Phi _ -> throw new UnsupportedOperationException("phi");
@@ -100,20 +148,25 @@ public class CodeGenerator {
         builder.append('\n');
     }
 
-    private static void emitDebugInfo(StringBuilder builder, Map<Node, Register> registers, Node node, String source) {
+    private static void emitDebugInfo(StringBuilder builder, Map<Node, Register> registers, Node node,
+            SourceFile source) {
 
         // skip debug info for these nodes
         if (node instanceof Phi || node instanceof Block || node instanceof ProjNode || node instanceof StartNode) {
             return;
         }
 
-        if (!(node.debugInfo() instanceof DebugInfo.SourceInfo sourceInfo)) {
+        if (!(node.debugInfo(source) instanceof DebugInfo.SourceInfo sourceInfo)) {
             builder.repeat(INDENT, 1).append("# No source info 😢\n");
             return;
         }
 
         builder.repeat(INDENT, 1).append("# %s\n".formatted(sourceInfo.span()));
-        sourceInfo.span().fromSource(source).lines().map(String::trim)
+        String snippet = sourceInfo.span().fromSource(source);
+        if (snippet.length() > DEBUG_SOURCE_LIMIT) {
+            snippet = snippet.substring(0, DEBUG_SOURCE_LIMIT) + "...";
+        }
+        snippet.lines().map(String::trim)
                 .forEach(line -> builder.repeat(INDENT, 1).append("# %s\n".formatted(line)));
     }
 
@@ -130,8 +183,8 @@ public class CodeGenerator {
         builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted(src, "%eax"));
     }
 
-    private static void emitBinaryOp(StringBuilder builder, Map<Node, Register> registers, BinaryOperationNode node,
-            String opcode) {
+    private static void emitBinaryOp(StringBuilder builder, Map<Node, Register> registers,
+            ValueRangeAnalysis ranges, BinaryOperationNode node, String opcode) {
 
         var lhs = registers.get(NodeSupport.predecessorSkipProj(node, BinaryOperationNode.LEFT));
         var rhs = registers.get(NodeSupport.predecessorSkipProj(node, BinaryOperationNode.RIGHT));
@@ -151,9 +204,13 @@ public class CodeGenerator {
                 builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted(SPILL_REG, dest));
             }
             case "idivl", "imodl" -> {
+                if (ranges.range(node.predecessor(BinaryOperationNode.RIGHT)).isPowerOfTwo()) {
+                    emitDivModByPowerOfTwo(builder, ranges, node, node instanceof DivNode, lhs, dest);
+                    return;
+                }
                 // Sign-extend EAX into EDX:EAX
                 // https://faydoc.tripod.com/cpu/cdq.htm
-                String resultReg = opcode == "idivl" ? "%eax" : "%edx";
+                String resultReg = node instanceof DivNode ? "%eax" : "%edx";
                 builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted(lhs, "%eax"));
                 builder.repeat(INDENT, 1).append("cdq\n");
                 builder.repeat(INDENT, 1).append("idivl %s\n".formatted(rhs));
@@ -161,4 +218,43 @@ public class CodeGenerator {
             }
         }
     }
+
+    /// Divides by a constant `2^k` with shifts, which can't trap. For negative dividends, `2^k - 1` is
+    /// added before shifting to round towards zero like `idivl`, the remainder is what the rounded
+    /// down dividend leaves.
+    private static void emitDivModByPowerOfTwo(StringBuilder builder, ValueRangeAnalysis ranges,
+            BinaryOperationNode node, boolean div, Register lhs, Register dest) {
+
+        ValueRange divisor = ranges.range(node.predecessor(BinaryOperationNode.RIGHT));
+        int shift = Integer.numberOfTrailingZeros(divisor.min());
+        if (shift == 0) {
+            // x / 1 = x and x % 1 = 0
+            builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted(div ? lhs : "$0", "%eax"));
+            builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted("%eax", dest));
+            return;
+        }
+        builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted(lhs, "%eax"));
+        if (ranges.range(node.predecessor(BinaryOperationNode.LEFT)).isNonNegative()) {
+            if (div) {
+                builder.repeat(INDENT, 1).append("sarl $%d, %s\n".formatted(shift, "%eax"));
+            } else {
+                builder.repeat(INDENT, 1).append("andl $%d, %s\n".formatted(divisor.min() - 1, "%eax"));
+            }
+            builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted("%eax", dest));
+            return;
+        }
+        // %edx = dividend + (dividend < 0 ? 2^k - 1 : 0)
+        builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted("%eax", "%edx"));
+        builder.repeat(INDENT, 1).append("sarl $31, %s\n".formatted("%edx"));
+        builder.repeat(INDENT, 1).append("shrl $%d, %s\n".formatted(32 - shift, "%edx"));
+        builder.repeat(INDENT, 1).append("addl %s, %s\n".formatted("%eax", "%edx"));
+        if (div) {
+            builder.repeat(INDENT, 1).append("sarl $%d, %s\n".formatted(shift, "%edx"));
+            builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted("%edx", dest));
+        } else {
+            builder.repeat(INDENT, 1).append("andl $%d, %s\n".formatted(-divisor.min(), "%edx"));
+            builder.repeat(INDENT, 1).append("subl %s, %s\n".formatted("%edx", "%eax"));
+            builder.repeat(INDENT, 1).append("movl %s, %s\n".formatted("%eax", dest));
+        }
+    }
 }
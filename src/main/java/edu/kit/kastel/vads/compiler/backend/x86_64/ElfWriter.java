@@ -0,0 +1,65 @@
+package edu.kit.kastel.vads.compiler.backend.x86_64;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/// Writes a statically linked ELF64 executable for Linux on x86-64.
+///
+/// The file consists of the ELF header, a single program header and the code. The whole file is
+/// mapped read-only and executable, so no linker and no C runtime are involved: the entry symbol
+/// is jumped to directly and must terminate the process itself.
+public final class ElfWriter {
+    private static final long BASE_ADDRESS = 0x400000;
+    private static final int ELF_HEADER_SIZE = 64;
+    private static final int PROGRAM_HEADER_SIZE = 56;
+    private static final int CODE_OFFSET = ELF_HEADER_SIZE + PROGRAM_HEADER_SIZE;
+
+    private static final short ET_EXEC = 2;
+    private static final short EM_X86_64 = 62;
+    private static final int PT_LOAD = 1;
+    private static final int PF_X = 1;
+    private static final int PF_R = 4;
+
+    private ElfWriter() {
+
+    }
+
+    public static byte[] executable(Assembler.MachineCode machineCode, String entrySymbol) {
+        Integer entry = machineCode.symbols().get(entrySymbol);
+        if (entry == null) {
+            throw new AssemblerException("missing entry symbol " + entrySymbol);
+        }
+        byte[] code = machineCode.code();
+        long fileSize = CODE_OFFSET + code.length;
+        ByteBuffer buffer = ByteBuffer.allocate(CODE_OFFSET + code.length).order(ByteOrder.LITTLE_ENDIAN);
+
+        // e_ident: magic, 64-bit, little endian, version 1, System V ABI
+        buffer.put(new byte[] {0x7F, 'E', 'L', 'F', 2, 1, 1, 0});
+        buffer.put(new byte[8]);
+        buffer.putShort(ET_EXEC);
+        buffer.putShort(EM_X86_64);
+        buffer.putInt(1); // e_version
+        buffer.putLong(BASE_ADDRESS + CODE_OFFSET + entry); // e_entry
+        buffer.putLong(ELF_HEADER_SIZE); // e_phoff
+        buffer.putLong(0); // e_shoff, there are no sections
+        buffer.putInt(0); // e_flags
+        buffer.putShort((short) ELF_HEADER_SIZE);
+        buffer.putShort((short) PROGRAM_HEADER_SIZE);
+        buffer.putShort((short) 1); // e_phnum
+        buffer.putShort((short) 0); // e_shentsize
+        buffer.putShort((short) 0); // e_shnum
+        buffer.putShort((short) 0); // e_shstrndx
+
+        buffer.putInt(PT_LOAD);
+        buffer.putInt(PF_R | PF_X);
+        buffer.putLong(0); // p_offset, map everything including the headers
+        buffer.putLong(BASE_ADDRESS); // p_vaddr
+        buffer.putLong(BASE_ADDRESS); // p_paddr
+        buffer.putLong(fileSize); // p_filesz
+        buffer.putLong(fileSize); // p_memsz
+        buffer.putLong(0x1000); // p_align
+
+        buffer.put(code);
+        return buffer.array();
+    }
+}
@@ -4,7 +4,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntSupplier;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.backend.regalloc.Register;
 import edu.kit.kastel.vads.compiler.backend.regalloc.RegisterAllocator;
 import edu.kit.kastel.vads.compiler.ir.BasicNodeOrder;
@@ -17,20 +19,63 @@ import edu.kit.kastel.vads.compiler.ir.node.Node;
 import edu.kit.kastel.vads.compiler.ir.node.ProjNode;
 import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
 import edu.kit.kastel.vads.compiler.ir.node.StartNode;
+import edu.kit.kastel.vads.compiler.profiling.PhaseProfiler;
+import edu.kit.kastel.vads.compiler.profiling.RegisterAllocationEvent;
 
 public class GatRegisterAllocator implements RegisterAllocator {
   public static boolean LOG_BASIC_NODE_ORDER = false;
 
+  private final PhaseProfiler profiler;
+
+  public GatRegisterAllocator() {
+    this(PhaseProfiler.disabled());
+  }
+
+  public GatRegisterAllocator(PhaseProfiler profiler) {
+    this.profiler = profiler;
+  }
+
   @Override
-  public Map<Node, Register> allocateRegisters(IrGraph graph, String source) {
-    List<Node> basicOrder = BasicNodeOrder
-        .buildBasicNodeOrder(graph);
-    Map<Node, Set<Node>> interferenceGraph = InterferenceGraph
-        .buildInterferenceGraph(graph);
-    List<Node> simplicalEliminationOrder = SimplicalEliminationOrdering
-        .buildSimplicalEliminationOrdering(interferenceGraph);
-    Map<Node, Integer> interferenceGraphColoring = GreedyColoring
-        .buildGreedyColoring(interferenceGraph, simplicalEliminationOrder);
+  public Map<Node, Register> allocateRegisters(IrGraph graph, SourceFile source) {
+    try (PhaseProfiler.Phase _ = this.profiler.phase("register allocation")) {
+      return allocateRegistersProfiled(graph, source);
+    }
+  }
+
+  private Map<Node, Register> allocateRegistersProfiled(IrGraph graph, SourceFile source) {
+    List<Node> basicOrder;
+    Map<Node, Set<Node>> liveIn;
+    RegisterAllocationEvent event = beginEvent();
+    try (PhaseProfiler.Phase _ = this.profiler.phase("register allocation/liveness")) {
+      basicOrder = BasicNodeOrder.buildBasicNodeOrder(graph);
+      liveIn = InterferenceGraph.buildLiveInSets(basicOrder);
+    }
+    commitEvent(event, graph, "liveness", basicOrder.size(), () -> 0, () -> 0);
+
+    Map<Node, Set<Node>> interferenceGraph;
+    event = beginEvent();
+    try (PhaseProfiler.Phase _ = this.profiler.phase("register allocation/interference graph")) {
+      interferenceGraph = InterferenceGraph.buildInterferenceGraph(graph, basicOrder, liveIn);
+    }
+    commitEvent(event, graph, "interference graph", interferenceGraph.size(),
+        () -> edgeCount(interferenceGraph), () -> 0);
+
+    List<Node> simplicalEliminationOrder;
+    event = beginEvent();
+    try (PhaseProfiler.Phase _ = this.profiler.phase("register allocation/elimination ordering")) {
+      simplicalEliminationOrder = SimplicalEliminationOrdering
+          .buildSimplicalEliminationOrdering(interferenceGraph);
+    }
+    commitEvent(event, graph, "elimination ordering", simplicalEliminationOrder.size(), () -> 0, () -> 0);
+
+    Map<Node, Integer> interferenceGraphColoring;
+    event = beginEvent();
+    try (PhaseProfiler.Phase _ = this.profiler.phase("register allocation/coloring")) {
+      interferenceGraphColoring = GreedyColoring
+          .buildGreedyColoring(interferenceGraph, simplicalEliminationOrder);
+    }
+    commitEvent(event, graph, "coloring", interferenceGraphColoring.size(), () -> 0,
+        () -> interferenceGraphColoring.values().stream().mapToInt(color -> color + 1).max().orElse(0));
     Map<Node, Register> registerAllocation = allocateRegistersInner(interferenceGraphColoring);
 
     if (LOG_BASIC_NODE_ORDER) {
@@ -57,6 +102,31 @@ public class GatRegisterAllocator implements RegisterAllocator {
     return registerAllocation;
   }
 
+  private static RegisterAllocationEvent beginEvent() {
+    RegisterAllocationEvent event = new RegisterAllocationEvent();
+    event.begin();
+    return event;
+  }
+
+  /// Counts that are expensive to compute are only computed if the event is recorded.
+  private static void commitEvent(RegisterAllocationEvent event, IrGraph graph, String stage, int nodeCount,
+      IntSupplier edgeCount, IntSupplier colorCount) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.function = graph.name();
+      event.stage = stage;
+      event.nodeCount = nodeCount;
+      event.edgeCount = edgeCount.getAsInt();
+      event.colorCount = colorCount.getAsInt();
+      event.commit();
+    }
+  }
+
+  private static int edgeCount(Map<Node, Set<Node>> interferenceGraph) {
+    // every edge is contained in the neighborhood of both of its nodes
+    return interferenceGraph.values().stream().mapToInt(Set::size).sum() / 2;
+  }
+
   private Map<Node, Register> allocateRegistersInner(
       Map<Node, Integer> interferenceGraphColoring) {
     Map<Node, Register> result = new HashMap<>();
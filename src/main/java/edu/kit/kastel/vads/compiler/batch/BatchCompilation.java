@@ -0,0 +1,208 @@
+package edu.kit.kastel.vads.compiler.batch;
+
+import edu.kit.kastel.vads.compiler.Compilation;
+import edu.kit.kastel.vads.compiler.cache.CompilationCache;
+import edu.kit.kastel.vads.compiler.profiling.PhaseProfiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/// Compiles many source files in a single invocation.
+///
+/// The Java side of each compilation runs as a task on a [ForkJoinPool]. As soon as a file has been
+/// turned into assembly, `gcc` is started for it in the background and the worker continues with the next
+/// file, so external processes overlap with compilation work.
+public final class BatchCompilation {
+    private static final String SOURCE_EXTENSION = ".l1";
+
+    private final List<Job> jobs;
+
+    public BatchCompilation(List<Job> jobs) {
+        this.jobs = List.copyOf(jobs);
+    }
+
+    /// A single input file and where its executable should go.
+    public record Job(Path input, Path output) {
+    }
+
+    /// @param exitCode the exit code the compiler would have terminated with for this file
+    /// @param frontendNanos the time spent in the compiler itself
+    /// @param totalNanos the time until the executable was written, including `gcc`
+    /// @param diagnostics everything the compilation reported
+    public record Result(Job job, int exitCode, long frontendNanos, long totalNanos, String diagnostics) {
+    }
+
+    /// Reads a manifest with one input file per line, optionally followed by a tab and the output file.
+    /// Empty lines and lines starting with `#` are ignored. Relative paths are resolved against the
+    /// directory of the manifest.
+    public static BatchCompilation fromManifest(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        List<Job> jobs = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\t", 2);
+            Path input = base.resolve(parts[0].strip());
+            Path output = parts.length > 1 ? base.resolve(parts[1].strip()) : withoutExtension(input);
+            jobs.add(new Job(input, output));
+        }
+        return new BatchCompilation(jobs);
+    }
+
+    /// Collects all `.l1` files below `directory`. Executables are placed next to their sources,
+    /// or at the same relative location in `outputDirectory` if given.
+    public static BatchCompilation fromDirectory(Path directory, Path outputDirectory) throws IOException {
+        List<Job> jobs;
+        try (Stream<Path> files = Files.walk(directory)) {
+            jobs = files
+                    .filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(SOURCE_EXTENSION))
+                    .sorted()
+                    .map(path -> new Job(path, withoutExtension(outputDirectory.resolve(directory.relativize(path)))))
+                    .toList();
+        }
+        return new BatchCompilation(jobs);
+    }
+
+    private static Path withoutExtension(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot <= 0 ? path.resolveSibling(name + ".out") : path.resolveSibling(name.substring(0, dot));
+    }
+
+    /// Compiles all files on the given pool.
+    ///
+    /// @param maxConcurrentGcc how many `gcc` processes may run at once before workers stall
+    /// @return the results in the order of the jobs
+    public List<Result> run(ForkJoinPool pool, int maxConcurrentGcc) {
+        return run(pool, maxConcurrentGcc, PhaseProfiler.disabled());
+    }
+
+    /// Like [#run(ForkJoinPool, int)], but measures the phases of all compilations with `profiler`.
+    public List<Result> run(ForkJoinPool pool, int maxConcurrentGcc, PhaseProfiler profiler) {
+        List<CompletableFuture<Result>> results = Stream.generate(CompletableFuture<Result>::new)
+                .limit(this.jobs.size())
+                .toList();
+        Semaphore gccPermits = new Semaphore(maxConcurrentGcc);
+        pool.invoke(new CompileRange(results, 0, this.jobs.size(), gccPermits, profiler));
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    private final class CompileRange extends RecursiveAction {
+        // tasks are never serialized, the fields only have to be marked as such
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<CompletableFuture<Result>> results;
+        private final int from;
+        private final int to;
+        private final transient Semaphore gccPermits;
+        private final transient PhaseProfiler profiler;
+
+        CompileRange(List<CompletableFuture<Result>> results, int from, int to, Semaphore gccPermits,
+                PhaseProfiler profiler) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.gccPermits = gccPermits;
+            this.profiler = profiler;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 0) {
+                return;
+            }
+            if (this.to - this.from == 1) {
+                // a single file is already plenty of work for one task
+                compile(BatchCompilation.this.jobs.get(this.from), this.gccPermits, this.profiler)
+                        .thenAccept(this.results.get(this.from)::complete);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(
+                    new CompileRange(this.results, this.from, middle, this.gccPermits, this.profiler),
+                    new CompileRange(this.results, middle, this.to, this.gccPermits, this.profiler));
+        }
+    }
+
+    private static CompletableFuture<Result> compile(Job job, Semaphore gccPermits, PhaseProfiler profiler) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream diagnostics = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(job.output().toAbsolutePath().getParent());
+        } catch (IOException e) {
+            e.printStackTrace(diagnostics);
+            return CompletableFuture.completedFuture(
+                    new Result(job, Compilation.EXIT_FAILURE, 0, 0, buffer.toString(StandardCharsets.UTF_8)));
+        }
+        // the permit is held until gcc is done, we don't know in advance whether gcc will run at all
+        gccPermits.acquireUninterruptibly();
+        CompletableFuture<Integer> exitCode;
+        try {
+            exitCode = new Compilation(job.input(), job.output(), diagnostics,
+                    profiler.isEnabled() ? null : CompilationCache.shared(), profiler).start();
+        } catch (Throwable e) {
+            // e.g. an OutOfMemoryError, the other files are still compiled and reported
+            gccPermits.release();
+            e.printStackTrace(diagnostics);
+            diagnostics.close();
+            long nanos = System.nanoTime() - start;
+            return CompletableFuture.completedFuture(new Result(job, Compilation.EXIT_FAILURE, nanos, nanos,
+                    buffer.toString(StandardCharsets.UTF_8)));
+        }
+        long frontendNanos = System.nanoTime() - start;
+        return exitCode.handle((code, e) -> {
+            gccPermits.release();
+            diagnostics.close();
+            long totalNanos = System.nanoTime() - start;
+            int result = e == null ? code : Compilation.EXIT_FAILURE;
+            return new Result(job, result, frontendNanos, totalNanos, buffer.toString(StandardCharsets.UTF_8));
+        });
+    }
+
+    /// {@return the exit code of the first file that failed, or [Compilation#EXIT_SUCCESS] if none did}
+    public static int exitCode(List<Result> results) {
+        for (Result result : results) {
+            if (result.exitCode() != Compilation.EXIT_SUCCESS) {
+                return result.exitCode();
+            }
+        }
+        return Compilation.EXIT_SUCCESS;
+    }
+
+    /// Prints one tab-separated line per file (exit code, compiler ms, total ms, input) and a summary.
+    /// Diagnostics are printed to `diagnostics`, grouped by file.
+    public static void report(List<Result> results, PrintStream out, PrintStream diagnostics) {
+        long failed = 0;
+        long frontendNanos = 0;
+        for (Result result : results) {
+            out.printf("%d\t%.3f\t%.3f\t%s%n",
+                    result.exitCode(),
+                    result.frontendNanos() / 1e6,
+                    result.totalNanos() / 1e6,
+                    result.job().input());
+            frontendNanos += result.frontendNanos();
+            if (result.exitCode() != Compilation.EXIT_SUCCESS) {
+                failed++;
+            }
+            if (!result.diagnostics().isEmpty()) {
+                diagnostics.println("==> " + result.job().input() + " <==");
+                diagnostics.print(result.diagnostics());
+            }
+        }
+        out.printf("# %d files, %d failed, %.3f ms in the compiler%n", results.size(), failed, frontendNanos / 1e6);
+    }
+}
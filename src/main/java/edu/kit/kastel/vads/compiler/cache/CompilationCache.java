@@ -0,0 +1,272 @@
+package edu.kit.kastel.vads.compiler.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/// A content-addressed on-disk cache of compilation results.
+///
+/// Entries are keyed by a SHA-256 hash over the source bytes, the compiler version and all options
+/// that influence the produced files. Each entry is a directory holding the assembly and the executable.
+/// Entries are published with an atomic rename, so concurrent compilers (e.g. parallel CI jobs) never
+/// see partially written entries. Once the cache grows beyond its size limit, the least recently used
+/// entries are evicted.
+///
+/// The size of the cache is tracked approximately, from one scan of the directory on the first store
+/// and the sizes of the entries stored since. Only when that exceeds the limit is the directory scanned
+/// again, which also picks up the entries other processes stored or evicted in the meantime.
+public final class CompilationCache {
+    private static final String ASSEMBLY = "out.s";
+    private static final String EXECUTABLE = "out";
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+    private static final long UNKNOWN_SIZE = -1;
+
+    private static final class SharedHolder {
+        private static final @Nullable CompilationCache INSTANCE = fromEnvironment();
+    }
+
+    private final Path directory;
+    private final long maxSize;
+    private final String compilerVersion;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    /// The approximate total size of all entries, or [#UNKNOWN_SIZE] before the directory was scanned.
+    private final AtomicLong size = new AtomicLong(UNKNOWN_SIZE);
+
+    /// @param compilerVersion identifies the build of the compiler, see [#compilerVersion()]
+    public CompilationCache(Path directory, long maxSize, String compilerVersion) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.compilerVersion = compilerVersion;
+    }
+
+    /// {@return the cache configured for this process, or `null` if caching is disabled}
+    ///
+    /// The cache is enabled by setting the `COMPILER_CACHE` environment variable or the `compilerCache`
+    /// system property to a directory. The size limit in bytes can be changed with `COMPILER_CACHE_SIZE`
+    /// or `compilerCacheSize` respectively. Caching is disabled if the compiler doesn't run from a jar.
+    public static @Nullable CompilationCache shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    private static @Nullable CompilationCache fromEnvironment() {
+        String directory = setting("COMPILER_CACHE", "compilerCache");
+        if (directory == null || directory.isBlank()) {
+            return null;
+        }
+        String compilerVersion = compilerVersion();
+        if (compilerVersion == null) {
+            return null;
+        }
+        String size = setting("COMPILER_CACHE_SIZE", "compilerCacheSize");
+        return new CompilationCache(Path.of(directory), size == null ? DEFAULT_MAX_SIZE : Long.parseLong(size),
+                compilerVersion);
+    }
+
+    private static @Nullable String setting(String environmentVariable, String property) {
+        String value = System.getProperty(property);
+        return value != null ? value : System.getenv(environmentVariable);
+    }
+
+    /// Identifies an entry in the cache.
+    public record Key(String hash) {
+    }
+
+    /// @param hits how many compilations could be skipped
+    /// @param misses how many compilations had to run
+    /// @param evictions how many entries were removed to stay below the size limit
+    public record Stats(long hits, long misses, long evictions) {
+    }
+
+    /// @param options everything besides the source that influences the result, e.g. the backend
+    public Key key(ByteBuffer source, String options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required to be supported", e);
+        }
+        // NUL never occurs in versions or options, so it separates them unambiguously from the source
+        digest.update((this.compilerVersion + '\0' + options + '\0').getBytes(StandardCharsets.UTF_8));
+        digest.update(source);
+        return new Key(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /// Copies the cached files for `key` to their destinations, if there is an entry.
+    ///
+    /// @return whether there was an entry
+    public boolean restore(Key key, Path assembly, Path executable) {
+        Path entry = this.directory.resolve(key.hash());
+        try {
+            Files.copy(entry.resolve(ASSEMBLY), assembly, StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(entry.resolve(EXECUTABLE), executable, StandardCopyOption.REPLACE_EXISTING);
+            if (!executable.toFile().setExecutable(true, false)) {
+                throw new IOException("cannot make " + executable + " executable");
+            }
+            // the modification time of the entry tracks its last use for the eviction
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException _) {
+            // no entry, or it was evicted while we were copying it
+            this.misses.incrementAndGet();
+            return false;
+        }
+        this.hits.incrementAndGet();
+        return true;
+    }
+
+    /// Stores the given files as the entry for `key` and evicts old entries if needed.
+    public void store(Key key, Path assembly, Path executable) throws IOException {
+        Files.createDirectories(this.directory);
+        if (this.size.get() == UNKNOWN_SIZE) {
+            // concurrent stores may scan twice, but then agree on the result
+            this.size.compareAndSet(UNKNOWN_SIZE, scan().stream().mapToLong(Entry::size).sum());
+        }
+        long entrySize = 0;
+        Path temp = Files.createTempDirectory(this.directory, TEMP_PREFIX);
+        try {
+            Files.copy(assembly, temp.resolve(ASSEMBLY));
+            Files.copy(executable, temp.resolve(EXECUTABLE));
+            long copiedSize = size(temp);
+            Path target = this.directory.resolve(key.hash());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                entrySize = copiedSize;
+            } catch (AtomicMoveNotSupportedException e) {
+                throw new IOException("the cache directory doesn't support atomic renames", e);
+            } catch (FileSystemException e) {
+                // Linux refuses to replace a non-empty directory with "Directory not empty", not
+                // FileAlreadyExistsException, so check whether someone else was faster
+                if (!Files.isDirectory(target)) {
+                    throw e;
+                }
+                // they were, the entry has the same content anyway
+            }
+        } finally {
+            deleteRecursively(temp);
+        }
+        if (this.size.addAndGet(entrySize) > this.maxSize) {
+            evict();
+        }
+    }
+
+    private void evict() throws IOException {
+        List<Entry> entries = scan();
+        long total = entries.stream().mapToLong(Entry::size).sum();
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (Entry entry : entries) {
+            if (total <= this.maxSize) {
+                break;
+            }
+            deleteRecursively(entry.path());
+            total -= entry.size();
+            this.evictions.incrementAndGet();
+        }
+        this.size.set(total);
+    }
+
+    /// {@return all entries in the cache directory}
+    private List<Entry> scan() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> children = Files.list(this.directory)) {
+            for (Path child : (Iterable<Path>) children::iterator) {
+                if (child.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                    entries.add(new Entry(child, attributes.lastModifiedTime(), size(child)));
+                } catch (NoSuchFileException _) {
+                    // evicted concurrently
+                }
+            }
+        }
+        return entries;
+    }
+
+    private record Entry(Path path, FileTime lastUsed, long size) {
+    }
+
+    public Stats stats() {
+        return new Stats(this.hits.get(), this.misses.get(), this.evictions.get());
+    }
+
+    private static long size(Path entry) throws IOException {
+        try (Stream<Path> files = Files.list(entry)) {
+            return files.mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (NoSuchFileException _) {
+            // deleted concurrently
+        }
+    }
+
+    /// Identifies the build of the compiler by a hash of the jar its classes were loaded from, so
+    /// rebuilding the compiler invalidates all entries.
+    ///
+    /// @return the hash, or `null` if the classes weren't loaded from a jar. The size and modification
+    /// time of a classes directory don't change with the classes inside, so there is no cheap way
+    /// to tell builds apart then.
+    public static @Nullable String compilerVersion() {
+        CodeSource codeSource = CompilationCache.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return null;
+        }
+        try {
+            Path location = Path.of(codeSource.getLocation().toURI());
+            if (!Files.isRegularFile(location)) {
+                return null;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream jar = Files.newInputStream(location)) {
+                byte[] buffer = new byte[64 * 1024];
+                for (int read = jar.read(buffer); read >= 0; read = jar.read(buffer)) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (URISyntaxException | IOException | IllegalArgumentException | NoSuchAlgorithmException _) {
+            return null;
+        }
+    }
+}
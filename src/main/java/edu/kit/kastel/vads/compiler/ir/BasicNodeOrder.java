@@ -2,25 +2,40 @@ package edu.kit.kastel.vads.compiler.ir;
 
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/// Orders the nodes of a graph so that every node comes after its predecessors.
+///
+/// The order is a depth-first postorder from the end block, taking the predecessors in order. The walk
+/// keeps its path on an explicit stack, as deeply nested expressions give arbitrarily deep graphs.
 public class BasicNodeOrder {
-  private static void buildBasicNodeOrderRecursive(Node node, Set<Node> visited, List<Node> order) {
-    for (Node predecessor : node.predecessors()) {
-      if (visited.add(predecessor)) {
-        buildBasicNodeOrderRecursive(predecessor, visited, order);
-      }
-    }
-    order.add(node);
-  }
-
   public static List<Node> buildBasicNodeOrder(IrGraph graph) {
     Set<Node> visited = new HashSet<>();
     List<Node> order = new ArrayList<>();
-
-    buildBasicNodeOrderRecursive(graph.endBlock(), visited, order);
+    // the path from the end block to the current node, and the next predecessor to visit of each
+    List<Node> path = new ArrayList<>();
+    int[] next = new int[16];
+    path.add(graph.endBlock());
+    while (!path.isEmpty()) {
+      int top = path.size() - 1;
+      Node node = path.get(top);
+      if (next[top] == node.predecessorCount()) {
+        path.removeLast();
+        order.add(node);
+        continue;
+      }
+      Node predecessor = node.predecessor(next[top]++);
+      if (visited.add(predecessor)) {
+        if (path.size() == next.length) {
+          next = Arrays.copyOf(next, next.length * 2);
+        }
+        next[path.size()] = 0;
+        path.add(predecessor);
+      }
+    }
     return order;
   }
 }
@@ -132,10 +132,10 @@ class GraphConstructor {
             val = newPhi();
             this.incompletePhis.computeIfAbsent(block, _ -> new HashMap<>()).put(variable,
                     (Phi) val);
-        } else if (block.predecessors().size() == 1) {
+        } else if (block.predecessorCount() == 1) {
             // There's only one predecessor
             // => No Phi needed
-            val = readVariable(variable, block.predecessors().getFirst().block());
+            val = readVariable(variable, block.predecessor(0).block());
         } else {
             // Break potential cycles with operandless Phi
             val = newPhi();
@@ -150,8 +150,9 @@ class GraphConstructor {
     /// @see {@link edu.kit.kastel.vads.compiler.ir.GraphConstructor#readVariableRecursive}
     Node addPhiOperands(Name variable, Phi phi) {
         // Determine operands from predecessors
-        for (Node pred : phi.block().predecessors()) {
-            phi.appendOperand(readVariable(variable, pred.block()));
+        Block block = phi.block();
+        for (int i = 0; i < block.predecessorCount(); i++) {
+            phi.appendOperand(readVariable(variable, block.predecessor(i).block()));
         }
         return tryRemoveTrivialPhi(phi);
     }
@@ -203,8 +204,8 @@ class GraphConstructor {
             val = newPhi();
             Phi old = this.incompleteSideEffectPhis.put(block, (Phi) val);
             assert old == null : "double readSideEffectRecursive for " + block;
-        } else if (block.predecessors().size() == 1) {
-            val = readSideEffect(block.predecessors().getFirst().block());
+        } else if (block.predecessorCount() == 1) {
+            val = readSideEffect(block.predecessor(0).block());
         } else {
             val = newPhi();
             writeSideEffect(block, val);
@@ -215,8 +216,9 @@ class GraphConstructor {
     }
 
     Node addPhiOperands(Phi phi) {
-        for (Node pred : phi.block().predecessors()) {
-            phi.appendOperand(readSideEffect(pred.block()));
+        Block block = phi.block();
+        for (int i = 0; i < block.predecessorCount(); i++) {
+            phi.appendOperand(readSideEffect(block.predecessor(i).block()));
         }
         return tryRemoveTrivialPhi(phi);
     }
@@ -1,12 +1,11 @@
 package edu.kit.kastel.vads.compiler.ir;
 
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
@@ -19,11 +18,17 @@ public class InterferenceGraph {
   private final static boolean LOG_LIVE_IN_SETS = false;
 
   public static Map<Node, Set<Node>> buildInterferenceGraph(IrGraph graph) {
+    List<Node> basicNodeOrder = BasicNodeOrder.buildBasicNodeOrder(graph);
+    return buildInterferenceGraph(graph, basicNodeOrder, buildLiveInSets(basicNodeOrder));
+  }
 
-    Map<Node, Set<Node>> liveIn = new HashMap<>();
+  /// Determines which nodes are live at each node.
+  public static Map<Node, Set<Node>> buildLiveInSets(List<Node> basicNodeOrder) {
+    // Iteration order must not depend on identity hash codes, they differ between threads and runs
+    Map<Node, Set<Node>> liveIn = new LinkedHashMap<>();
     Set<Node> liveInCurrent = new HashSet<>();
 
-    List<Node> basicNodeOrderRev = BasicNodeOrder.buildBasicNodeOrder(graph).reversed();
+    List<Node> basicNodeOrderRev = basicNodeOrder.reversed();
     for (Node node : basicNodeOrderRev) {
       // Determine which other nodes are live at this node
       switch (node) {
@@ -79,10 +84,14 @@ public class InterferenceGraph {
         System.out.println(" - " + node + " [" + i + "]: " + liveAtNode);
       }
     }
+    return liveIn;
+  }
 
-    // Compute the interference graph from the live-in information
-    Map<Node, Set<Node>> interferenceGraph = new HashMap<>();
-    for (Node node : basicNodeOrderRev) {
+  /// Computes the interference graph from the live-in sets built by [#buildLiveInSets(List)].
+  public static Map<Node, Set<Node>> buildInterferenceGraph(IrGraph graph, List<Node> basicNodeOrder,
+      Map<Node, Set<Node>> liveIn) {
+    Map<Node, Set<Node>> interferenceGraph = new LinkedHashMap<>();
+    for (Node node : basicNodeOrder.reversed()) {
       interferenceGraph.put(node, new HashSet<>());
     }
 
@@ -91,16 +100,16 @@ public class InterferenceGraph {
 
       switch (u) {
         case BinaryOperationNode _,ConstIntNode _ -> {
-          Set<Node> liveInAtSuccessors = NodeSupport
-              .successorsSkipProj(graph, u).stream()
-              .flatMap((v) -> liveIn.getOrDefault(v, Set.of()).stream())
-              .filter((v) -> !v.equals(u))
-              .collect(Collectors.toSet());
-
-          for (Node v : liveInAtSuccessors) {
-            interferenceGraph.get(u).add(v);
-            interferenceGraph.get(v).add(u);
-          }
+          // everything live-in at the successors interferes with u
+          Set<Node> interfering = interferenceGraph.get(u);
+          NodeSupport.forEachSuccessorSkipProj(u, successor -> {
+            for (Node v : liveIn.getOrDefault(successor, Set.of())) {
+              if (!v.equals(u)) {
+                interfering.add(v);
+                interferenceGraph.get(v).add(u);
+              }
+            }
+          });
         }
         default -> {
           /* no-op */
@@ -3,14 +3,9 @@ package edu.kit.kastel.vads.compiler.ir;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 
-import java.util.IdentityHashMap;
-import java.util.LinkedHashSet;
-import java.util.Map;
-import java.util.SequencedSet;
-import java.util.Set;
-
+/// The nodes of a function, reachable from its [#endBlock()]. The edges to the nodes using a node are
+/// stored on the node itself, see [Node#successors()].
 public class IrGraph {
-    private final Map<Node, SequencedSet<Node>> successors = new IdentityHashMap<>();
     private final Block startBlock;
     private final Block endBlock;
     private final String name;
@@ -21,23 +16,6 @@ public class IrGraph {
         this.endBlock = new Block(this);
     }
 
-    public void registerSuccessor(Node node, Node successor) {
-        this.successors.computeIfAbsent(node, _ -> new LinkedHashSet<>()).add(successor);
-    }
-
-    public void removeSuccessor(Node node, Node oldSuccessor) {
-        this.successors.computeIfAbsent(node, _ -> new LinkedHashSet<>()).remove(oldSuccessor);
-    }
-
-    /// {@return the set of nodes that have the given node as one of their inputs}
-    public Set<Node> successors(Node node) {
-        SequencedSet<Node> successors = this.successors.get(node);
-        if (successors == null) {
-            return Set.of();
-        }
-        return Set.copyOf(successors);
-    }
-
     public Block startBlock() {
         return this.startBlock;
     }
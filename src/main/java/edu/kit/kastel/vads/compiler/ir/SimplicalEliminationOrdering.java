@@ -2,11 +2,12 @@ package edu.kit.kastel.vads.compiler.ir;
 
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 public class SimplicalEliminationOrdering {
   public static List<Node> buildSimplicalEliminationOrdering(
@@ -15,40 +16,41 @@ public class SimplicalEliminationOrdering {
     // TODO: Should we exclude specific nodes like ProjNode here?
 
     // This will contain the nodes in their simplical elimination ordering
-    List<Node> order = new ArrayList<>();
-    for (int i = 0; i < interferenceGraph.size(); i += 1) {
-      order.add(null);
+    List<Node> order = new ArrayList<>(interferenceGraph.size());
+
+    // Ties are broken by the order of the interference graph, keep it
+    List<Node> nodes = new ArrayList<>(interferenceGraph.keySet());
+    Map<Node, Integer> indices = new HashMap<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      indices.put(nodes.get(i), i);
     }
 
     // for each v: weight[v] <- 0;
-    Map<Node, Integer> wt = new HashMap<>();
-    for (Node v : interferenceGraph.keySet()) {
-      wt.put(v, 0);
-    }
+    int[] wt = new int[nodes.size()];
 
-    // W <- V
-    Set<Node> W = new HashSet<>(interferenceGraph.keySet());
+    // W <- V, ordered by decreasing weight, so the first node has the maximum weight
+    TreeSet<Integer> W = new TreeSet<>(
+        Comparator.<Integer>comparingInt(v -> -wt[v]).thenComparingInt(v -> v));
+    for (int i = 0; i < nodes.size(); i++) {
+      W.add(i);
+    }
 
-    for (int i = 0; i < interferenceGraph.size(); i++) {
-      // Let v be the node with the maximum weight in W
-      Node v = wt.entrySet()
-                   .stream()
-                   .filter(entry -> W.contains(entry.getKey()))
-                   .max(Map.Entry.comparingByValue())
-                   .orElseThrow()
-                   .getKey();
+    while (!W.isEmpty()) {
+      // Let v be the node with the maximum weight in W, and W <- W - {v}
+      Node v = nodes.get(W.pollFirst());
 
       // Set v_i <- v
-      order.set(i, v);
+      order.add(v);
 
       // For all u ∈ W ∩ N(v) set weight[u] <- weight[u] + 1
-      for (Node u :
-           interferenceGraph.get(v).stream().filter(W::contains).toList()) {
-        wt.computeIfPresent(u, (_, w) -> w + 1);
+      for (Node neighbor : interferenceGraph.get(v)) {
+        Integer u = indices.get(neighbor);
+        // the weight is part of the ordering, so u is taken out while it changes
+        if (u != null && W.remove(u)) {
+          wt[u] += 1;
+          W.add(u);
+        }
       }
-
-      // W <- W - {v}
-      W.remove(v);
     }
 
     return order;
@@ -1,5 +1,7 @@
 package edu.kit.kastel.vads.compiler.ir;
 
+import edu.kit.kastel.vads.compiler.ir.analysis.ValueRangeAnalysis;
+import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
 import edu.kit.kastel.vads.compiler.ir.node.DivNode;
 import edu.kit.kastel.vads.compiler.ir.node.ModNode;
@@ -7,27 +9,13 @@ import edu.kit.kastel.vads.compiler.ir.node.Node;
 import edu.kit.kastel.vads.compiler.ir.optimize.Optimizer;
 import edu.kit.kastel.vads.compiler.ir.util.DebugInfo;
 import edu.kit.kastel.vads.compiler.ir.util.DebugInfoHelper;
-import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
-import edu.kit.kastel.vads.compiler.parser.ast.BinaryOperationTree;
-import edu.kit.kastel.vads.compiler.parser.ast.BlockTree;
-import edu.kit.kastel.vads.compiler.parser.ast.DeclarationTree;
-import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.IdentExpressionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.LValueIdentTree;
-import edu.kit.kastel.vads.compiler.parser.ast.LiteralTree;
-import edu.kit.kastel.vads.compiler.parser.ast.NameTree;
-import edu.kit.kastel.vads.compiler.parser.ast.NegateTree;
-import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
-import edu.kit.kastel.vads.compiler.parser.ast.ReturnTree;
-import edu.kit.kastel.vads.compiler.parser.ast.StatementTree;
-import edu.kit.kastel.vads.compiler.parser.ast.Tree;
-import edu.kit.kastel.vads.compiler.parser.ast.TypeTree;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
 import edu.kit.kastel.vads.compiler.parser.symbol.Name;
-import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
+import edu.kit.kastel.vads.compiler.profiling.SsaTranslationEvent;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.Optional;
 import java.util.function.BinaryOperator;
 
 /// SSA translation as described in
@@ -37,19 +25,44 @@ import java.util.function.BinaryOperator;
 /// reordered.
 ///
 /// We recommend to read the paper to better understand the mechanics implemented here.
+///
+/// The function is translated straight from its [FlatTree]: as its nodes are stored in postorder, the
+/// nodes of a statement are translated in order, keeping the values of expressions on a stack.
 public class SsaTranslation {
-    private final FunctionTree function;
+    private final FlatTree tree;
+    private final int function;
     private final GraphConstructor constructor;
-
-    public SsaTranslation(FunctionTree function, Optimizer optimizer) {
+    /// The values of the expressions translated so far whose parent wasn't translated yet.
+    private final Deque<Node> values = new ArrayDeque<>();
+    /// The only block is sealed from the start, so all phis are complete when their ranges are queried.
+    private final ValueRangeAnalysis ranges = new ValueRangeAnalysis();
+
+    /// @param function the index of the [TreeKind#FUNCTION] node to translate
+    public SsaTranslation(FlatTree tree, int function, Optimizer optimizer) {
+        this.tree = tree;
         this.function = function;
-        this.constructor = new GraphConstructor(optimizer, function.name().name().asString());
+        this.constructor = new GraphConstructor(optimizer, tree.name(tree.child(function, 1)).asString());
     }
 
     public IrGraph translate() {
-        var visitor = new SsaTranslationVisitor();
-        this.function.accept(visitor, this);
-        return this.constructor.graph();
+        SsaTranslationEvent event = new SsaTranslationEvent();
+        event.begin();
+        // The debug info is confined to the current thread, which might be reused by other compilations
+        // (e.g. pool threads). Don't leak whatever we were at when translation failed halfway through.
+        DebugInfo outer = DebugInfoHelper.getDebugInfo();
+        try {
+            translateFunction();
+        } finally {
+            DebugInfoHelper.setDebugInfo(outer);
+        }
+        IrGraph graph = this.constructor.graph();
+        event.end();
+        if (event.shouldCommit()) {
+            event.function = graph.name();
+            event.nodeCount = BasicNodeOrder.buildBasicNodeOrder(graph).size();
+            event.commit();
+        }
+        return graph;
     }
 
     private void writeVariable(Name variable, Block block, Node value) {
@@ -64,170 +77,127 @@ public class SsaTranslation {
         return this.constructor.currentBlock();
     }
 
-    private static class SsaTranslationVisitor implements Visitor<SsaTranslation, Optional<Node>> {
-
-        @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-        private static final Optional<Node> NOT_AN_EXPRESSION = Optional.empty();
-
-        private final Deque<DebugInfo> debugStack = new ArrayDeque<>();
-
-        private void pushSpan(Tree tree) {
-            this.debugStack.push(DebugInfoHelper.getDebugInfo());
-            DebugInfoHelper.setDebugInfo(new DebugInfo.SourceInfo(tree.span()));
-        }
-
-        private void popSpan() {
-            DebugInfoHelper.setDebugInfo(this.debugStack.pop());
-        }
+    /// Makes the nodes created from now on refer to the span of the given node.
+    private void setSpan(int node) {
+        DebugInfoHelper.setDebugInfo(new DebugInfo.SourceInfo(this.tree.span(node)));
+    }
 
-        @Override
-        public Optional<Node> visit(AssignmentTree assignmentTree, SsaTranslation data) {
-            pushSpan(assignmentTree);
-            BinaryOperator<Node> desugar = switch (assignmentTree.operator().type()) {
-                case ASSIGN_MINUS -> data.constructor::newSub;
-                case ASSIGN_PLUS -> data.constructor::newAdd;
-                case ASSIGN_MUL -> data.constructor::newMul;
-                case ASSIGN_DIV -> (lhs, rhs) -> projResultDivMod(data,
-                        data.constructor.newDiv(lhs, rhs));
-                case ASSIGN_MOD -> (lhs, rhs) -> projResultDivMod(data,
-                        data.constructor.newMod(lhs, rhs));
-                case ASSIGN -> null;
-                default -> throw new IllegalArgumentException(
-                        "not an assignment operator " + assignmentTree.operator());
-            };
+    private void translateFunction() {
+        setSpan(this.function);
+        Node start = this.constructor.newStart();
+        this.constructor.writeCurrentSideEffect(this.constructor.newSideEffectProj(start));
+        translateBlock(this.tree.child(this.function, 2));
+    }
 
-            switch (assignmentTree.lValue()) {
-                case LValueIdentTree(var name) -> {
-                    Node rhs = assignmentTree.expression().accept(this, data).orElseThrow();
-                    if (desugar != null) {
-                        rhs = desugar.apply(data.readVariable(name.name(), data.currentBlock()),
-                                rhs);
-                    }
-                    data.writeVariable(name.name(), data.currentBlock(), rhs);
-                }
+    private void translateBlock(int block) {
+        for (int statement = this.tree.firstChild(block); statement != FlatTree.NONE;
+                statement = this.tree.nextSibling(statement)) {
+            if (this.tree.kind(statement) == TreeKind.BLOCK) {
+                translateBlock(statement);
+                continue;
+            }
+            for (int node = this.tree.subtreeStart(statement); node <= statement; node++) {
+                translate(node);
+            }
+            // skip everything after a return in a block
+            if (this.tree.kind(statement) == TreeKind.RETURN) {
+                break;
             }
-            popSpan();
-            return NOT_AN_EXPRESSION;
-        }
-
-        @Override
-        public Optional<Node> visit(BinaryOperationTree binaryOperationTree, SsaTranslation data) {
-            pushSpan(binaryOperationTree);
-            Node lhs = binaryOperationTree.lhs().accept(this, data).orElseThrow();
-            Node rhs = binaryOperationTree.rhs().accept(this, data).orElseThrow();
-            Node res = switch (binaryOperationTree.operatorType()) {
-                case MINUS -> data.constructor.newSub(lhs, rhs);
-                case PLUS -> data.constructor.newAdd(lhs, rhs);
-                case MUL -> data.constructor.newMul(lhs, rhs);
-                case DIV -> projResultDivMod(data, data.constructor.newDiv(lhs, rhs));
-                case MOD -> projResultDivMod(data, data.constructor.newMod(lhs, rhs));
-                default -> throw new IllegalArgumentException(
-                        "not a binary expression operator " + binaryOperationTree.operatorType());
-            };
-            popSpan();
-            return Optional.of(res);
         }
+    }
 
-        @Override
-        public Optional<Node> visit(BlockTree blockTree, SsaTranslation data) {
-            pushSpan(blockTree);
-            for (StatementTree statement : blockTree.statements()) {
-                statement.accept(this, data);
-                // skip everything after a return in a block
-                if (statement instanceof ReturnTree) {
-                    break;
+    /// Translates a node of a statement, after all of its children.
+    private void translate(int node) {
+        switch (this.tree.kind(node)) {
+            case ASSIGNMENT -> translateAssignment(node);
+            case BINARY_OPERATION -> {
+                setSpan(node);
+                Node rhs = this.values.pop();
+                Node lhs = this.values.pop();
+                Node res = switch (this.tree.operatorType(node)) {
+                    case MINUS -> this.constructor.newSub(lhs, rhs);
+                    case PLUS -> this.constructor.newAdd(lhs, rhs);
+                    case MUL -> this.constructor.newMul(lhs, rhs);
+                    case DIV -> projResultDivMod(this.constructor.newDiv(lhs, rhs));
+                    case MOD -> projResultDivMod(this.constructor.newMod(lhs, rhs));
+                    default -> throw new IllegalArgumentException(
+                            "not a binary expression operator " + this.tree.operatorType(node));
+                };
+                this.values.push(res);
+            }
+            case DECLARATION -> {
+                int name = this.tree.child(node, 1);
+                if (this.tree.nextSibling(name) != FlatTree.NONE) {
+                    setSpan(node);
+                    writeVariable(this.tree.name(name), currentBlock(), this.values.pop());
                 }
             }
-            popSpan();
-            return NOT_AN_EXPRESSION;
-        }
-
-        @Override
-        public Optional<Node> visit(DeclarationTree declarationTree, SsaTranslation data) {
-            pushSpan(declarationTree);
-            if (declarationTree.initializer() != null) {
-                Node rhs = declarationTree.initializer().accept(this, data).orElseThrow();
-                data.writeVariable(declarationTree.name().name(), data.currentBlock(), rhs);
+            case IDENT_EXPRESSION -> {
+                setSpan(node);
+                this.values.push(readVariable(this.tree.name(this.tree.firstChild(node)), currentBlock()));
             }
-            popSpan();
-            return NOT_AN_EXPRESSION;
-        }
-
-        @Override
-        public Optional<Node> visit(FunctionTree functionTree, SsaTranslation data) {
-            pushSpan(functionTree);
-            Node start = data.constructor.newStart();
-            data.constructor.writeCurrentSideEffect(data.constructor.newSideEffectProj(start));
-            functionTree.body().accept(this, data);
-            popSpan();
-            return NOT_AN_EXPRESSION;
-        }
-
-        @Override
-        public Optional<Node> visit(IdentExpressionTree identExpressionTree, SsaTranslation data) {
-            pushSpan(identExpressionTree);
-            Node value = data.readVariable(identExpressionTree.name().name(), data.currentBlock());
-            popSpan();
-            return Optional.of(value);
-        }
-
-        @Override
-        public Optional<Node> visit(LiteralTree literalTree, SsaTranslation data) {
-            pushSpan(literalTree);
-            Node node = data.constructor.newConstInt((int) literalTree.parseValue().orElseThrow());
-            popSpan();
-            return Optional.of(node);
-        }
-
-        @Override
-        public Optional<Node> visit(LValueIdentTree lValueIdentTree, SsaTranslation data) {
-            return NOT_AN_EXPRESSION;
-        }
-
-        @Override
-        public Optional<Node> visit(NameTree nameTree, SsaTranslation data) {
-            return NOT_AN_EXPRESSION;
-        }
-
-        @Override
-        public Optional<Node> visit(NegateTree negateTree, SsaTranslation data) {
-            pushSpan(negateTree);
-            Node node = negateTree.expression().accept(this, data).orElseThrow();
-            Node res = data.constructor.newSub(data.constructor.newConstInt(0), node);
-            popSpan();
-            return Optional.of(res);
-        }
-
-        @Override
-        public Optional<Node> visit(ProgramTree programTree, SsaTranslation data) {
-            throw new UnsupportedOperationException();
+            case LITERAL -> {
+                setSpan(node);
+                this.values.push(this.constructor.newConstInt((int) this.tree.parseLiteral(node).orElseThrow()));
+            }
+            case NEGATE -> {
+                setSpan(node);
+                Node operand = this.values.pop();
+                this.values.push(this.constructor.newSub(this.constructor.newConstInt(0), operand));
+            }
+            case RETURN -> {
+                setSpan(node);
+                Node ret = this.constructor.newReturn(this.values.pop());
+                this.constructor.graph().endBlock().addPredecessor(ret);
+            }
+            case LVALUE_IDENT, NAME, OPERATOR, TYPE -> {
+                // part of their parent
+            }
+            case BLOCK, FUNCTION, PROGRAM -> throw new UnsupportedOperationException(
+                    "unexpected " + this.tree.kind(node) + " in a statement");
         }
+    }
 
-        @Override
-        public Optional<Node> visit(ReturnTree returnTree, SsaTranslation data) {
-            pushSpan(returnTree);
-            Node node = returnTree.expression().accept(this, data).orElseThrow();
-            Node ret = data.constructor.newReturn(node);
-            data.constructor.graph().endBlock().addPredecessor(ret);
-            popSpan();
-            return NOT_AN_EXPRESSION;
+    private void translateAssignment(int assignment) {
+        setSpan(assignment);
+        int lValue = this.tree.firstChild(assignment);
+        int operator = this.tree.nextSibling(lValue);
+        BinaryOperator<Node> desugar = switch (this.tree.operatorType(operator)) {
+            case ASSIGN_MINUS -> this.constructor::newSub;
+            case ASSIGN_PLUS -> this.constructor::newAdd;
+            case ASSIGN_MUL -> this.constructor::newMul;
+            case ASSIGN_DIV -> (lhs, rhs) -> projResultDivMod(this.constructor.newDiv(lhs, rhs));
+            case ASSIGN_MOD -> (lhs, rhs) -> projResultDivMod(this.constructor.newMod(lhs, rhs));
+            case ASSIGN -> null;
+            default -> throw new IllegalArgumentException(
+                    "not an assignment operator " + this.tree.operatorType(operator));
+        };
+
+        switch (this.tree.kind(lValue)) {
+            case LVALUE_IDENT -> {
+                Name name = this.tree.name(this.tree.firstChild(lValue));
+                Node rhs = this.values.pop();
+                if (desugar != null) {
+                    rhs = desugar.apply(readVariable(name, currentBlock()), rhs);
+                }
+                writeVariable(name, currentBlock(), rhs);
+            }
+            default -> throw new IllegalArgumentException("not an lvalue " + this.tree.kind(lValue));
         }
+    }
 
-        @Override
-        public Optional<Node> visit(TypeTree typeTree, SsaTranslation data) {
-            throw new UnsupportedOperationException();
+    private Node projResultDivMod(Node divMod) {
+        // make sure we actually have a div or a mod, as optimizations could
+        // have changed it to something else already
+        if (!(divMod instanceof DivNode || divMod instanceof ModNode)) {
+            return divMod;
         }
-
-        private Node projResultDivMod(SsaTranslation data, Node divMod) {
-            // make sure we actually have a div or a mod, as optimizations could
-            // have changed it to something else already
-            if (!(divMod instanceof DivNode || divMod instanceof ModNode)) {
-                return divMod;
-            }
-            // Keep the side-effect chain alive or something?
-            Node projSideEffect = data.constructor.newSideEffectProj(divMod);
-            data.constructor.writeCurrentSideEffect(projSideEffect);
-            return data.constructor.newResultProj(divMod);
+        // A division that may trap is a side effect and must stay in the side-effect chain, so it is
+        // neither reordered nor dropped. One that can't is a plain value, and goes away if unused.
+        if (this.ranges.canTrap((BinaryOperationNode) divMod)) {
+            Node projSideEffect = this.constructor.newSideEffectProj(divMod);
+            this.constructor.writeCurrentSideEffect(projSideEffect);
         }
+        return this.constructor.newResultProj(divMod);
     }
 }
@@ -0,0 +1,175 @@
+package edu.kit.kastel.vads.compiler.ir.analysis;
+
+/// What is known about the 32-bit values a node can produce: they lie in the signed interval
+/// `[min, max]`, and the bits set in `knownZeros`/`knownOnes` are zero/one in all of them.
+///
+/// The operations follow the two's complement semantics of the generated code, so an operation
+/// that might overflow gives [#FULL]. Division and modulo describe the results of the executions
+/// that don't trap.
+public record ValueRange(int min, int max, int knownZeros, int knownOnes) {
+    public static final ValueRange FULL = new ValueRange(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+
+    public ValueRange {
+        if (min > max || (knownZeros & knownOnes) != 0) {
+            throw new IllegalArgumentException("empty range [" + min + ", " + max + "]");
+        }
+    }
+
+    public static ValueRange constant(int value) {
+        return new ValueRange(value, value, ~value, value);
+    }
+
+    /// {@return the range of the values between the bounds}, with the bits that all of them share
+    public static ValueRange interval(long min, long max) {
+        if (min < Integer.MIN_VALUE || max > Integer.MAX_VALUE) {
+            return FULL;
+        }
+        int lo = (int) min;
+        int hi = (int) max;
+        if ((lo ^ hi) < 0) {
+            // values of both signs share no bits
+            return new ValueRange(lo, hi, 0, 0);
+        }
+        // the bits above the highest one the bounds differ in are the same for all values in between
+        int common = ~(-1 >>> Integer.numberOfLeadingZeros(lo ^ hi));
+        if (lo == hi) {
+            common = -1;
+        }
+        return new ValueRange(lo, hi, ~lo & common, lo & common);
+    }
+
+    public boolean isConstant() {
+        return this.min == this.max;
+    }
+
+    public boolean contains(int value) {
+        return this.min <= value && value <= this.max
+                && (value & this.knownZeros) == 0 && (value & this.knownOnes) == this.knownOnes;
+    }
+
+    public boolean isNonNegative() {
+        return this.min >= 0;
+    }
+
+    /// {@return whether the value is a power of two, if it is constant}
+    public boolean isPowerOfTwo() {
+        return isConstant() && this.min > 0 && Integer.bitCount(this.min) == 1;
+    }
+
+    /// {@return the range of the values in both ranges}, or [#FULL] if there are none
+    public ValueRange meet(ValueRange other) {
+        int knownZeros = this.knownZeros | other.knownZeros;
+        int knownOnes = this.knownOnes | other.knownOnes;
+        int min = Math.max(this.min, other.min);
+        int max = Math.min(this.max, other.max);
+        if (min > max || (knownZeros & knownOnes) != 0) {
+            // only for unreachable values, nothing is known about them
+            return FULL;
+        }
+        if (min >= 0) {
+            // the known bits bound non-negative values as well
+            min = Math.max(min, knownOnes & Integer.MAX_VALUE);
+            max = Math.min(max, ~knownZeros & Integer.MAX_VALUE);
+        } else if (max < 0) {
+            min = Math.max(min, knownOnes | Integer.MIN_VALUE);
+            max = Math.min(max, ~knownZeros | Integer.MIN_VALUE);
+        }
+        if (min > max) {
+            return FULL;
+        }
+        return new ValueRange(min, max, knownZeros, knownOnes);
+    }
+
+    /// {@return the range of the values in either range}
+    public ValueRange join(ValueRange other) {
+        return interval(Math.min(this.min, other.min), Math.max(this.max, other.max))
+                .meet(new ValueRange(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                        this.knownZeros & other.knownZeros, this.knownOnes & other.knownOnes));
+    }
+
+    public ValueRange add(ValueRange other) {
+        return interval((long) this.min + other.min, (long) this.max + other.max)
+                .meet(addBits(this.knownZeros, this.knownOnes, other.knownZeros, other.knownOnes, false));
+    }
+
+    public ValueRange sub(ValueRange other) {
+        // a - b = a + ~b + 1, and the bits of ~b are the flipped ones of b
+        return interval((long) this.min - other.max, (long) this.max - other.min)
+                .meet(addBits(this.knownZeros, this.knownOnes, other.knownOnes, other.knownZeros, true));
+    }
+
+    public ValueRange mul(ValueRange other) {
+        long a = (long) this.min * other.min;
+        long b = (long) this.min * other.max;
+        long c = (long) this.max * other.min;
+        long d = (long) this.max * other.max;
+        ValueRange range = interval(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+        // the trailing zeros add up, even if the product overflows
+        int trailingZeros = Math.min(32, trailingZeros() + other.trailingZeros());
+        int zeros = trailingZeros == 32 ? -1 : (1 << trailingZeros) - 1;
+        return range.meet(new ValueRange(Integer.MIN_VALUE, Integer.MAX_VALUE, zeros, 0));
+    }
+
+    public ValueRange div(ValueRange divisor) {
+        // truncating division is monotone in both operands for divisors of a single sign,
+        // so the quotients of the bounds bound all others
+        ValueRange result = null;
+        if (divisor.min < 0) {
+            result = divBounds(divisor.min, Math.min(divisor.max, -1));
+        }
+        if (divisor.max > 0) {
+            ValueRange positive = divBounds(Math.max(divisor.min, 1), divisor.max);
+            result = result == null ? positive : result.join(positive);
+        }
+        // a zero divisor always traps
+        return result == null ? FULL : result;
+    }
+
+    private ValueRange divBounds(int divisorMin, int divisorMax) {
+        long a = (long) this.min / divisorMin;
+        long b = (long) this.min / divisorMax;
+        long c = (long) this.max / divisorMin;
+        long d = (long) this.max / divisorMax;
+        // MIN_VALUE / -1 traps, so its quotient out of range doesn't have to be covered
+        return interval(Math.max(Integer.MIN_VALUE, Math.min(Math.min(a, b), Math.min(c, d))),
+                Math.min(Integer.MAX_VALUE, Math.max(Math.max(a, b), Math.max(c, d))));
+    }
+
+    public ValueRange mod(ValueRange divisor) {
+        if (isConstant() && divisor.isConstant() && divisor.isSafeDivisorOf(this)) {
+            return constant(this.min % divisor.min);
+        }
+        // the remainder has the sign of the dividend and is smaller than the divisor in magnitude
+        long bound = Math.max(Math.abs((long) divisor.min), Math.abs((long) divisor.max)) - 1;
+        if (bound < 0) {
+            // a zero divisor always traps
+            return FULL;
+        }
+        long min = this.min >= 0 ? 0 : Math.max(this.min, -bound);
+        long max = this.max <= 0 ? 0 : Math.min(this.max, bound);
+        return interval(min, max);
+    }
+
+    /// {@return whether dividing by a value in this range can't trap}, i.e. it's not zero and, unless
+    /// the dividend can't be [Integer#MIN_VALUE], not `-1` either
+    public boolean isSafeDivisorOf(ValueRange dividend) {
+        return !contains(0) && (!contains(-1) || !dividend.contains(Integer.MIN_VALUE));
+    }
+
+    private int trailingZeros() {
+        return Integer.numberOfTrailingZeros(~this.knownZeros);
+    }
+
+    /// The known bits of `a + b + carry`, a bit is known where the bits of both operands and the
+    /// incoming carry are.
+    private static ValueRange addBits(int aZeros, int aOnes, int bZeros, int bOnes, boolean carry) {
+        int carryIn = carry ? 1 : 0;
+        // the sums of the largest and the smallest possible operands
+        int possibleSumZero = ~aZeros + ~bZeros + carryIn;
+        int possibleSumOne = aOnes + bOnes + carryIn;
+        int carryKnownZero = ~(possibleSumZero ^ aZeros ^ bZeros);
+        int carryKnownOne = possibleSumOne ^ aOnes ^ bOnes;
+        int known = (aZeros | aOnes) & (bZeros | bOnes) & (carryKnownZero | carryKnownOne);
+        return new ValueRange(Integer.MIN_VALUE, Integer.MAX_VALUE, ~possibleSumZero & known, possibleSumOne & known);
+    }
+}
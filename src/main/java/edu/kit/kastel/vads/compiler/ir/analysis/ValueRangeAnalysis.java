@@ -0,0 +1,122 @@
+package edu.kit.kastel.vads.compiler.ir.analysis;
+
+import edu.kit.kastel.vads.compiler.ir.node.AddNode;
+import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
+import edu.kit.kastel.vads.compiler.ir.node.ConstIntNode;
+import edu.kit.kastel.vads.compiler.ir.node.DivNode;
+import edu.kit.kastel.vads.compiler.ir.node.ModNode;
+import edu.kit.kastel.vads.compiler.ir.node.MulNode;
+import edu.kit.kastel.vads.compiler.ir.node.Node;
+import edu.kit.kastel.vads.compiler.ir.node.Phi;
+import edu.kit.kastel.vads.compiler.ir.node.ProjNode;
+import edu.kit.kastel.vads.compiler.ir.node.SubNode;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/// Computes the [ValueRange] of the values of the nodes of an [edu.kit.kastel.vads.compiler.ir.IrGraph]
+/// on demand, from the ranges of the nodes they depend on.
+///
+/// The ranges are cached, so the graph must not change below a node once its range was queried. Phis
+/// must have all of their operands by then. A phi depending on itself through a loop is assumed to
+/// take any value on the way around.
+///
+/// Instances are not thread-safe, every function needs its own one.
+public class ValueRangeAnalysis {
+    private final Map<Node, ValueRange> ranges = new IdentityHashMap<>();
+
+    public ValueRange range(Node node) {
+        ValueRange known = this.ranges.get(node);
+        if (known != null) {
+            return known;
+        }
+        // a depth-first search, the stack holds the path to the current node
+        Deque<Node> path = new ArrayDeque<>();
+        Set<Node> onPath = Collections.newSetFromMap(new IdentityHashMap<>());
+        path.push(node);
+        onPath.add(node);
+        while (!path.isEmpty()) {
+            Node current = path.peek();
+            Node missing = missingInput(current, onPath);
+            if (missing != null) {
+                path.push(missing);
+                onPath.add(missing);
+                continue;
+            }
+            path.pop();
+            onPath.remove(current);
+            this.ranges.put(current, compute(current));
+        }
+        return this.ranges.get(node);
+    }
+
+    /// {@return whether the division or modulo may trap}, because its divisor may be zero or the
+    /// quotient may overflow
+    public boolean canTrap(BinaryOperationNode divOrMod) {
+        assert divOrMod instanceof DivNode || divOrMod instanceof ModNode : "not a division " + divOrMod;
+        ValueRange dividend = range(divOrMod.predecessor(BinaryOperationNode.LEFT));
+        return !range(divOrMod.predecessor(BinaryOperationNode.RIGHT)).isSafeDivisorOf(dividend);
+    }
+
+    /// {@return an input of the node without a range yet, if it isn't on the path to it already}
+    private @Nullable Node missingInput(Node node, Set<Node> onPath) {
+        for (Node input : inputs(node)) {
+            if (!this.ranges.containsKey(input) && !onPath.contains(input)) {
+                return input;
+            }
+        }
+        return null;
+    }
+
+    private static List<? extends Node> inputs(Node node) {
+        return switch (node) {
+            case BinaryOperationNode binary -> List.of(
+                    binary.predecessor(BinaryOperationNode.LEFT), binary.predecessor(BinaryOperationNode.RIGHT));
+            case Phi phi -> phi.predecessors();
+            case ProjNode proj when proj.projectionInfo() == ProjNode.SimpleProjectionInfo.RESULT ->
+                    List.of(proj.predecessor(ProjNode.IN));
+            default -> List.of();
+        };
+    }
+
+    private ValueRange compute(Node node) {
+        return switch (node) {
+            case ConstIntNode constant -> ValueRange.constant(constant.value());
+            case AddNode add -> left(add).add(right(add));
+            case SubNode sub -> left(sub).sub(right(sub));
+            case MulNode mul -> left(mul).mul(right(mul));
+            case DivNode div -> left(div).div(right(div));
+            case ModNode mod -> left(mod).mod(right(mod));
+            case Phi phi -> {
+                ValueRange range = null;
+                for (int i = 0; i < phi.predecessorCount(); i++) {
+                    ValueRange operand = computed(phi.predecessor(i));
+                    range = range == null ? operand : range.join(operand);
+                }
+                yield range == null ? ValueRange.FULL : range;
+            }
+            case ProjNode proj when proj.projectionInfo() == ProjNode.SimpleProjectionInfo.RESULT ->
+                    computed(proj.predecessor(ProjNode.IN));
+            default -> ValueRange.FULL;
+        };
+    }
+
+    private ValueRange left(BinaryOperationNode node) {
+        return computed(node.predecessor(BinaryOperationNode.LEFT));
+    }
+
+    private ValueRange right(BinaryOperationNode node) {
+        return computed(node.predecessor(BinaryOperationNode.RIGHT));
+    }
+
+    /// {@return the range of an input}, which is only missing for phis on the path to it
+    private ValueRange computed(Node input) {
+        return this.ranges.getOrDefault(input, ValueRange.FULL);
+    }
+}
@@ -1,35 +1,56 @@
 package edu.kit.kastel.vads.compiler.ir.node;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.Span;
 import edu.kit.kastel.vads.compiler.ir.util.DebugInfo;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.util.DebugInfoHelper;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /// The base class for all nodes.
 public sealed abstract class Node
         permits BinaryOperationNode, Block, ConstIntNode, Phi, ProjNode, ReturnNode, StartNode {
+    private static final long NO_SPAN = -1;
+    private static final Node[] NO_NODES = new Node[0];
+
     private final IrGraph graph;
     private final Block block;
-    private final List<Node> predecessors = new ArrayList<>();
-    private final DebugInfo debugInfo;
+    /// The inputs of this node, only the first [#predecessorCount] entries are used.
+    private Node[] predecessors;
+    private int predecessorCount;
+    /// The nodes that have this one as an input, once for every input they use it for, in the order
+    /// the inputs were set. Only the first [#successorCount] entries are used.
+    private Node[] successors = NO_NODES;
+    private int successorCount;
+    /// The [Span#pack packed] offsets of the source span this node was created for, or [#NO_SPAN].
+    /// Nodes keep only the offsets, the span is rebuilt from them when debug info is printed.
+    private final long span;
 
     protected Node(Block block, Node... predecessors) {
         this.graph = block.graph();
         this.block = block;
-        this.predecessors.addAll(List.of(predecessors));
+        // the varargs array is created for this call, so it can be kept as is
+        this.predecessors = predecessors;
+        this.predecessorCount = predecessors.length;
         for (Node predecessor : predecessors) {
-            graph.registerSuccessor(predecessor, this);
+            predecessor.addSuccessor(this);
         }
-        this.debugInfo = DebugInfoHelper.getDebugInfo();
+        this.span = DebugInfoHelper.getDebugInfo() instanceof DebugInfo.SourceInfo(Span.PackedSpan packed)
+                ? packed.offsets()
+                : NO_SPAN;
     }
 
     protected Node(IrGraph graph) {
         assert this.getClass() == Block.class : "must be used by Block only";
         this.graph = graph;
         this.block = (Block) this;
-        this.debugInfo = DebugInfo.NoInfo.INSTANCE;
+        this.predecessors = NO_NODES;
+        this.span = NO_SPAN;
     }
 
     public final IrGraph graph() {
@@ -40,23 +61,90 @@ public sealed abstract class Node
         return this.block;
     }
 
+    /// {@return an unmodifiable view of the inputs}, which reflects later changes. Traversals
+    /// should prefer [#predecessorCount()] and [#predecessor(int)].
     public final List<? extends Node> predecessors() {
-        return List.copyOf(this.predecessors);
+        return new EdgeView(this, false);
+    }
+
+    public final int predecessorCount() {
+        return this.predecessorCount;
     }
 
     public final void setPredecessor(int idx, Node node) {
-        this.graph.removeSuccessor(this.predecessors.get(idx), this);
-        this.predecessors.set(idx, node);
-        this.graph.registerSuccessor(node, this);
+        Objects.checkIndex(idx, this.predecessorCount);
+        this.predecessors[idx].removeSuccessor(this);
+        this.predecessors[idx] = node;
+        node.addSuccessor(this);
     }
 
     public final void addPredecessor(Node node) {
-        this.predecessors.add(node);
-        this.graph.registerSuccessor(node, this);
+        if (this.predecessorCount == this.predecessors.length) {
+            this.predecessors = Arrays.copyOf(this.predecessors, Math.max(2, this.predecessorCount * 2));
+        }
+        this.predecessors[this.predecessorCount++] = node;
+        node.addSuccessor(this);
     }
 
     public final Node predecessor(int idx) {
-        return this.predecessors.get(idx);
+        Objects.checkIndex(idx, this.predecessorCount);
+        return this.predecessors[idx];
+    }
+
+    /// {@return the number of inputs of other nodes that are this node}
+    public final int successorCount() {
+        return this.successorCount;
+    }
+
+    /// {@return a node that has this one as an input}, nodes using it for multiple inputs are
+    /// returned for each of them
+    public final Node successor(int idx) {
+        Objects.checkIndex(idx, this.successorCount);
+        return this.successors[idx];
+    }
+
+    /// {@return an unmodifiable view of the [successors][#successor(int)]}, which reflects later changes
+    public final List<Node> successors() {
+        return new EdgeView(this, true);
+    }
+
+    /// Makes all nodes that have this one as an input use the replacement instead.
+    public final void replaceAllUsesWith(Node replacement) {
+        if (replacement == this) {
+            return;
+        }
+        while (this.successorCount > 0) {
+            // setPredecessor removes the last use, nothing has to be shifted
+            Node successor = this.successors[this.successorCount - 1];
+            successor.setPredecessor(successor.lastIndexOfPredecessor(this), replacement);
+        }
+    }
+
+    private int lastIndexOfPredecessor(Node predecessor) {
+        int idx = this.predecessorCount - 1;
+        while (this.predecessors[idx] != predecessor) {
+            idx--;
+        }
+        return idx;
+    }
+
+    private void addSuccessor(Node successor) {
+        if (this.successorCount == this.successors.length) {
+            this.successors = Arrays.copyOf(this.successors, Math.max(4, this.successorCount * 2));
+        }
+        this.successors[this.successorCount++] = successor;
+    }
+
+    /// Removes the latest use by the successor.
+    private void removeSuccessor(Node successor) {
+        for (int i = this.successorCount - 1; i >= 0; i--) {
+            if (this.successors[i] == successor) {
+                System.arraycopy(this.successors, i + 1, this.successors, i, this.successorCount - i - 1);
+                this.successors[--this.successorCount] = null;
+                return;
+            }
+        }
+        throw new IllegalStateException(successor + " doesn't use " + this);
     }
 
     @Override
@@ -68,17 +156,42 @@ public sealed abstract class Node
         return "";
     }
 
-    public DebugInfo debugInfo() {
-        return debugInfo;
+    /// @param source the source this node was translated from
+    public DebugInfo debugInfo(SourceFile source) {
+        if (this.span == NO_SPAN) {
+            return DebugInfo.NoInfo.INSTANCE;
+        }
+        return new DebugInfo.SourceInfo(new Span.PackedSpan(this.span, source.lineIndex()));
     }
 
-    public String sourceSpan(String source) {
-        return switch (debugInfo) {
+    public String sourceSpan(SourceFile source) {
+        return switch (debugInfo(source)) {
             case DebugInfo.NoInfo _ -> "";
             case DebugInfo.SourceInfo info -> info.span().fromSource(source);
         };
     }
 
+    /// The predecessors or successors of a node, without copying them.
+    private static final class EdgeView extends AbstractList<Node> implements RandomAccess {
+        private final Node node;
+        private final boolean successors;
+
+        EdgeView(Node node, boolean successors) {
+            this.node = node;
+            this.successors = successors;
+        }
+
+        @Override
+        public Node get(int index) {
+            return this.successors ? this.node.successor(index) : this.node.predecessor(index);
+        }
+
+        @Override
+        public int size() {
+            return this.successors ? this.node.successorCount : this.node.predecessorCount;
+        }
+    }
+
     protected static int predecessorHash(Node node, int predecessor) {
         return System.identityHashCode(node.predecessor(predecessor));
     }
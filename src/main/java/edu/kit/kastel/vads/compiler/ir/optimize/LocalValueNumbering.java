@@ -10,6 +10,9 @@ import java.util.Map;
 /// is extremely simple.
 /// When using classes like [HashMap] or [java.util.HashSet] without this optimization,
 /// the [Node#equals(java.lang.Object)] and  [Node#hashCode()] methods must be adjusted.
+///
+/// Instances are not thread-safe. As functions may be translated in parallel, every function
+/// must get its own instance.
 public class LocalValueNumbering implements Optimizer {
     private final Map<Node, Node> knownNodes = new HashMap<>();
 
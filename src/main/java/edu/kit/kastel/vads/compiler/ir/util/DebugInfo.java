@@ -2,7 +2,10 @@ package edu.kit.kastel.vads.compiler.ir.util;
 
 import edu.kit.kastel.vads.compiler.Span;
 
-/// Provides information to ease debugging
+/// Provides information to ease debugging.
+///
+/// While translating, the current info is set through [DebugInfoHelper]. Nodes only keep the packed
+/// offsets of a [SourceInfo]'s span, so they need the source to hand it out again.
 public sealed interface DebugInfo {
     enum NoInfo implements DebugInfo {
         INSTANCE
@@ -3,14 +3,17 @@ package edu.kit.kastel.vads.compiler.ir.util;
 /// This is a dirty trick as we don't have Scoped Values.
 /// It allows tracking debug info without having to pass it
 /// down all the layers.
+///
+/// The state is thread-confined, so concurrent compilations (e.g. in the compile server)
+/// don't see each other's debug info.
 public final class DebugInfoHelper {
-    private static DebugInfo debugInfo = DebugInfo.NoInfo.INSTANCE;
+    private static final ThreadLocal<DebugInfo> debugInfo = ThreadLocal.withInitial(() -> DebugInfo.NoInfo.INSTANCE);
 
     public static void setDebugInfo(DebugInfo debugInfo) {
-        DebugInfoHelper.debugInfo = debugInfo;
+        DebugInfoHelper.debugInfo.set(debugInfo);
     }
 
     public static DebugInfo getDebugInfo() {
-        return debugInfo;
+        return debugInfo.get();
     }
 }
@@ -1,11 +1,15 @@
 package edu.kit.kastel.vads.compiler.ir.util;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.Span;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 
+import org.jspecify.annotations.Nullable;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,36 +25,61 @@ public class GraphVizPrinter {
     private final Map<Node, Integer> ids = new HashMap<>();
     private final StringBuilder builder = new StringBuilder();
     private final IrGraph graph;
+    private final @Nullable SourceFile source;
     private int counter = 0;
 
     public GraphVizPrinter(IrGraph graph) {
+        this(graph, null);
+    }
+
+    /// @param source if given, tooltips also show the source code of each node
+    public GraphVizPrinter(IrGraph graph, @Nullable SourceFile source) {
         this.graph = graph;
+        this.source = source;
     }
 
     public static String print(IrGraph graph) {
-        GraphVizPrinter printer = new GraphVizPrinter(graph);
-        printer.prepare(graph.endBlock(), new HashSet<>());
+        return print(graph, null);
+    }
+
+    public static String print(IrGraph graph, @Nullable SourceFile source) {
+        GraphVizPrinter printer = new GraphVizPrinter(graph, source);
+        printer.prepare();
         printer.print();
         return printer.builder.toString();
     }
 
-    private void prepare(Node node, Set<Node> seen) {
-        if (!seen.add(node)) {
-            return;
-        }
-
-        if (!(node instanceof Block)) {
-            this.clusters.computeIfAbsent(node.block(), _ -> Collections.newSetFromMap(new IdentityHashMap<>()))
-                .add(node);
-        }
-        int idx = 0;
-        for (Node predecessor : node.predecessors()) {
-            this.edges.add(new Edge(predecessor, node, idx++));
-            prepare(predecessor, seen);
-        }
-        if (node == this.graph.endBlock()) {
-            this.clusters.put(this.graph.endBlock(), Set.of());
+    /// Collects the nodes and edges reachable from the end block in depth-first order. The path is kept
+    /// on an explicit stack, as graphs of deeply nested expressions are deep.
+    private void prepare() {
+        Set<Node> seen = new HashSet<>();
+        List<Node> path = new ArrayList<>();
+        int[] next = new int[16];
+        seen.add(this.graph.endBlock());
+        path.add(this.graph.endBlock());
+        while (!path.isEmpty()) {
+            int top = path.size() - 1;
+            Node node = path.get(top);
+            if (next[top] == node.predecessorCount()) {
+                path.removeLast();
+                continue;
+            }
+            int idx = next[top]++;
+            Node predecessor = node.predecessor(idx);
+            this.edges.add(new Edge(predecessor, node, idx));
+            if (seen.add(predecessor)) {
+                if (!(predecessor instanceof Block)) {
+                    this.clusters.computeIfAbsent(predecessor.block(),
+                            _ -> Collections.newSetFromMap(new IdentityHashMap<>())).add(predecessor);
+                }
+                if (path.size() == next.length) {
+                    next = Arrays.copyOf(next, next.length * 2);
+                }
+                next[path.size()] = 0;
+                path.add(predecessor);
+            }
         }
+        this.clusters.put(this.graph.endBlock(), Set.of());
     }
 
     private void print() {
@@ -84,10 +113,12 @@ public class GraphVizPrinter {
                     .append(" [label=\"")
                     .append(labelFor(node))
                     .append("\"");
-                if (node.debugInfo() instanceof DebugInfo.SourceInfo(Span span)) {
+                // nodes only know the offsets of their span, positions need the source
+                if (this.source != null && node.debugInfo(this.source) instanceof DebugInfo.SourceInfo(Span span)) {
                     this.builder.append(", tooltip=\"")
                         .append("source span: ")
                         .append(span)
+                        .append("\\n").append(node.sourceSpan(this.source).replace("\"", "\\\""))
                         .append("\"");
                 }
                 this.builder.append("];\n");
@@ -1,9 +1,7 @@
 package edu.kit.kastel.vads.compiler.ir.util;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
-import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 import edu.kit.kastel.vads.compiler.ir.node.ProjNode;
 
@@ -20,17 +18,18 @@ public final class NodeSupport {
         return pred;
     }
 
-    public static Set<Node> successorsSkipProj(IrGraph graph, Node node) {
-        return graph.successors(node).stream()
-                .map(successor -> switch (successor) {
-                    case ProjNode _ -> {
-                        yield graph.successors(successor);
-                    }
-                    default -> {
-                        yield Set.of(successor);
-                    }
-                })
-                .flatMap(Set::stream)
-                .collect(Collectors.toSet());
+    /// Calls the action for each successor of the node, or for the successors of the projections
+    /// among them. Successors using the node for multiple inputs are passed multiple times.
+    public static void forEachSuccessorSkipProj(Node node, Consumer<? super Node> action) {
+        for (int i = 0; i < node.successorCount(); i++) {
+            Node successor = node.successor(i);
+            if (successor instanceof ProjNode) {
+                for (int j = 0; j < successor.successorCount(); j++) {
+                    action.accept(successor.successor(j));
+                }
+            } else {
+                action.accept(successor);
+            }
+        }
     }
 }
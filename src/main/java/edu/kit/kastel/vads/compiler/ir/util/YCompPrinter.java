@@ -1,5 +1,6 @@
 package edu.kit.kastel.vads.compiler.ir.util;
 
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
@@ -11,8 +12,12 @@ import edu.kit.kastel.vads.compiler.ir.node.ProjNode.SimpleProjectionInfo;
 import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
 import edu.kit.kastel.vads.compiler.ir.node.StartNode;
 
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -29,36 +34,52 @@ public class YCompPrinter {
     private final Map<Block, Set<Node>> clusters = new HashMap<>();
     private final Map<Node, Integer> ids = new HashMap<>();
     private final IrGraph graph;
+    private final @Nullable SourceFile source;
     private int nodeCounter = 0;
     private int blockCounter = 0;
 
     public YCompPrinter(IrGraph graph) {
-        this.graph = graph;
+        this(graph, null);
     }
 
-    private void prepare(Node node, Set<Node> seen) {
-        if (!seen.add(node)) {
-            return;
-        }
+    /// @param source if given, the info text of each node shows its source code
+    public YCompPrinter(IrGraph graph, @Nullable SourceFile source) {
+        this.graph = graph;
+        this.source = source;
+    }
 
-        if (!(node instanceof Block)) {
-            this.clusters.computeIfAbsent(
-                    node.block(),
-                    _ -> Collections.newSetFromMap(new IdentityHashMap<>())
-                )
-                .add(node);
-        }
-        for (Node predecessor : node.predecessors()) {
-            prepare(predecessor, seen);
-        }
-        if (node == this.graph.endBlock()) {
-            this.clusters.put(this.graph.endBlock(), Set.of());
+    /// Sorts the nodes reachable from the end block into the clusters of their blocks, without recursion
+    /// as graphs of deeply nested expressions are deep.
+    private void prepare() {
+        Set<Node> seen = new HashSet<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        seen.add(this.graph.endBlock());
+        pending.push(this.graph.endBlock());
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (!(node instanceof Block)) {
+                this.clusters.computeIfAbsent(
+                        node.block(),
+                        _ -> Collections.newSetFromMap(new IdentityHashMap<>())
+                    )
+                    .add(node);
+            }
+            for (int i = 0; i < node.predecessorCount(); i++) {
+                if (seen.add(node.predecessor(i))) {
+                    pending.push(node.predecessor(i));
+                }
+            }
         }
+        this.clusters.put(this.graph.endBlock(), Set.of());
     }
 
     public static String print(IrGraph graph) {
-        YCompPrinter printer = new YCompPrinter(graph);
-        printer.prepare(graph.endBlock(), new HashSet<>());
+        return print(graph, null);
+    }
+
+    public static String print(IrGraph graph, @Nullable SourceFile source) {
+        YCompPrinter printer = new YCompPrinter(graph, source);
+        printer.prepare();
         return printer.dumpGraphAsString();
     }
 
@@ -130,6 +151,9 @@ public class YCompPrinter {
 
     private String formatNode(Node node) {
         String infoText = "I am an info text for " + node;
+        if (this.source != null && node.debugInfo(this.source) instanceof DebugInfo.SourceInfo(var span)) {
+            infoText = span + ": " + node.sourceSpan(this.source).replace("\"", "\\\"");
+        }
 
         String result = "node: {";
         result += "\n  title: " + '"' + nodeTitle(node) + '"' + "\n";
@@ -142,7 +166,7 @@ public class YCompPrinter {
     }
 
     private String formatInputEdges(Node node) {
-        var edges = IntStream.range(0, node.predecessors().size())
+        var edges = IntStream.range(0, node.predecessorCount())
             .mapToObj(
                 idx -> new Edge(
                     node.predecessor(idx), node, idx, edgeColor(node.predecessor(idx), node)
@@ -0,0 +1,466 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import edu.kit.kastel.vads.compiler.LineIndex;
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.lexer.Operator.OperatorType;
+import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/// A lexer for ASCII sources that works directly on the bytes and doesn't allocate per token.
+///
+/// Instead of returning [Token]s, the lexer is a cursor: [#next()] moves to the next token, whose kind,
+/// subtype and text range can then be queried. [#token()] materializes the current token exactly as
+/// [Lexer] would have produced it. Characters are classified with lookup tables. Runs of spaces and
+/// the bodies of comments are skipped eight bytes at a time, by comparing all bytes of a `long` at once
+/// (SWAR, SIMD within a register).
+///
+/// A lexer can also be restricted to a [#forChunk chunk] of the source that starts at a line start, see
+/// [ParallelLexer]. As tokens never span lines, the only state carried over from the previous chunk is
+/// the depth of the multiline comment the chunk starts in.
+public final class ByteLexer implements TokenCursor {
+    private static final int F_IDENTIFIER = 1;
+    private static final int F_DIGIT = 2;
+    private static final int F_HEX = 4;
+    private static final int F_SPACE = 8;
+    private static final int F_NEWLINE = 16;
+    private static final byte[] FLAGS = new byte[256];
+
+    private static final KeywordType[] KEYWORD_TYPES = KeywordType.values();
+    private static final OperatorType[] OPERATOR_TYPES = OperatorType.values();
+    private static final SeparatorType[] SEPARATOR_TYPES = SeparatorType.values();
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            FLAGS[c] |= F_IDENTIFIER;
+            FLAGS[c - 'a' + 'A'] |= F_IDENTIFIER;
+        }
+        FLAGS['_'] |= F_IDENTIFIER;
+        for (int c = '0'; c <= '9'; c++) {
+            FLAGS[c] |= F_IDENTIFIER | F_DIGIT | F_HEX;
+        }
+        for (int c = 'a'; c <= 'f'; c++) {
+            FLAGS[c] |= F_HEX;
+            FLAGS[c - 'a' + 'A'] |= F_HEX;
+        }
+        FLAGS[' '] |= F_SPACE;
+        FLAGS['\t'] |= F_SPACE;
+        FLAGS['\n'] |= F_NEWLINE;
+        FLAGS['\r'] |= F_NEWLINE;
+    }
+
+    /// The [#subtype()] of error tokens for unterminated comments, their span is empty and at the end of the input.
+    public static final int UNTERMINATED_COMMENT = 1;
+
+    private static final ValueLayout.OfLong WORD = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final long LOW_BITS = 0x7F7F_7F7F_7F7F_7F7FL;
+    private static final long HIGH_BITS = 0x8080_8080_8080_8080L;
+    private static final long SPACES = repeat(' ');
+    private static final long TABS = repeat('\t');
+    private static final long LINE_FEEDS = repeat('\n');
+    private static final long CARRIAGE_RETURNS = repeat('\r');
+    private static final long STARS = repeat('*');
+    private static final long SLASHES = repeat('/');
+
+    private static final int NO_COMMENT = 0;
+    private static final int SINGLE_LINE = 1;
+    private static final int MULTI_LINE = 2;
+
+    private final SourceFile source;
+    private final MemorySegment bytes;
+    private final int length;
+    private final LineIndex lineIndex;
+    /// Where this lexer stops, the length of the source unless lexing a chunk.
+    private final int limit;
+    /// Chunks are lexed concurrently and out of order, so they can't record line starts.
+    private final boolean recordLines;
+    private int pos;
+    /// The comment depth and the start of the innermost comment, at the start of the chunk before the
+    /// first token and at its end after the last one.
+    private int commentDepth;
+    private int commentStart = -1;
+
+    private TokenKind kind = TokenKind.ERROR;
+    private int subtype;
+    private int start;
+    private int end;
+
+    private ByteLexer(SourceFile source, int start, int limit, boolean recordLines) {
+        this.source = source;
+        this.bytes = source.segment();
+        this.length = source.length();
+        this.lineIndex = source.lineIndex();
+        this.pos = start;
+        this.limit = limit;
+        this.recordLines = recordLines;
+    }
+
+    /// @throws IllegalArgumentException if the source isn't pure ASCII, use [Lexer] for those
+    public static ByteLexer forSource(SourceFile source) {
+        checkAscii(source);
+        return new ByteLexer(source, 0, source.length(), true);
+    }
+
+    /// Creates a lexer starting at `offset`, which must be `0` or the end of a token of the source.
+    /// Like a lexer for a chunk, it doesn't record line starts, as it doesn't see the lines before `offset`.
+    ///
+    /// @throws IllegalArgumentException if the source isn't pure ASCII, use [Lexer] for those
+    public static ByteLexer resumeAt(SourceFile source, int offset) {
+        // no token ends within a comment, so the lexer is outside of comments there
+        return forChunk(source, offset, source.length(), 0, -1);
+    }
+
+    /// Creates a lexer for the characters from `start` up to `limit`, which must both be line starts or
+    /// the end of the source.
+    ///
+    /// @param commentDepth how deep the chunk starts in nested multiline comments, see [#commentDepth()]
+    /// @param commentStart where the innermost of these comments starts, see [#commentStart()]
+    /// @throws IllegalArgumentException if the source isn't pure ASCII, use [Lexer] for those
+    static ByteLexer forChunk(SourceFile source, int start, int limit, int commentDepth, int commentStart) {
+        checkAscii(source);
+        ByteLexer lexer = new ByteLexer(source, start, limit, false);
+        lexer.commentDepth = commentDepth;
+        lexer.commentStart = commentStart;
+        return lexer;
+    }
+
+    private static void checkAscii(SourceFile source) {
+        if (!source.isAscii()) {
+            throw new IllegalArgumentException("source is not ASCII");
+        }
+    }
+
+    @Override
+    public boolean next() {
+        if (skipWhitespace()) {
+            return true;
+        }
+        if (this.pos >= this.limit) {
+            if (this.recordLines) {
+                this.lineIndex.recordEnd();
+            }
+            return false;
+        }
+        switch (byteAt(this.pos)) {
+            case '(' -> separator(SeparatorType.PAREN_OPEN);
+            case ')' -> separator(SeparatorType.PAREN_CLOSE);
+            case '{' -> separator(SeparatorType.BRACE_OPEN);
+            case '}' -> separator(SeparatorType.BRACE_CLOSE);
+            case ';' -> separator(SeparatorType.SEMICOLON);
+            case '-' -> singleOrAssign(OperatorType.MINUS, OperatorType.ASSIGN_MINUS);
+            case '+' -> singleOrAssign(OperatorType.PLUS, OperatorType.ASSIGN_PLUS);
+            case '*' -> singleOrAssign(OperatorType.MUL, OperatorType.ASSIGN_MUL);
+            case '/' -> singleOrAssign(OperatorType.DIV, OperatorType.ASSIGN_DIV);
+            case '%' -> singleOrAssign(OperatorType.MOD, OperatorType.ASSIGN_MOD);
+            case '=' -> set(TokenKind.OPERATOR, OperatorType.ASSIGN.ordinal(), 1);
+            default -> {
+                int flags = flags(this.pos);
+                if ((flags & F_DIGIT) != 0) {
+                    lexNumber();
+                } else if ((flags & F_IDENTIFIER) != 0) {
+                    lexIdentifierOrKeyword();
+                } else {
+                    set(TokenKind.ERROR, 0, 1);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public SourceFile source() {
+        return this.source;
+    }
+
+    @Override
+    public TokenKind kind() {
+        return this.kind;
+    }
+
+    @Override
+    public int subtype() {
+        return this.subtype;
+    }
+
+    @Override
+    public int start() {
+        return this.start;
+    }
+
+    @Override
+    public int end() {
+        return this.end;
+    }
+
+    /// {@return the text of the current token, allocates a new string}
+    public String text() {
+        return this.source.substring(this.start, this.end);
+    }
+
+    @Override
+    public Token token() {
+        return token(this.source, this.kind, this.subtype, this.start, this.end);
+    }
+
+    /// {@return the depth of nested multiline comments at the end of the chunk}
+    /// Only meaningful once [#next()] returned `false`.
+    int commentDepth() {
+        return this.commentDepth;
+    }
+
+    /// {@return the start of the innermost multiline comment open at the end of the chunk}
+    /// Only meaningful once [#next()] returned `false` and if the [#commentDepth()] isn't zero.
+    int commentStart() {
+        return this.commentStart;
+    }
+
+    /// {@return the described token as [Lexer] would produce it}
+    static Token token(SourceFile source, TokenKind kind, int subtype, int start, int end) {
+        LineIndex lines = source.lineIndex();
+        Span span = kind == TokenKind.ERROR && subtype == UNTERMINATED_COMMENT
+                ? new Span.PackedSpan(end, end, lines)
+                : new Span.PackedSpan(start, end, lines);
+        return switch (kind) {
+            case ERROR -> new ErrorToken(source.substring(start, end), span);
+            case IDENTIFIER -> new Identifier(source.substring(start, end), span);
+            case KEYWORD -> new Keyword(KEYWORD_TYPES[subtype], span);
+            case NUMBER -> new NumberLiteral(source.substring(start, end), subtype, span);
+            case OPERATOR -> new Operator(OPERATOR_TYPES[subtype], span);
+            case SEPARATOR -> new Separator(SEPARATOR_TYPES[subtype], span);
+        };
+    }
+
+    /// Skips whitespaces, newlines and (possibly nested) comments exactly like [Lexer] does.
+    ///
+    /// @return `true` if an unterminated multiline comment was found and is the current token now
+    private boolean skipWhitespace() {
+        // only the first call of a chunk can start within a comment
+        int multiLineCommentDepth = this.commentDepth;
+        int commentType = multiLineCommentDepth > 0 ? MULTI_LINE : NO_COMMENT;
+        int commentStart = this.commentStart;
+        this.commentDepth = 0;
+        while (this.pos < this.limit) {
+            byte c = byteAt(this.pos);
+            int flags = FLAGS[c & 0xFF];
+            if ((flags & F_NEWLINE) != 0) {
+                this.pos++;
+                if (this.recordLines) {
+                    this.lineIndex.recordLineStart(this.pos);
+                }
+                if (commentType == SINGLE_LINE) {
+                    commentType = NO_COMMENT;
+                }
+                continue;
+            }
+            if (commentType == SINGLE_LINE) {
+                this.pos = skipToLineBreak(this.pos + 1);
+                continue;
+            }
+            if (commentType == MULTI_LINE && c != '/' && c != '*') {
+                // only slashes, stars and line breaks (to record line starts) matter within the comment
+                this.pos = skipCommentBody(this.pos + 1);
+                continue;
+            }
+            if ((flags & F_SPACE) != 0) {
+                this.pos = skipSpaces(this.pos + 1);
+                continue;
+            }
+            if (c == '/') {
+                if (this.pos + 1 < this.length) {
+                    byte next = byteAt(this.pos + 1);
+                    if (next == '/' && commentType == NO_COMMENT) {
+                        commentType = SINGLE_LINE;
+                    } else if (next == '*') {
+                        commentType = MULTI_LINE;
+                        multiLineCommentDepth++;
+                    } else if (commentType == MULTI_LINE) {
+                        this.pos++;
+                        continue;
+                    } else {
+                        return false;
+                    }
+                    commentStart = this.pos;
+                    this.pos += 2;
+                    continue;
+                }
+                // are we in a multi line comment of any depth?
+                if (multiLineCommentDepth > 0) {
+                    this.pos++;
+                    continue;
+                }
+                return false;
+            }
+            if (commentType == MULTI_LINE) {
+                // a star, possibly ending the comment
+                if (this.pos + 1 < this.length && byteAt(this.pos + 1) == '/') {
+                    this.pos += 2;
+                    multiLineCommentDepth--;
+                    commentType = multiLineCommentDepth == 0 ? NO_COMMENT : MULTI_LINE;
+                } else {
+                    this.pos++;
+                }
+                continue;
+            }
+            return false;
+        }
+        if (commentType == MULTI_LINE && this.limit < this.length) {
+            // the comment continues in the next chunk
+            this.commentDepth = multiLineCommentDepth;
+            this.commentStart = commentStart;
+            return false;
+        }
+        if (commentType == MULTI_LINE) {
+            // the text is the whole comment, but the span is empty and at the end of the input
+            set(TokenKind.ERROR, UNTERMINATED_COMMENT, 0);
+            this.start = commentStart;
+            this.end = this.length;
+            return true;
+        }
+        return false;
+    }
+
+    /// {@return the offset of the first character from `offset` on that isn't a space or tab}
+    private int skipSpaces(int offset) {
+        while (offset + Long.BYTES <= this.limit) {
+            long word = this.bytes.get(WORD, offset);
+            long others = ~(matches(word, SPACES) | matches(word, TABS)) & HIGH_BITS;
+            if (others != 0) {
+                return offset + firstMatch(others);
+            }
+            offset += Long.BYTES;
+        }
+        while (offset < this.limit && (flags(offset) & F_SPACE) != 0) {
+            offset++;
+        }
+        return offset;
+    }
+
+    /// {@return the offset of the first slash, star or line break from `offset` on}
+    private int skipCommentBody(int offset) {
+        while (offset + Long.BYTES <= this.limit) {
+            long word = this.bytes.get(WORD, offset);
+            long found = matches(word, LINE_FEEDS) | matches(word, CARRIAGE_RETURNS)
+                    | matches(word, STARS) | matches(word, SLASHES);
+            if (found != 0) {
+                return offset + firstMatch(found);
+            }
+            offset += Long.BYTES;
+        }
+        while (offset < this.limit) {
+            byte c = byteAt(offset);
+            if (c == '/' || c == '*' || (FLAGS[c & 0xFF] & F_NEWLINE) != 0) {
+                break;
+            }
+            offset++;
+        }
+        return offset;
+    }
+
+    /// {@return the offset of the first line break from `offset` on}
+    private int skipToLineBreak(int offset) {
+        while (offset + Long.BYTES <= this.limit) {
+            long word = this.bytes.get(WORD, offset);
+            long found = matches(word, LINE_FEEDS) | matches(word, CARRIAGE_RETURNS);
+            if (found != 0) {
+                return offset + firstMatch(found);
+            }
+            offset += Long.BYTES;
+        }
+        while (offset < this.limit && (flags(offset) & F_NEWLINE) == 0) {
+            offset++;
+        }
+        return offset;
+    }
+
+    /// {@return a word with the high bit set in exactly those bytes of `word` that equal the byte repeated in
+    /// `pattern`}
+    ///
+    /// Adding `0x7F` to the lower seven bits of a byte sets its high bit unless they are all zero, and it
+    /// can't carry into the next byte. So after or-ing in the byte itself, the high bit is clear exactly
+    /// for zero bytes of `word ^ pattern`.
+    private static long matches(long word, long pattern) {
+        long diff = word ^ pattern;
+        return ~((diff & LOW_BITS) + LOW_BITS | diff) & HIGH_BITS;
+    }
+
+    /// {@return the index of the first byte with its high bit set, as the words are little-endian}
+    private static int firstMatch(long highBits) {
+        return Long.numberOfTrailingZeros(highBits) >>> 3;
+    }
+
+    private static long repeat(char c) {
+        return c * 0x0101_0101_0101_0101L;
+    }
+
+    private void separator(SeparatorType type) {
+        set(TokenKind.SEPARATOR, type.ordinal(), 1);
+    }
+
+    private void singleOrAssign(OperatorType single, OperatorType assign) {
+        if (this.pos + 1 < this.length && byteAt(this.pos + 1) == '=') {
+            set(TokenKind.OPERATOR, assign.ordinal(), 2);
+        } else {
+            set(TokenKind.OPERATOR, single.ordinal(), 1);
+        }
+    }
+
+    private void lexIdentifierOrKeyword() {
+        int offset = 1;
+        while (this.pos + offset < this.length && (flags(this.pos + offset) & F_IDENTIFIER) != 0) {
+            offset++;
+        }
+        KeywordType keyword = KeywordType.lookup(this.bytes, this.pos, offset);
+        if (keyword != null) {
+            set(TokenKind.KEYWORD, keyword.ordinal(), offset);
+        } else {
+            set(TokenKind.IDENTIFIER, 0, offset);
+        }
+    }
+
+    private void lexNumber() {
+        if (byteAt(this.pos) == '0' && this.pos + 1 < this.length
+                && (byteAt(this.pos + 1) == 'x' || byteAt(this.pos + 1) == 'X')) {
+            int offset = 2;
+            while (this.pos + offset < this.length && (flags(this.pos + offset) & F_HEX) != 0) {
+                offset++;
+            }
+            if (offset == 2) {
+                // 0x without any further hex digits
+                set(TokenKind.ERROR, 0, 2);
+            } else {
+                set(TokenKind.NUMBER, 16, offset);
+            }
+            return;
+        }
+        int offset = 1;
+        while (this.pos + offset < this.length && (flags(this.pos + offset) & F_DIGIT) != 0) {
+            offset++;
+        }
+        // leading zeros are rejected
+        if (byteAt(this.pos) == '0' && offset > 1) {
+            set(TokenKind.ERROR, 0, offset);
+        } else {
+            set(TokenKind.NUMBER, 10, offset);
+        }
+    }
+
+    /// Makes the next `length` characters the current token.
+    private void set(TokenKind kind, int subtype, int length) {
+        this.kind = kind;
+        this.subtype = subtype;
+        this.start = this.pos;
+        this.end = this.pos + length;
+        this.pos += length;
+    }
+
+    private byte byteAt(int offset) {
+        return this.bytes.get(ValueLayout.JAVA_BYTE, offset);
+    }
+
+    private int flags(int offset) {
+        return FLAGS[byteAt(offset) & 0xFF];
+    }
+}
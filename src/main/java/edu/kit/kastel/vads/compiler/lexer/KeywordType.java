@@ -1,5 +1,9 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
+import org.jspecify.annotations.Nullable;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.HashMap;
 import java.util.stream.Stream;
 
@@ -32,6 +36,26 @@ public enum KeywordType {
   private final static HashMap<String, KeywordType> keywords = Stream.of(KeywordType.values())
       .collect(HashMap::new, (map, kw) -> map.put(kw.keyword, kw), HashMap::putAll);
 
+  /// A perfect hash over the first and last character and the length of the spellings. The multipliers
+  /// were found by a brute-force search, the static initializer makes sure no two keywords collide.
+  private static final int HASH_SIZE = 64;
+  private static final @Nullable KeywordType[] BY_HASH = new KeywordType[HASH_SIZE];
+  private static final int MAX_LENGTH;
+
+  static {
+    int maxLength = 0;
+    for (KeywordType type : values()) {
+      String keyword = type.keyword;
+      int hash = hash(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length());
+      if (BY_HASH[hash] != null) {
+        throw new IllegalStateException("keywords " + BY_HASH[hash] + " and " + type + " have the same hash");
+      }
+      BY_HASH[hash] = type;
+      maxLength = Math.max(maxLength, keyword.length());
+    }
+    MAX_LENGTH = maxLength;
+  }
+
   KeywordType(String keyword) {
     this.keyword = keyword;
   }
@@ -48,4 +72,44 @@ public enum KeywordType {
   public static HashMap<String, KeywordType> keywords() {
     return keywords;
   }
+
+  private static int hash(int first, int last, int length) {
+    return (first + 3 * last + 7 * length) & (HASH_SIZE - 1);
+  }
+
+  /// {@return the keyword spelled by the given range of characters, or `null` if it isn't a keyword}
+  public static @Nullable KeywordType lookup(CharSequence source, int start, int length) {
+    if (length > MAX_LENGTH) {
+      return null;
+    }
+    KeywordType candidate = BY_HASH[hash(source.charAt(start), source.charAt(start + length - 1), length)];
+    if (candidate == null || candidate.keyword.length() != length) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (source.charAt(start + i) != candidate.keyword.charAt(i)) {
+        return null;
+      }
+    }
+    return candidate;
+  }
+
+  /// {@return the keyword spelled by the given range of ASCII bytes, or `null` if it isn't a keyword}
+  public static @Nullable KeywordType lookup(MemorySegment bytes, long start, int length) {
+    if (length > MAX_LENGTH) {
+      return null;
+    }
+    int first = bytes.get(ValueLayout.JAVA_BYTE, start);
+    int last = bytes.get(ValueLayout.JAVA_BYTE, start + length - 1);
+    KeywordType candidate = BY_HASH[hash(first, last, length)];
+    if (candidate == null || candidate.keyword.length() != length) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (bytes.get(ValueLayout.JAVA_BYTE, start + i) != candidate.keyword.charAt(i)) {
+        return null;
+      }
+    }
+    return candidate;
+  }
 }
@@ -1,6 +1,7 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
-import edu.kit.kastel.vads.compiler.Position;
+import edu.kit.kastel.vads.compiler.LineIndex;
+import edu.kit.kastel.vads.compiler.SourceFile;
 import edu.kit.kastel.vads.compiler.Span;
 import edu.kit.kastel.vads.compiler.lexer.Operator.OperatorType;
 import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
@@ -9,19 +10,27 @@ import org.jspecify.annotations.Nullable;
 import java.util.Optional;
 
 public class Lexer {
-    private final String source;
+    private final SourceFile source;
+    private final LineIndex lineIndex;
     private int pos;
-    private int lineStart;
-    private int line;
 
-    private Lexer(String source) {
+    private Lexer(SourceFile source) {
         this.source = source;
+        this.lineIndex = source.lineIndex();
     }
 
     public static Lexer forString(String source) {
+        return new Lexer(SourceFile.of(source));
+    }
+
+    public static Lexer forSource(SourceFile source) {
         return new Lexer(source);
     }
 
+    public SourceFile source() {
+        return this.source;
+    }
+
     public Optional<Token> nextToken() {
         ErrorToken error = skipWhitespace();
         if (error != null) {
@@ -30,6 +39,7 @@ public class Lexer {
 
         // We've reached EOF after skipping whitespaces
         if (this.pos >= this.source.length()) {
+            this.lineIndex.recordEnd();
             return Optional.empty();
         }
 
@@ -74,8 +84,7 @@ public class Lexer {
                 case ' ', '\t' -> this.pos++;
                 case '\n', '\r' -> {
                     this.pos++;
-                    this.lineStart = this.pos;
-                    this.line++;
+                    this.lineIndex.recordLineStart(this.pos);
                     if (currentCommentType == CommentType.SINGLE_LINE) {
                         currentCommentType = null;
                     }
@@ -127,7 +136,7 @@ public class Lexer {
             }
         }
         if (!hasMore(0) && currentCommentType == CommentType.MULTI_LINE) {
-            return new ErrorToken(this.source.substring(commentStart), buildSpan(0));
+            return new ErrorToken(this.source.substring(commentStart, this.source.length()), buildSpan(0));
         }
         return null;
     }
@@ -143,16 +152,14 @@ public class Lexer {
             offset++;
         }
 
-        // Extract the identifier from the source string
-        String identifier = this.source.substring(this.pos, this.pos + offset);
-
-        // Check if the identifier is a keyword
-        if (KeywordType.keywords().containsKey(identifier)) {
-            KeywordType type = KeywordType.keywords().get(identifier);
+        // Check if the identifier is a keyword, without extracting it from the source first
+        KeywordType type = KeywordType.lookup(this.source, this.pos, offset);
+        if (type != null) {
             return new Keyword(type, buildSpan(offset));
         }
 
         // Otherwise, return it as an identifier
+        String identifier = this.source.substring(this.pos, this.pos + offset);
         return new Identifier(identifier, buildSpan(offset));
     }
 
@@ -222,9 +229,7 @@ public class Lexer {
     private Span buildSpan(int proceed) {
         int start = this.pos;
         this.pos += proceed;
-        Position.SimplePosition s = new Position.SimplePosition(this.line, start - this.lineStart);
-        Position.SimplePosition e = new Position.SimplePosition(this.line, start - this.lineStart + proceed);
-        return new Span.SimpleSpan(s, e);
+        return new Span.PackedSpan(start, start + proceed, this.lineIndex);
     }
 
     private char peek() {
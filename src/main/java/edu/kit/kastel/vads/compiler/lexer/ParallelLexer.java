@@ -0,0 +1,179 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/// Lexes large ASCII sources in chunks on multiple threads, producing exactly the tokens of [ByteLexer].
+///
+/// The source is split after line breaks, as no token spans lines and single line comments end there.
+/// What the lexer can't know at the start of a chunk is whether it is inside a (nested) multiline
+/// comment. All chunks are lexed concurrently assuming they are not, which is almost always right. The
+/// chunks are then joined in order: once the end of a chunk shows that the next one starts within a
+/// comment, that chunk is lexed again with the correct comment depth.
+///
+/// Chunks don't record line starts in the [edu.kit.kastel.vads.compiler.LineIndex], it scans the source
+/// itself once a position is needed.
+public final class ParallelLexer implements TokenCursor {
+    /// Chunks smaller than this aren't worth the overhead of a separate task.
+    public static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private final SourceFile source;
+    private final List<Chunk> chunks;
+    private int chunk;
+    private Chunk current;
+    private int index = -1;
+
+    private ParallelLexer(SourceFile source, List<Chunk> chunks) {
+        this.source = source;
+        this.chunks = chunks;
+        this.current = chunks.getFirst();
+    }
+
+    /// {@return whether lexing the given source in parallel is expected to be faster}
+    public static boolean isWorthwhile(SourceFile source) {
+        return source.isAscii() && source.length() >= 2 * MIN_CHUNK_SIZE
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /// Lexes the whole source, using one chunk per thread of the common pool.
+    ///
+    /// @throws IllegalArgumentException if the source isn't pure ASCII, use [Lexer] for those
+    public static ParallelLexer forSource(SourceFile source) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return forSource(source, Math.max(MIN_CHUNK_SIZE, source.length() / parallelism + 1));
+    }
+
+    /// Lexes the whole source in chunks of roughly the given size.
+    static ParallelLexer forSource(SourceFile source, int chunkSize) {
+        int[] bounds = split(source, chunkSize);
+        List<Chunk> speculative = IntStream.range(0, bounds.length - 1)
+                .parallel()
+                .mapToObj(i -> Chunk.lex(source, bounds[i], bounds[i + 1], 0, -1))
+                .toList();
+        List<Chunk> chunks = new ArrayList<>(speculative.size());
+        int commentDepth = 0;
+        int commentStart = -1;
+        for (Chunk chunk : speculative) {
+            if (commentDepth != 0) {
+                // the previous chunk ends within a comment, so the guess was wrong
+                chunk = Chunk.lex(source, chunk.start(), chunk.limit(), commentDepth, commentStart);
+            }
+            chunks.add(chunk);
+            commentDepth = chunk.commentDepth();
+            commentStart = chunk.commentStart();
+        }
+        return new ParallelLexer(source, chunks);
+    }
+
+    /// {@return the offsets the chunks start at, followed by the length of the source}
+    private static int[] split(SourceFile source, int chunkSize) {
+        int length = source.length();
+        int[] bounds = new int[length / chunkSize + 2];
+        int count = 1;
+        int offset = chunkSize;
+        while (offset < length) {
+            char c = source.charAt(offset - 1);
+            if (c == '\n' || c == '\r') {
+                bounds[count++] = offset;
+                offset += chunkSize;
+            } else {
+                offset++;
+            }
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /// {@return the number of chunks the source was split into}
+    int chunkCount() {
+        return this.chunks.size();
+    }
+
+    @Override
+    public boolean next() {
+        while (++this.index >= this.current.count()) {
+            if (this.chunk + 1 == this.chunks.size()) {
+                this.index = this.current.count();
+                return false;
+            }
+            this.current = this.chunks.get(++this.chunk);
+            this.index = -1;
+        }
+        return true;
+    }
+
+    @Override
+    public SourceFile source() {
+        return this.source;
+    }
+
+    @Override
+    public TokenKind kind() {
+        return TokenKind.of(this.current.kinds()[this.index]);
+    }
+
+    @Override
+    public int subtype() {
+        return this.current.subtypes()[this.index];
+    }
+
+    @Override
+    public int start() {
+        return this.current.starts()[this.index];
+    }
+
+    @Override
+    public int end() {
+        return this.current.ends()[this.index];
+    }
+
+    @Override
+    public Token token() {
+        return ByteLexer.token(this.source, kind(), subtype(), start(), end());
+    }
+
+    /// The tokens of the characters from `start` up to `limit`, and the comment state at the end.
+    private record Chunk(
+            int start,
+            int limit,
+            byte[] kinds,
+            byte[] subtypes,
+            int[] starts,
+            int[] ends,
+            int count,
+            int commentDepth,
+            int commentStart
+    ) {
+        static Chunk lex(SourceFile source, int start, int limit, int commentDepth, int commentStart) {
+            ByteLexer lexer = ByteLexer.forChunk(source, start, limit, commentDepth, commentStart);
+            // roughly one token every four characters
+            int capacity = Math.max(16, (limit - start) / 4);
+            byte[] kinds = new byte[capacity];
+            byte[] subtypes = new byte[capacity];
+            int[] starts = new int[capacity];
+            int[] ends = new int[capacity];
+            int count = 0;
+            while (lexer.next()) {
+                if (count == kinds.length) {
+                    capacity = count * 2;
+                    kinds = Arrays.copyOf(kinds, capacity);
+                    subtypes = Arrays.copyOf(subtypes, capacity);
+                    starts = Arrays.copyOf(starts, capacity);
+                    ends = Arrays.copyOf(ends, capacity);
+                }
+                kinds[count] = (byte) lexer.kind().ordinal();
+                subtypes[count] = (byte) lexer.subtype();
+                starts[count] = lexer.start();
+                ends[count] = lexer.end();
+                count++;
+            }
+            return new Chunk(start, limit, kinds, subtypes, starts, ends, count,
+                    lexer.commentDepth(), lexer.commentStart());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+
+/// Moves over the tokens of an ASCII source without creating an object per token.
+///
+/// [#next()] moves to the next token, whose kind, subtype and text range can then be queried.
+public sealed interface TokenCursor permits ByteLexer, ParallelLexer {
+
+    /// Moves to the next token.
+    ///
+    /// @return `false` if the end of the input was reached, there is no current token then
+    boolean next();
+
+    SourceFile source();
+
+    TokenKind kind();
+
+    /// {@return the ordinal of the [KeywordType], [Operator.OperatorType] or [Separator.SeparatorType], or
+    /// the base of a number}
+    /// For errors, this is either `0` or [ByteLexer#UNTERMINATED_COMMENT].
+    int subtype();
+
+    /// {@return the offset of the first character of the token's text}
+    int start();
+
+    /// {@return the offset after the last character of the token's text}
+    int end();
+
+    /// {@return the current token as [Lexer] would produce it}
+    Token token();
+}
@@ -0,0 +1,21 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+/// The kind of a token as produced by [ByteLexer], one per [Token] implementation.
+///
+/// The details of a token are encoded in a single `int` subtype, see [TokenCursor#subtype()].
+public enum TokenKind {
+    ERROR,
+    IDENTIFIER,
+    KEYWORD,
+    NUMBER,
+    OPERATOR,
+    SEPARATOR,
+    ;
+
+    private static final TokenKind[] VALUES = values();
+
+    /// {@return the kind with the given ordinal, without copying the values array}
+    public static TokenKind of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
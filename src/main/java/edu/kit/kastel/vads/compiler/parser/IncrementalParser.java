@@ -0,0 +1,400 @@
+package edu.kit.kastel.vads.compiler.parser;
+
+import edu.kit.kastel.vads.compiler.LineIndex;
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.Operator;
+import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
+import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
+import edu.kit.kastel.vads.compiler.parser.ast.BinaryOperationTree;
+import edu.kit.kastel.vads.compiler.parser.ast.BlockTree;
+import edu.kit.kastel.vads.compiler.parser.ast.DeclarationTree;
+import edu.kit.kastel.vads.compiler.parser.ast.ExpressionTree;
+import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
+import edu.kit.kastel.vads.compiler.parser.ast.IdentExpressionTree;
+import edu.kit.kastel.vads.compiler.parser.ast.LValueIdentTree;
+import edu.kit.kastel.vads.compiler.parser.ast.LValueTree;
+import edu.kit.kastel.vads.compiler.parser.ast.LiteralTree;
+import edu.kit.kastel.vads.compiler.parser.ast.NameTree;
+import edu.kit.kastel.vads.compiler.parser.ast.NegateTree;
+import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
+import edu.kit.kastel.vads.compiler.parser.ast.ReturnTree;
+import edu.kit.kastel.vads.compiler.parser.ast.StatementTree;
+import edu.kit.kastel.vads.compiler.parser.ast.Tree;
+import edu.kit.kastel.vads.compiler.parser.ast.TypeTree;
+import edu.kit.kastel.vads.compiler.parser.symbol.Name;
+import edu.kit.kastel.vads.compiler.parser.type.Type;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/// Keeps the tokens and the tree of a source up to date while it is edited, e.g. by an editor
+/// recompiling on every keystroke.
+///
+/// An [#edit(int, int, String) edit] only lexes the tokens around the edited text again, see
+/// [TokenSource#relex]. As statements end with the only semicolon they contain, the body of `main` is
+/// split into segments at semicolons, and only the segments containing relexed tokens are parsed again.
+/// The statements of all other segments are reused. Spans are offsets into one particular source, but the
+/// text before an edit doesn't change, so the statements before it are reused as they are. The statements
+/// after it are only copied with their spans moved to the edited source once [#program()] is asked for,
+/// so a series of edits moves each of them at most once.
+///
+/// This is only incremental in lexing and parsing. An edit still does work linear in the size of the
+/// source: it creates the edited [SourceFile] with its line index, copies the token arrays (see
+/// [TokenSource#relex]), and updates the segments after the edit. That is plain copying of characters and
+/// numbers, far cheaper than lexing and parsing, but not constant time per keystroke.
+///
+/// Segments that don't parse are simply parsed again once they are edited, so a broken statement while
+/// typing doesn't cause everything to be parsed again. [#program()] reports the same error a [Parser]
+/// reports for the whole source. Edits of the function header, and of non-ASCII sources, are lexed and
+/// parsed from scratch.
+public final class IncrementalParser {
+    /// `int main ( ) {`
+    private static final int HEADER_TOKENS = 5;
+
+    private final SourceFile source;
+    private final TokenSource tokens;
+    private final @Nullable ParseException headerError;
+    private final @Nullable TypeTree returnType;
+    private final @Nullable NameTree name;
+    /// The index of the first token of each segment, followed by the number of tokens. The last segment
+    /// holds the tokens after the last semicolon, which should just be the closing brace.
+    private final int[] segmentStarts;
+    /// The statement of each segment, or `null` if it doesn't parse. The last segment has no statement.
+    private final @Nullable StatementTree[] statements;
+    /// How far the spans of the statement of each segment are off in this source.
+    private final int[] shifts;
+    /// Whether there were edits before a segment since its statement was parsed, so the statement has to
+    /// be moved to this source even if its [#shifts shift] is zero, as the lines before it may differ.
+    private final boolean[] moved;
+    private final @Nullable ParseException error;
+    /// The program, assembled once it is asked for.
+    private @Nullable ProgramTree program;
+
+    private IncrementalParser(SourceFile source, TokenSource tokens, @Nullable ParseException headerError,
+            @Nullable TypeTree returnType, @Nullable NameTree name, int[] segmentStarts,
+            @Nullable StatementTree[] statements, int[] shifts, boolean[] moved) {
+        this.source = source;
+        this.tokens = tokens;
+        this.headerError = headerError;
+        this.returnType = returnType;
+        this.name = name;
+        this.segmentStarts = segmentStarts;
+        this.statements = statements;
+        this.shifts = shifts;
+        this.moved = moved;
+        this.error = headerError != null ? headerError : check();
+    }
+
+    /// Lexes and parses the whole source.
+    public static IncrementalParser parse(SourceFile source) {
+        TokenSource tokens = source.isAscii()
+                ? new TokenSource(ByteLexer.forSource(source))
+                : new TokenSource(Lexer.forSource(source));
+        Parser parser = new Parser(tokens);
+        TypeTree returnType;
+        NameTree name;
+        try {
+            returnType = (TypeTree) parser.toTree(parser.parseReturnType());
+            name = (NameTree) parser.toTree(parser.parseMainName());
+            tokens.expectSeparator(SeparatorType.BRACE_OPEN);
+        } catch (ParseException e) {
+            return new IncrementalParser(source, tokens, e, null, null, new int[0], new StatementTree[0],
+                    new int[0], new boolean[0]);
+        }
+        int[] starts = split(tokens, HEADER_TOKENS, tokens.tokenCount());
+        StatementTree[] statements = new StatementTree[starts.length - 1];
+        for (int i = 0; i < statements.length - 1; i++) {
+            statements[i] = parseSegment(tokens, parser, starts[i]);
+        }
+        return new IncrementalParser(source, tokens, null, returnType, name, starts, statements,
+                new int[statements.length], new boolean[statements.length]);
+    }
+
+    /// {@return the parsed program}
+    ///
+    /// The statements edits were made before are moved to this source on the first call.
+    ///
+    /// @throws ParseException the error a [Parser] reports for the whole source
+    public ProgramTree program() {
+        if (this.error != null) {
+            throw this.error;
+        }
+        if (this.program == null) {
+            this.program = assemble();
+        }
+        return this.program;
+    }
+
+    public SourceFile source() {
+        return this.source;
+    }
+
+    public TokenSource tokens() {
+        return this.tokens;
+    }
+
+    /// Replaces `length` characters at `offset` with `replacement`.
+    ///
+    /// @return the tokens and tree of the edited source, this one stays unchanged
+    /// @throws IndexOutOfBoundsException if the range isn't within the source
+    public IncrementalParser edit(int offset, int length, String replacement) {
+        Objects.checkFromIndexSize(offset, length, this.source.length());
+        String text = this.source.toString();
+        SourceFile edited = SourceFile.of(text.substring(0, offset) + replacement + text.substring(offset + length));
+        if (this.headerError != null || !edited.isAscii() || !this.source.isAscii()) {
+            return parse(edited);
+        }
+        TokenSource.Relexed relexed = this.tokens.relex(edited, offset, length, replacement.length());
+        if (relexed.first() < HEADER_TOKENS) {
+            return parse(edited);
+        }
+        TokenSource tokens = relexed.tokens();
+        int tokenDelta = relexed.newEnd() - relexed.oldEnd();
+
+        // the segment containing the first relexed token, and the first one after the relexed tokens
+        int[] starts = this.segmentStarts;
+        int segments = starts.length - 1;
+        int first = segmentOf(relexed.first());
+        int next = segmentOf(relexed.oldEnd()) + 1;
+        int[] split = next < segments
+                ? split(tokens, starts[first], starts[next] + tokenDelta)
+                : split(tokens, starts[first], tokens.tokenCount());
+
+        int reparsed = split.length - 1;
+        int kept = next < segments ? segments - next : 0;
+        int count = first + reparsed + kept;
+        int[] newStarts = new int[count + 1];
+        StatementTree[] newStatements = new StatementTree[count];
+        int[] newShifts = new int[count];
+        boolean[] newMoved = new boolean[count];
+        // the text before the edit is the same, so are the statements and the header
+        System.arraycopy(starts, 0, newStarts, 0, first);
+        System.arraycopy(this.statements, 0, newStatements, 0, first);
+        System.arraycopy(this.shifts, 0, newShifts, 0, first);
+        System.arraycopy(this.moved, 0, newMoved, 0, first);
+        Parser parser = new Parser(tokens);
+        for (int i = 0; i < reparsed; i++) {
+            newStarts[first + i] = split[i];
+            // the last segment of the split is the last of all when nothing is kept
+            boolean last = kept == 0 && i == reparsed - 1;
+            newStatements[first + i] = last ? null : parseSegment(tokens, parser, split[i]);
+        }
+        int delta = edited.length() - this.source.length();
+        System.arraycopy(this.statements, next, newStatements, first + reparsed, kept);
+        Arrays.fill(newMoved, first + reparsed, count, true);
+        for (int i = 0; i < kept; i++) {
+            newStarts[first + reparsed + i] = starts[next + i] + tokenDelta;
+            newShifts[first + reparsed + i] = this.shifts[next + i] + delta;
+        }
+        newStarts[count] = tokens.tokenCount();
+        return new IncrementalParser(edited, tokens, null, this.returnType, this.name, newStarts, newStatements,
+                newShifts, newMoved);
+    }
+
+    /// {@return the segment containing the given token, or the last one for the end of the input}
+    private int segmentOf(int token) {
+        int index = Arrays.binarySearch(this.segmentStarts, 0, this.segmentStarts.length - 1, token);
+        // not a segment start, so the insertion point is the segment after the one containing the token
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /// {@return the starts of the segments from `start` up to `end`, followed by `end`}
+    /// The tokens before `end` must either be a semicolon or the end of the input.
+    private static int[] split(TokenSource tokens, int start, int end) {
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = start;
+        for (int i = start; i < end; i++) {
+            if (tokens.isSeparator(i, SeparatorType.SEMICOLON) && i + 1 < end) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        if (end == tokens.tokenCount() && end > start && tokens.isSeparator(end - 1, SeparatorType.SEMICOLON)) {
+            // the input ends right after a semicolon, so the last segment is empty
+            starts = Arrays.copyOf(starts, count + 1);
+            starts[count++] = end;
+        }
+        starts = Arrays.copyOf(starts, count + 1);
+        starts[count] = end;
+        return starts;
+    }
+
+    /// {@return the statement of the segment starting at the given token, or `null` if there is none}
+    private static @Nullable StatementTree parseSegment(TokenSource tokens, Parser parser, int start) {
+        tokens.seek(start);
+        try {
+            return tokens.isSeparator(SeparatorType.BRACE_CLOSE)
+                    ? null
+                    : (StatementTree) parser.toTree(parser.parseStatement());
+        } catch (ParseException _) {
+            return null;
+        }
+    }
+
+    /// {@return the error the parser would report, `null` if the body parses}
+    private @Nullable ParseException check() {
+        int end = end();
+        // the first segment without a statement failed to parse or ends the body, parse it again for the details
+        this.tokens.seek(this.segmentStarts[end]);
+        try {
+            if (!this.tokens.isSeparator(SeparatorType.BRACE_CLOSE)) {
+                new Parser(this.tokens).parseStatement();
+                throw new IllegalStateException("segment " + end + " parses now");
+            }
+            this.tokens.consume();
+            if (this.tokens.hasMore()) {
+                throw new ParseException("expected end of input but got " + this.tokens.peek());
+            }
+        } catch (ParseException e) {
+            return e;
+        }
+        return null;
+    }
+
+    /// {@return the first segment without a statement}
+    private int end() {
+        int end = 0;
+        while (this.statements[end] != null) {
+            end++;
+        }
+        return end;
+    }
+
+    /// Puts the statements together like [Parser] would, once [#check()] found no error.
+    private ProgramTree assemble() {
+        int end = end();
+        List<StatementTree> body = new ArrayList<>(end);
+        Move move = new Move(0, this.source.lineIndex());
+        for (int i = 0; i < end; i++) {
+            StatementTree statement = Objects.requireNonNull(this.statements[i]);
+            if (this.moved[i]) {
+                move.delta = this.shifts[i];
+                body.add(move.statement(statement));
+            } else {
+                body.add(statement);
+            }
+        }
+        Span open = this.tokens.span(HEADER_TOKENS - 1);
+        Span close = this.tokens.span(this.segmentStarts[end]);
+        FunctionTree function = new FunctionTree(Objects.requireNonNull(this.returnType),
+                Objects.requireNonNull(this.name), new BlockTree(body, open.merge(close)));
+        return new ProgramTree(List.of(function));
+    }
+
+    /// Moves trees to an edited source, shifting their spans by `delta`.
+    private static final class Move {
+        private final LineIndex lines;
+        private final List<Tree> preorder = new ArrayList<>();
+        private final List<Tree> stack = new ArrayList<>();
+        private int delta;
+
+        Move(int delta, LineIndex lines) {
+            this.delta = delta;
+            this.lines = lines;
+        }
+
+        Span span(Span span) {
+            if (span instanceof Span.PackedSpan packed) {
+                int start = packed.startOffset() + this.delta;
+                return new Span.PackedSpan(start, packed.endOffset() + this.delta, this.lines);
+            }
+            // the parser only creates packed spans
+            throw new IllegalArgumentException("cannot move " + span);
+        }
+
+        /// Moves a statement without recursion, as expressions can be nested arbitrarily deep.
+        ///
+        /// The subtrees are collected in preorder with the children from right to left, which reversed is
+        /// postorder. Like in [edu.kit.kastel.vads.compiler.parser.ast.FlatTree#toTree(int)], each tree then
+        /// takes its moved children from a stack.
+        StatementTree statement(StatementTree statement) {
+            // the stack holds the trees still to visit first, and their moved versions afterwards
+            List<Tree> pending = this.stack;
+            pending.add(statement);
+            while (!pending.isEmpty()) {
+                Tree next = pending.removeLast();
+                this.preorder.add(next);
+                addChildren(next, pending);
+            }
+            for (Tree next : this.preorder.reversed()) {
+                this.stack.add(move(next, this.stack));
+            }
+            this.preorder.clear();
+            return (StatementTree) this.stack.removeLast();
+        }
+
+        private static void addChildren(Tree tree, List<Tree> trees) {
+            switch (tree) {
+                case AssignmentTree(LValueTree lValue, _, ExpressionTree expression) -> {
+                    trees.add(lValue);
+                    trees.add(expression);
+                }
+                case BinaryOperationTree(ExpressionTree lhs, ExpressionTree rhs, _) -> {
+                    trees.add(lhs);
+                    trees.add(rhs);
+                }
+                case BlockTree(List<StatementTree> statements, _) -> trees.addAll(statements);
+                case DeclarationTree(TypeTree type, NameTree name, ExpressionTree initializer) -> {
+                    trees.add(type);
+                    trees.add(name);
+                    if (initializer != null) {
+                        trees.add(initializer);
+                    }
+                }
+                case IdentExpressionTree(NameTree name) -> trees.add(name);
+                case LValueIdentTree(NameTree name) -> trees.add(name);
+                case NegateTree(ExpressionTree expression, _) -> trees.add(expression);
+                case ReturnTree(ExpressionTree expression, _) -> trees.add(expression);
+                case LiteralTree _, NameTree _, TypeTree _ -> {
+                }
+                case FunctionTree _, ProgramTree _ -> throw new IllegalArgumentException("cannot move " + tree);
+            }
+        }
+
+        /// {@return the moved tree}, its moved children are removed from the top of the stack
+        private Tree move(Tree tree, List<Tree> stack) {
+            return switch (tree) {
+                case AssignmentTree(_, Operator operator, _) -> {
+                    ExpressionTree expression = (ExpressionTree) stack.removeLast();
+                    LValueTree lValue = (LValueTree) stack.removeLast();
+                    yield new AssignmentTree(lValue, new Operator(operator.type(), span(operator.span())), expression);
+                }
+                case BinaryOperationTree(_, _, Operator.OperatorType type) -> {
+                    ExpressionTree rhs = (ExpressionTree) stack.removeLast();
+                    ExpressionTree lhs = (ExpressionTree) stack.removeLast();
+                    yield new BinaryOperationTree(lhs, rhs, type);
+                }
+                case BlockTree(List<StatementTree> statements, Span span) -> {
+                    List<Tree> top = stack.subList(stack.size() - statements.size(), stack.size());
+                    List<StatementTree> moved = top.stream().map(StatementTree.class::cast).toList();
+                    top.clear();
+                    yield new BlockTree(moved, span(span));
+                }
+                case DeclarationTree(_, _, ExpressionTree initializer) -> {
+                    ExpressionTree moved = initializer == null ? null : (ExpressionTree) stack.removeLast();
+                    NameTree name = (NameTree) stack.removeLast();
+                    yield new DeclarationTree((TypeTree) stack.removeLast(), name, moved);
+                }
+                case IdentExpressionTree _ -> new IdentExpressionTree((NameTree) stack.removeLast());
+                case LValueIdentTree _ -> new LValueIdentTree((NameTree) stack.removeLast());
+                case NegateTree(_, Span minusPos) ->
+                        new NegateTree((ExpressionTree) stack.removeLast(), span(minusPos));
+                case ReturnTree(_, Span returnPos) ->
+                        new ReturnTree((ExpressionTree) stack.removeLast(), span(returnPos));
+                case LiteralTree(String value, int base, Span span) -> new LiteralTree(value, base, span(span));
+                case NameTree(Name name, Span span) -> new NameTree(name, span(span));
+                case TypeTree(Type type, Span span) -> new TypeTree(type, span(span));
+                case FunctionTree _, ProgramTree _ -> throw new IllegalArgumentException("cannot move " + tree);
+            };
+        }
+    }
+}
@@ -1,87 +1,115 @@
 package edu.kit.kastel.vads.compiler.parser;
 
-import edu.kit.kastel.vads.compiler.lexer.Identifier;
-import edu.kit.kastel.vads.compiler.lexer.Keyword;
+import edu.kit.kastel.vads.compiler.Span;
 import edu.kit.kastel.vads.compiler.lexer.KeywordType;
-import edu.kit.kastel.vads.compiler.lexer.NumberLiteral;
-import edu.kit.kastel.vads.compiler.lexer.Operator;
 import edu.kit.kastel.vads.compiler.lexer.Operator.OperatorType;
-import edu.kit.kastel.vads.compiler.lexer.Separator;
 import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
-import edu.kit.kastel.vads.compiler.Span;
-import edu.kit.kastel.vads.compiler.lexer.Token;
-import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
-import edu.kit.kastel.vads.compiler.parser.ast.BinaryOperationTree;
-import edu.kit.kastel.vads.compiler.parser.ast.BlockTree;
-import edu.kit.kastel.vads.compiler.parser.ast.DeclarationTree;
-import edu.kit.kastel.vads.compiler.parser.ast.ExpressionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.IdentExpressionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.LValueIdentTree;
-import edu.kit.kastel.vads.compiler.parser.ast.LValueTree;
-import edu.kit.kastel.vads.compiler.parser.ast.LiteralTree;
-import edu.kit.kastel.vads.compiler.parser.ast.NameTree;
-import edu.kit.kastel.vads.compiler.parser.ast.NegateTree;
+import edu.kit.kastel.vads.compiler.lexer.TokenKind;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
 import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
-import edu.kit.kastel.vads.compiler.parser.ast.ReturnTree;
-import edu.kit.kastel.vads.compiler.parser.ast.StatementTree;
-import edu.kit.kastel.vads.compiler.parser.ast.TypeTree;
-import edu.kit.kastel.vads.compiler.parser.symbol.Name;
+import edu.kit.kastel.vads.compiler.parser.ast.Tree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
 import edu.kit.kastel.vads.compiler.parser.type.BasicType;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/// Parses the tokens into a [FlatTree], adding the nodes in postorder while parsing.
+///
+/// The parse methods return the index of the node they added.
 public class Parser {
+    /// The binding strength of the binary operators by [OperatorType#ordinal()], 0 for the others.
+    private static final int[] PRECEDENCE = new int[OperatorType.values().length];
+    /// The markers for an opening parenthesis and a negation on the operator stack, which otherwise
+    /// holds the ordinals of binary operators.
+    private static final int PAREN = -1;
+    private static final int NEGATE = -2;
+
+    static {
+        PRECEDENCE[OperatorType.PLUS.ordinal()] = 1;
+        PRECEDENCE[OperatorType.MINUS.ordinal()] = 1;
+        PRECEDENCE[OperatorType.MUL.ordinal()] = 2;
+        PRECEDENCE[OperatorType.DIV.ordinal()] = 2;
+        PRECEDENCE[OperatorType.MOD.ordinal()] = 2;
+    }
+
     private final TokenSource tokenSource;
+    private final FlatTree.Builder tree;
+    private int[] operators = new int[16];
+    private long[] operatorTokens = new long[16];
+    private int operatorCount;
 
     public Parser(TokenSource tokenSource) {
         this.tokenSource = tokenSource;
+        // a token source that isn't streaming knows all tokens already
+        this.tree = new FlatTree.Builder(tokenSource.source(), tokenSource.symbols(), tokenSource.tokenCount() + 1);
     }
 
+    /// {@return the program as a tree of records, see [FlatTree#toProgramTree()]}
     public ProgramTree parseProgram() {
+        return parse().toProgramTree();
+    }
+
+    public FlatTree parse() {
         // NOTE: This expects a single function as the whole program
-        ProgramTree programTree = new ProgramTree(List.of(parseFunction()));
+        parseFunction();
+        add(TreeKind.PROGRAM, 0, 1);
 
         if (this.tokenSource.hasMore()) {
             throw new ParseException("expected end of input but got " + this.tokenSource.peek());
         }
 
-        return programTree;
+        return this.tree.build();
+    }
+
+    /// {@return the tree of a node added so far, see [FlatTree#toTree(int)]}
+    Tree toTree(int node) {
+        return this.tree.build().toTree(node);
     }
 
     /// Parses a function declaration that is exactly `int identifier() { ... }`.
-    private FunctionTree parseFunction() {
-        Keyword returnType = this.tokenSource.expectKeyword(KeywordType.INT);
-        Identifier identifier = this.tokenSource.expectIdentifier();
-        if (!identifier.value().equals("main")) {
-            throw new ParseException("expected main function but got " + identifier);
+    private int parseFunction() {
+        parseReturnType();
+        parseMainName();
+        parseBlock();
+        return add(TreeKind.FUNCTION, 0, 3);
+    }
+
+    /// Parses the `int` of `int main() { ... }`.
+    int parseReturnType() {
+        return type(this.tokenSource.expectKeyword(KeywordType.INT));
+    }
+
+    /// Parses the `main()` of `int main() { ... }`.
+    int parseMainName() {
+        int identifier = this.tokenSource.expectIdentifier();
+        if (!this.tokenSource.name(identifier).asString().equals("main")) {
+            throw new ParseException("expected main function but got " + this.tokenSource.token(identifier));
         }
+        int name = name(identifier);
         this.tokenSource.expectSeparator(SeparatorType.PAREN_OPEN);
         this.tokenSource.expectSeparator(SeparatorType.PAREN_CLOSE);
-        BlockTree body = parseBlock();
-
-        return new FunctionTree(
-                new TypeTree(BasicType.INT, returnType.span()),
-                name(identifier),
-                body);
+        return name;
     }
 
-    private BlockTree parseBlock() {
-        Separator bodyOpen = this.tokenSource.expectSeparator(SeparatorType.BRACE_OPEN);
-        List<StatementTree> statements = new ArrayList<>();
-        while (!(this.tokenSource.peek() instanceof Separator sep && sep.type() == SeparatorType.BRACE_CLOSE)) {
-            statements.add(parseStatement());
+    private int parseBlock() {
+        long bodyOpen = this.tokenSource.offsets(this.tokenSource.expectSeparator(SeparatorType.BRACE_OPEN));
+        int statements = 0;
+        while (!this.tokenSource.isSeparator(SeparatorType.BRACE_CLOSE)) {
+            parseStatement();
+            statements++;
         }
-        Separator bodyClose = this.tokenSource.expectSeparator(SeparatorType.BRACE_CLOSE);
-        return new BlockTree(statements, bodyOpen.span().merge(bodyClose.span()));
+        long bodyClose = this.tokenSource.offsets(this.tokenSource.expectSeparator(SeparatorType.BRACE_CLOSE));
+        long span = Span.pack(Span.startOffset(bodyOpen), Span.endOffset(bodyClose));
+        return this.tree.add(TreeKind.BLOCK, span, 0, statements);
     }
 
-    private StatementTree parseStatement() {
-        StatementTree statement;
-        if (this.tokenSource.peek().isKeyword(KeywordType.INT)) {
+    /// Parses a statement including the semicolon ending it. Statements don't contain any other
+    /// semicolons, [IncrementalParser] relies on that.
+    int parseStatement() {
+        int statement;
+        if (this.tokenSource.isKeyword(KeywordType.INT)) {
             statement = parseDeclaration();
-        } else if (this.tokenSource.peek().isKeyword(KeywordType.RETURN)) {
+        } else if (this.tokenSource.isKeyword(KeywordType.RETURN)) {
             statement = parseReturn();
         } else {
             statement = parseSimple();
@@ -90,107 +118,171 @@ public class Parser {
         return statement;
     }
 
-    private StatementTree parseDeclaration() {
-        Keyword type = this.tokenSource.expectKeyword(KeywordType.INT);
-        Identifier ident = this.tokenSource.expectIdentifier();
-        ExpressionTree expr = null;
-        if (this.tokenSource.peek().isOperator(OperatorType.ASSIGN)) {
+    private int parseDeclaration() {
+        type(this.tokenSource.expectKeyword(KeywordType.INT));
+        name(this.tokenSource.expectIdentifier());
+        int children = 2;
+        if (this.tokenSource.isOperator(OperatorType.ASSIGN)) {
             this.tokenSource.expectOperator(OperatorType.ASSIGN);
-            expr = parseExpression();
+            parseExpression();
+            children++;
         }
-        return new DeclarationTree(new TypeTree(BasicType.INT, type.span()), name(ident), expr);
+        return add(TreeKind.DECLARATION, 0, children);
     }
 
-    private StatementTree parseSimple() {
-        LValueTree lValue = parseLValue();
-        Operator assignmentOperator = parseAssignmentOperator();
-        ExpressionTree expression = parseExpression();
-        return new AssignmentTree(lValue, assignmentOperator, expression);
+    private int parseSimple() {
+        parseLValue();
+        parseAssignmentOperator();
+        parseExpression();
+        return add(TreeKind.ASSIGNMENT, 0, 3);
     }
 
-    private Operator parseAssignmentOperator() {
-        if (this.tokenSource.peek() instanceof Operator op) {
-            return switch (op.type()) {
-                case ASSIGN, ASSIGN_DIV, ASSIGN_MINUS, ASSIGN_MOD, ASSIGN_MUL, ASSIGN_PLUS -> {
-                    this.tokenSource.consume();
-                    yield op;
-                }
-                default -> throw new ParseException("expected assignment but got " + op.type());
-            };
+    private int parseAssignmentOperator() {
+        OperatorType type = this.tokenSource.peekOperator();
+        if (type == null) {
+            throw new ParseException("expected assignment but got " + this.tokenSource.peek());
         }
-        throw new ParseException("expected assignment but got " + this.tokenSource.peek());
+        return switch (type) {
+            case ASSIGN, ASSIGN_DIV, ASSIGN_MINUS, ASSIGN_MOD, ASSIGN_MUL, ASSIGN_PLUS -> {
+                long span = this.tokenSource.offsets(this.tokenSource.consume());
+                yield this.tree.add(TreeKind.OPERATOR, span, type.ordinal(), 0);
+            }
+            default -> throw new ParseException("expected assignment but got " + type);
+        };
     }
 
-    private LValueTree parseLValue() {
+    private int parseLValue() {
         // TODO: Does this allow `((a)) = 1`?
-        if (this.tokenSource.peek().isSeparator(SeparatorType.PAREN_OPEN)) {
+        int parens = 0;
+        while (this.tokenSource.isSeparator(SeparatorType.PAREN_OPEN)) {
             this.tokenSource.expectSeparator(SeparatorType.PAREN_OPEN);
-            LValueTree inner = parseLValue();
-            this.tokenSource.expectSeparator(SeparatorType.PAREN_CLOSE);
-            return inner;
+            parens++;
         }
 
-        Identifier identifier = this.tokenSource.expectIdentifier();
-        return new LValueIdentTree(name(identifier));
+        name(this.tokenSource.expectIdentifier());
+        int lvalue = add(TreeKind.LVALUE_IDENT, 0, 1);
+        for (; parens > 0; parens--) {
+            this.tokenSource.expectSeparator(SeparatorType.PAREN_CLOSE);
+        }
+        return lvalue;
     }
 
-    private StatementTree parseReturn() {
-        Keyword ret = this.tokenSource.expectKeyword(KeywordType.RETURN);
-        ExpressionTree expression = parseExpression();
-        return new ReturnTree(expression, ret.span().start());
+    private int parseReturn() {
+        long ret = this.tokenSource.offsets(this.tokenSource.expectKeyword(KeywordType.RETURN));
+        parseExpression();
+        return startingAt(ret, TreeKind.RETURN, 0);
     }
 
-    private ExpressionTree parseExpression() {
-        ExpressionTree lhs = parseTerm();
+    /// Parses an expression by precedence climbing. Parentheses, negations and binary operators
+    /// waiting for their right operand are kept on an explicit stack instead of the call stack, so
+    /// arbitrarily deep nesting can't overflow it. As the operands are added right away, the
+    /// operators follow them in postorder when they are popped.
+    private int parseExpression() {
+        this.operatorCount = 0;
         while (true) {
-            if (this.tokenSource.peek() instanceof Operator(var type, _)
-                    && (type == OperatorType.PLUS || type == OperatorType.MINUS)) {
-                this.tokenSource.consume();
-                lhs = new BinaryOperationTree(lhs, parseTerm(), type);
-            } else {
-                return lhs;
+            parsePrefixes();
+            int expression = reduceNegations(parseAtom());
+            while (true) {
+                OperatorType type = this.tokenSource.peekOperator();
+                int precedence = type == null ? 0 : PRECEDENCE[type.ordinal()];
+                if (precedence > 0) {
+                    this.tokenSource.consume();
+                    reduceBinaryOperations(expression, precedence);
+                    push(type.ordinal(), 0);
+                    break;
+                }
+                expression = reduceBinaryOperations(expression, 1);
+                if (this.operatorCount == 0) {
+                    return expression;
+                }
+                // only an opening parenthesis can be left on top
+                this.tokenSource.expectSeparator(SeparatorType.PAREN_CLOSE);
+                this.operatorCount--;
+                expression = reduceNegations(expression);
             }
         }
     }
 
-    private ExpressionTree parseTerm() {
-        ExpressionTree lhs = parseFactor();
+    private void parsePrefixes() {
         while (true) {
-            if (this.tokenSource.peek() instanceof Operator(var type, _)
-                    && (type == OperatorType.MUL || type == OperatorType.DIV || type == OperatorType.MOD)) {
+            if (this.tokenSource.isSeparator(SeparatorType.PAREN_OPEN)) {
                 this.tokenSource.consume();
-                lhs = new BinaryOperationTree(lhs, parseFactor(), type);
+                push(PAREN, 0);
+            } else if (this.tokenSource.isOperator(OperatorType.MINUS)) {
+                push(NEGATE, this.tokenSource.offsets(this.tokenSource.consume()));
             } else {
-                return lhs;
+                return;
             }
         }
     }
 
-    private ExpressionTree parseFactor() {
-        return switch (this.tokenSource.peek()) {
-            case Separator(var type, _) when type == SeparatorType.PAREN_OPEN -> {
-                this.tokenSource.consume();
-                ExpressionTree expression = parseExpression();
-                this.tokenSource.expectSeparator(SeparatorType.PAREN_CLOSE);
-                yield expression;
-            }
-            case Operator(var type, _) when type == OperatorType.MINUS -> {
-                Span span = this.tokenSource.consume().span();
-                yield new NegateTree(parseFactor(), span);
-            }
-            case Identifier ident -> {
-                this.tokenSource.consume();
-                yield new IdentExpressionTree(name(ident));
-            }
-            case NumberLiteral(String value, int base, Span span) -> {
-                this.tokenSource.consume();
-                yield new LiteralTree(value, base, span);
+    private int parseAtom() {
+        if (this.tokenSource.peekKind() == TokenKind.IDENTIFIER) {
+            name(this.tokenSource.consume());
+            return add(TreeKind.IDENT_EXPRESSION, 0, 1);
+        }
+        if (this.tokenSource.peekKind() == TokenKind.NUMBER) {
+            int literal = this.tokenSource.consume();
+            return this.tree.add(TreeKind.LITERAL, this.tokenSource.offsets(literal),
+                    this.tokenSource.subtype(literal), 0);
+        }
+        throw new ParseException("invalid factor " + this.tokenSource.peek());
+    }
+
+    /// Negations bind stronger than any binary operator, so they apply as soon as their operand is complete.
+    private int reduceNegations(int operand) {
+        int expression = operand;
+        while (this.operatorCount > 0 && this.operators[this.operatorCount - 1] == NEGATE) {
+            this.operatorCount--;
+            expression = startingAt(this.operatorTokens[this.operatorCount], TreeKind.NEGATE, 0);
+        }
+        return expression;
+    }
+
+    /// Pops the binary operators of at least the given precedence, which are left-associative.
+    private int reduceBinaryOperations(int operand, int precedence) {
+        int expression = operand;
+        while (this.operatorCount > 0) {
+            int operator = this.operators[this.operatorCount - 1];
+            if (operator < 0 || PRECEDENCE[operator] < precedence) {
+                break;
             }
-            case Token t -> throw new ParseException("invalid factor " + t);
-        };
+            this.operatorCount--;
+            expression = add(TreeKind.BINARY_OPERATION, operator, 2);
+        }
+        return expression;
+    }
+
+    /// @param token the [Span#pack packed] offsets of a `-`, only used for negations
+    private void push(int operator, long token) {
+        if (this.operatorCount == this.operators.length) {
+            this.operators = Arrays.copyOf(this.operators, this.operatorCount * 2);
+            this.operatorTokens = Arrays.copyOf(this.operatorTokens, this.operatorCount * 2);
+        }
+        this.operators[this.operatorCount] = operator;
+        this.operatorTokens[this.operatorCount] = token;
+        this.operatorCount++;
+    }
+
+    private int name(int identifier) {
+        return this.tree.add(TreeKind.NAME, this.tokenSource.offsets(identifier),
+                this.tokenSource.name(identifier).id(), 0);
+    }
+
+    private int type(int keyword) {
+        return this.tree.add(TreeKind.TYPE, this.tokenSource.offsets(keyword), BasicType.INT.ordinal(), 0);
+    }
+
+    /// Adds a node spanning its children.
+    private int add(TreeKind kind, int data, int children) {
+        return this.tree.add(kind, this.tree.spanOfLast(children), data, children);
     }
 
-    private static NameTree name(Identifier ident) {
-        return new NameTree(Name.forIdentifier(ident), ident.span());
+    /// Adds a node with a single child, spanning from the start of the given token to the end of the child.
+    ///
+    /// @param token the [Span#pack packed] offsets of the token, the token source may have dropped it by now
+    private int startingAt(long token, TreeKind kind, int data) {
+        long span = Span.pack(Span.startOffset(token), Span.endOffset(this.tree.spanOfLast(1)));
+        return this.tree.add(kind, span, data, 1);
     }
 }
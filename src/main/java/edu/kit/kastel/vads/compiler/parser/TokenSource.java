@@ -1,89 +1,466 @@
 package edu.kit.kastel.vads.compiler.parser;
 
+import edu.kit.kastel.vads.compiler.LineIndex;
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.ErrorToken;
 import edu.kit.kastel.vads.compiler.lexer.Identifier;
 import edu.kit.kastel.vads.compiler.lexer.Keyword;
 import edu.kit.kastel.vads.compiler.lexer.KeywordType;
 import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.NumberLiteral;
 import edu.kit.kastel.vads.compiler.lexer.Operator;
 import edu.kit.kastel.vads.compiler.lexer.Operator.OperatorType;
 import edu.kit.kastel.vads.compiler.lexer.Separator;
 import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
 import edu.kit.kastel.vads.compiler.lexer.Token;
+import edu.kit.kastel.vads.compiler.lexer.TokenCursor;
+import edu.kit.kastel.vads.compiler.lexer.TokenKind;
+import edu.kit.kastel.vads.compiler.parser.symbol.Name;
+import edu.kit.kastel.vads.compiler.parser.symbol.SymbolTable;
+import org.jspecify.annotations.Nullable;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Stream;
 
+/// The tokens of the input, packed into parallel arrays instead of one object per token.
+///
+/// Each token is described by its [TokenKind], its subtype (see [TokenCursor#subtype()]), and the offset
+/// and length of its text in the source. The parser mostly asks about the next token without
+/// materializing it, [Token] objects are only created for identifiers, literals and error messages.
+/// Likewise, spans are only created for tokens whose span ends up in the AST, and identifiers are
+/// interned into a [SymbolTable] straight from the source.
+///
+/// The constructors tokenize the whole input upfront. A [#streaming(TokenCursor) streaming] token source
+/// instead pulls tokens from the lexer when the parser needs them and only keeps the last
+/// [#WINDOW] tokens in a ring buffer, so lexing and parsing interleave and memory doesn't grow with
+/// the input.
+///
+/// When streaming, [#measureLexing()] adds up the time spent in the lexer, as it doesn't show up as
+/// a phase of its own.
+///
+/// For an edited source, [#relex] only lexes the tokens around the edit again.
 public class TokenSource {
-    private final List<Token> tokens;
+    /// How many tokens a streaming token source keeps. The parser looks one token ahead and asks
+    /// for the span of a token right after consuming it, so a few tokens are plenty.
+    public static final int WINDOW = 16;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final TokenKind[] KINDS = TokenKind.values();
+    private static final KeywordType[] KEYWORD_TYPES = KeywordType.values();
+    private static final OperatorType[] OPERATOR_TYPES = OperatorType.values();
+    private static final SeparatorType[] SEPARATOR_TYPES = SeparatorType.values();
+
+    private final SourceFile source;
+    private final LineIndex lineIndex;
+    private final SymbolTable symbols;
+    private final @Nullable TokenCursor cursor;
+    private final @Nullable Lexer lexer;
+    private final boolean streaming;
+    private byte[] kinds;
+    private byte[] subtypes;
+    private int[] starts;
+    private int[] lengths;
+    /// The number of tokens pulled from the lexer so far.
+    private int count;
+    private boolean exhausted;
     private int idx;
+    private boolean measuringLexing;
+    private long lexingNanos;
+
+    /// Tokenize the whole input using the given byte lexer or parallel lexer.
+    public TokenSource(TokenCursor lexer) {
+        this(lexer.source(), lexer, null, false);
+    }
 
-    /// Tokenize the whole input string using the given lexer.
+    /// Tokenize the whole input using the given lexer.
     public TokenSource(Lexer lexer) {
-        this.tokens = Stream.generate(lexer::nextToken)
-                .takeWhile(Optional::isPresent)
-                .map(Optional::orElseThrow)
-                .toList();
+        this(lexer.source(), null, lexer, false);
+    }
+
+    private TokenSource(SourceFile source, @Nullable TokenCursor cursor, @Nullable Lexer lexer, boolean streaming) {
+        this.source = source;
+        this.lineIndex = source.lineIndex();
+        this.symbols = new SymbolTable();
+        this.cursor = cursor;
+        this.lexer = lexer;
+        this.streaming = streaming;
+        int capacity = streaming ? WINDOW : INITIAL_CAPACITY;
+        this.kinds = new byte[capacity];
+        this.subtypes = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        if (!streaming) {
+            while (pull()) {
+                // everything is tokenized upfront
+            }
+            this.exhausted = true;
+        }
+    }
+
+    /// Creates an empty token source for tokens that are added by hand.
+    private TokenSource(SourceFile source, SymbolTable symbols, int capacity) {
+        this.source = source;
+        this.lineIndex = source.lineIndex();
+        this.symbols = symbols;
+        this.cursor = null;
+        this.lexer = null;
+        this.streaming = false;
+        this.exhausted = true;
+        this.kinds = new byte[capacity];
+        this.subtypes = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    /// {@return a token source pulling tokens from the given byte lexer on demand}
+    public static TokenSource streaming(TokenCursor lexer) {
+        return new TokenSource(lexer.source(), lexer, null, true);
+    }
+
+    /// {@return a token source pulling tokens from the given lexer on demand}
+    public static TokenSource streaming(Lexer lexer) {
+        return new TokenSource(lexer.source(), null, lexer, true);
+    }
+
+    /// Adds up the time spent pulling tokens from the lexer from now on, see [#lexingNanos()].
+    public void measureLexing() {
+        this.measuringLexing = true;
+    }
+
+    /// {@return the time spent in the lexer since [#measureLexing()] was called}
+    public long lexingNanos() {
+        return this.lexingNanos;
+    }
+
+    /// Adds the next token of the lexer, and measures the time it took if asked to.
+    ///
+    /// @return `false` if the lexer reached the end of the input
+    private boolean pull() {
+        if (!this.measuringLexing) {
+            return pullUnmeasured();
+        }
+        long start = System.nanoTime();
+        boolean pulled = pullUnmeasured();
+        this.lexingNanos += System.nanoTime() - start;
+        return pulled;
+    }
+
+    private boolean pullUnmeasured() {
+        if (this.cursor != null) {
+            TokenCursor lexer = this.cursor;
+            if (!lexer.next()) {
+                return false;
+            }
+            add(lexer.kind(), lexer.subtype(), lexer.start(), lexer.end() - lexer.start());
+            return true;
+        }
+        Optional<Token> next = Objects.requireNonNull(this.lexer).nextToken();
+        if (next.isEmpty()) {
+            return false;
+        }
+        Token token = next.get();
+        // the lexer only creates packed spans
+        Span.PackedSpan span = (Span.PackedSpan) token.span();
+        int start = span.startOffset();
+        int length = span.endOffset() - start;
+        switch (token) {
+            // the span of an unterminated comment is empty, its text is the rest of the input
+            case ErrorToken(String value, _) when length == 0 -> add(TokenKind.ERROR,
+                    ByteLexer.UNTERMINATED_COMMENT, this.source.length() - value.length(), value.length());
+            case ErrorToken _ -> add(TokenKind.ERROR, 0, start, length);
+            case Identifier _ -> add(TokenKind.IDENTIFIER, 0, start, length);
+            case Keyword(KeywordType type, _) -> add(TokenKind.KEYWORD, type.ordinal(), start, length);
+            case NumberLiteral(_, int base, _) -> add(TokenKind.NUMBER, base, start, length);
+            case Operator(OperatorType type, _) -> add(TokenKind.OPERATOR, type.ordinal(), start, length);
+            case Separator(SeparatorType type, _) -> add(TokenKind.SEPARATOR, type.ordinal(), start, length);
+        }
+        return true;
+    }
+
+    private void add(TokenKind kind, int subtype, int start, int length) {
+        if (!this.streaming && this.count == this.kinds.length) {
+            grow(this.count * 2);
+        }
+        int slot = slot(this.count);
+        this.kinds[slot] = (byte) kind.ordinal();
+        this.subtypes[slot] = (byte) subtype;
+        this.starts[slot] = start;
+        this.lengths[slot] = length;
+        this.count++;
+    }
+
+    private void grow(int capacity) {
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        this.subtypes = Arrays.copyOf(this.subtypes, capacity);
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.lengths = Arrays.copyOf(this.lengths, capacity);
+    }
+
+    /// The tokens of an edited source: the tokens from `first` up to `oldEnd` of the old source were
+    /// replaced by those from `first` up to `newEnd`, all others are the same apart from their offsets.
+    record Relexed(TokenSource tokens, int first, int oldEnd, int newEnd) {
+    }
+
+    /// Lexes an edited version of this source, only lexing the tokens around the edit again.
+    ///
+    /// The tokens ending before the edit only depend on text before it, so lexing restarts at the end of
+    /// the last of them. Lexing stops at the first token after the edit that this source has at the same,
+    /// shifted, offset: tokens never start within a comment, so all following tokens are equal, too. If
+    /// the edit opens or closes a comment, the relexed range grows until the comment state agrees again.
+    /// The new token source shares the [SymbolTable], so names stay comparable to those of this one.
+    ///
+    /// @param edited the source after replacing `removed` characters at `offset` with `inserted` characters
+    /// @throws IllegalStateException if this token source is streaming
+    Relexed relex(SourceFile edited, int offset, int removed, int inserted) {
+        if (this.streaming) {
+            throw new IllegalStateException("cannot relex a streaming token source");
+        }
+        int delta = inserted - removed;
+        int first = endingBefore(offset);
+        TokenSource result = new TokenSource(edited, this.symbols, this.count + 16);
+        System.arraycopy(this.kinds, 0, result.kinds, 0, first);
+        System.arraycopy(this.subtypes, 0, result.subtypes, 0, first);
+        System.arraycopy(this.starts, 0, result.starts, 0, first);
+        System.arraycopy(this.lengths, 0, result.lengths, 0, first);
+        result.count = first;
+
+        int oldEnd = this.count;
+        if (edited.isAscii()) {
+            ByteLexer lexer = ByteLexer.resumeAt(edited, first == 0 ? 0 : end(first - 1));
+            while (lexer.next()) {
+                int start = lexer.start();
+                if (start >= offset + inserted) {
+                    int old = Arrays.binarySearch(this.starts, first, this.count, start - delta);
+                    if (old >= 0) {
+                        assert this.kinds[old] == lexer.kind().ordinal() : "tokens at synchronization point differ";
+                        oldEnd = old;
+                        break;
+                    }
+                }
+                result.add(lexer.kind(), lexer.subtype(), start, lexer.end() - start);
+            }
+        } else {
+            // positions of the byte lexer would be off, relex everything
+            TokenSource all = new TokenSource(Lexer.forSource(edited));
+            return new Relexed(all, 0, this.count, all.count);
+        }
+
+        int newEnd = result.count;
+        int kept = this.count - oldEnd;
+        if (newEnd + kept > result.kinds.length) {
+            result.grow(newEnd + kept);
+        }
+        System.arraycopy(this.kinds, oldEnd, result.kinds, newEnd, kept);
+        System.arraycopy(this.subtypes, oldEnd, result.subtypes, newEnd, kept);
+        System.arraycopy(this.lengths, oldEnd, result.lengths, newEnd, kept);
+        for (int i = 0; i < kept; i++) {
+            result.starts[newEnd + i] = this.starts[oldEnd + i] + delta;
+        }
+        result.count = newEnd + kept;
+        return new Relexed(result, first, oldEnd, newEnd);
+    }
+
+    /// {@return the number of tokens ending before the given offset}
+    private int endingBefore(int offset) {
+        int low = 0;
+        int high = this.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (end(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int end(int index) {
+        return this.starts[index] + this.lengths[index];
     }
 
-    TokenSource(List<Token> tokens) {
-        this.tokens = List.copyOf(tokens);
+    /// {@return where the token with the given index is stored}
+    private int slot(int index) {
+        // the window is a power of two, so this is the index modulo the window size
+        return this.streaming ? index & (WINDOW - 1) : index;
     }
 
+    /// {@return the next token, materialized as an object}
     public Token peek() {
         expectHasMore();
-        return this.tokens.get(this.idx);
+        return token(this.idx);
+    }
+
+    public TokenKind peekKind() {
+        expectHasMore();
+        return KINDS[this.kinds[slot(this.idx)]];
+    }
+
+    /// {@return the type of the next token if it is an operator, `null` otherwise}
+    public @Nullable OperatorType peekOperator() {
+        return peekKind() == TokenKind.OPERATOR ? OPERATOR_TYPES[this.subtypes[slot(this.idx)]] : null;
+    }
+
+    public boolean isKeyword(KeywordType type) {
+        return peekKind() == TokenKind.KEYWORD && this.subtypes[slot(this.idx)] == type.ordinal();
+    }
+
+    public boolean isOperator(OperatorType type) {
+        return peekKind() == TokenKind.OPERATOR && this.subtypes[slot(this.idx)] == type.ordinal();
+    }
+
+    public boolean isSeparator(SeparatorType type) {
+        return peekKind() == TokenKind.SEPARATOR && this.subtypes[slot(this.idx)] == type.ordinal();
+    }
+
+    /// {@return the index of the keyword}
+    public int expectKeyword(KeywordType type) {
+        if (!isKeyword(type)) {
+            throw new ParseException("expected keyword '" + type + "' but got " + peek());
+        }
+        return consume();
     }
 
-    public Keyword expectKeyword(KeywordType type) {
-        Token token = peek();
-        if (!(token instanceof Keyword kw) || kw.type() != type) {
-            throw new ParseException("expected keyword '" + type + "' but got " + token);
+    /// {@return the index of the separator}
+    public int expectSeparator(SeparatorType type) {
+        if (!isSeparator(type)) {
+            throw new ParseException("expected separator '" + type + "' but got " + peek());
         }
-        this.idx++;
-        return kw;
+        return consume();
     }
 
-    public Separator expectSeparator(SeparatorType type) {
-        Token token = peek();
-        if (!(token instanceof Separator sep) || sep.type() != type) {
-            throw new ParseException("expected separator '" + type + "' but got " + token);
+    /// {@return the index of the operator}
+    public int expectOperator(OperatorType type) {
+        if (!isOperator(type)) {
+            throw new ParseException("expected operator '" + type + "' but got " + peek());
         }
-        this.idx++;
-        return sep;
+        return consume();
     }
 
-    public Operator expectOperator(OperatorType type) {
-        Token token = peek();
-        if (!(token instanceof Operator op) || op.type() != type) {
-            throw new ParseException("expected operator '" + type + "' but got " + token);
+    /// {@return the index of the identifier}
+    public int expectIdentifier() {
+        if (peekKind() != TokenKind.IDENTIFIER) {
+            throw new ParseException("expected identifier but got " + peek());
         }
-        this.idx++;
-        return op;
+        return consume();
+    }
+
+    /// {@return the index of the next token}
+    int position() {
+        return this.idx;
     }
 
-    public Identifier expectIdentifier() {
-        Token token = peek();
-        if (!(token instanceof Identifier ident)) {
-            throw new ParseException("expected identifier but got " + token);
+    /// Makes the token with the given index the next one, so parsing continues there.
+    void seek(int index) {
+        if (this.streaming) {
+            throw new IllegalStateException("cannot seek in a streaming token source");
         }
-        this.idx++;
-        return ident;
+        this.idx = index;
+    }
+
+    boolean isSeparator(int index, SeparatorType type) {
+        checkBuffered(index);
+        int slot = slot(index);
+        return this.kinds[slot] == TokenKind.SEPARATOR.ordinal() && this.subtypes[slot] == type.ordinal();
+    }
+
+    /// Skips the next token.
+    ///
+    /// @return the index of the skipped token, e.g. to get its [#span(int)]
+    public int consume() {
+        expectHasMore();
+        return this.idx++;
     }
 
-    public Token consume() {
-        Token token = peek();
-        this.idx++;
-        return token;
+    /// {@return the number of tokens in the whole input}
+    ///
+    /// When streaming, this only counts the tokens the parser has seen so far.
+    public int tokenCount() {
+        return this.count;
     }
 
     public boolean hasMore() {
-        return this.idx < this.tokens.size();
+        while (this.idx >= this.count && !this.exhausted) {
+            this.exhausted = !pull();
+        }
+        return this.idx < this.count;
     }
 
     private void expectHasMore() {
-        if (this.idx >= this.tokens.size()) {
+        if (!hasMore()) {
             throw new ParseException("reached end of file");
         }
     }
+
+    /// {@return the token with the given index, materialized as an object}
+    ///
+    /// @throws IndexOutOfBoundsException if the token wasn't read yet, or isn't buffered anymore
+    public Token token(int index) {
+        Span span = span(index);
+        int subtype = this.subtypes[slot(index)];
+        return switch (KINDS[this.kinds[slot(index)]]) {
+            case ERROR -> new ErrorToken(text(index), span);
+            case IDENTIFIER -> new Identifier(text(index), span);
+            case KEYWORD -> new Keyword(KEYWORD_TYPES[subtype], span);
+            case NUMBER -> new NumberLiteral(text(index), subtype, span);
+            case OPERATOR -> new Operator(OPERATOR_TYPES[subtype], span);
+            case SEPARATOR -> new Separator(SEPARATOR_TYPES[subtype], span);
+        };
+    }
+
+    /// {@return the interned name of the identifier with the given index}
+    public Name name(int index) {
+        checkBuffered(index);
+        int slot = slot(index);
+        return this.symbols.intern(this.source, this.starts[slot], this.lengths[slot]);
+    }
+
+    private String text(int index) {
+        int slot = slot(index);
+        return this.source.substring(this.starts[slot], this.starts[slot] + this.lengths[slot]);
+    }
+
+    /// {@return the subtype of the token with the given index, see [TokenCursor#subtype()]}
+    public int subtype(int index) {
+        checkBuffered(index);
+        return this.subtypes[slot(index)];
+    }
+
+    public SourceFile source() {
+        return this.source;
+    }
+
+    public SymbolTable symbols() {
+        return this.symbols;
+    }
+
+    /// {@return the span of the token with the given index, allocates a new span}
+    ///
+    /// @throws IndexOutOfBoundsException if the token wasn't read yet, or isn't buffered anymore
+    public Span span(int index) {
+        return new Span.PackedSpan(offsets(index), this.lineIndex);
+    }
+
+    /// {@return the [Span#pack packed] offsets of the [#span(int) span] of the token with the given index}
+    ///
+    /// @throws IndexOutOfBoundsException if the token wasn't read yet, or isn't buffered anymore
+    public long offsets(int index) {
+        checkBuffered(index);
+        int slot = slot(index);
+        int start = this.starts[slot];
+        int length = this.lengths[slot];
+        if (this.kinds[slot] == TokenKind.ERROR.ordinal() && this.subtypes[slot] == ByteLexer.UNTERMINATED_COMMENT) {
+            start += length;
+            length = 0;
+        }
+        return Span.pack(start, start + length);
+    }
+
+    private void checkBuffered(int index) {
+        if (index >= this.count || this.streaming && index < this.count - WINDOW) {
+            throw new IndexOutOfBoundsException("token " + index + " is not buffered");
+        }
+    }
 }
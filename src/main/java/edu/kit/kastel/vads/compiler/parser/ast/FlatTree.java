@@ -0,0 +1,339 @@
+package edu.kit.kastel.vads.compiler.parser.ast;
+
+import edu.kit.kastel.vads.compiler.LineIndex;
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.lexer.KeywordType;
+import edu.kit.kastel.vads.compiler.lexer.Operator;
+import edu.kit.kastel.vads.compiler.lexer.Operator.OperatorType;
+import edu.kit.kastel.vads.compiler.parser.symbol.Name;
+import edu.kit.kastel.vads.compiler.parser.symbol.SymbolTable;
+import edu.kit.kastel.vads.compiler.parser.type.BasicType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+
+/// An AST packed into parallel arrays instead of one object per node.
+///
+/// Nodes are referred to by their index, which works like a cursor: the accessors take the index of a
+/// node and tell its [TreeKind], the indices of its first child and of its next sibling, its span and
+/// one `int` of data, whose meaning depends on the kind:
+/// - [TreeKind#NAME]: the id of the [Name] in the [SymbolTable]
+/// - [TreeKind#LITERAL]: the base, the digits are the text of its span
+/// - [TreeKind#BINARY_OPERATION] and [TreeKind#OPERATOR]: the ordinal of the [OperatorType]
+/// - [TreeKind#TYPE]: the ordinal of the [BasicType]
+///
+/// A node has the children of the corresponding [Tree] in the same order, an assignment additionally
+/// has its [TreeKind#OPERATOR] between the lvalue and the expression. The span of a node is that of
+/// the tree. Nodes are stored in postorder: every node comes right after its last child, the nodes of a
+/// subtree are contiguous, and the root is the last node. Passes visiting children before their parent
+/// can simply iterate over the indices.
+///
+/// The [Tree] of a node is created on demand by [#toTree(int)].
+public final class FlatTree {
+    /// The index standing for a missing child or sibling.
+    public static final int NONE = -1;
+    private static final TreeKind[] KINDS = TreeKind.values();
+    private static final OperatorType[] OPERATOR_TYPES = OperatorType.values();
+    private static final BasicType[] BASIC_TYPES = BasicType.values();
+
+    private final SourceFile source;
+    private final LineIndex lines;
+    private final SymbolTable symbols;
+    private final byte[] kinds;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final long[] offsets;
+    private final int[] data;
+    private final int size;
+
+    private FlatTree(Builder builder) {
+        this.source = builder.source;
+        this.lines = builder.source.lineIndex();
+        this.symbols = builder.symbols;
+        this.kinds = builder.kinds;
+        this.firstChildren = builder.firstChildren;
+        this.nextSiblings = builder.nextSiblings;
+        this.offsets = builder.offsets;
+        this.data = builder.data;
+        this.size = builder.size;
+    }
+
+    public SourceFile source() {
+        return this.source;
+    }
+
+    /// {@return the number of nodes}
+    public int size() {
+        return this.size;
+    }
+
+    /// {@return the index of the root, the last node}
+    public int root() {
+        return this.size - 1;
+    }
+
+    public TreeKind kind(int node) {
+        return KINDS[this.kinds[node]];
+    }
+
+    /// {@return the index of the first child of the node, or [#NONE]}
+    public int firstChild(int node) {
+        return this.firstChildren[node];
+    }
+
+    /// {@return the index of the next child of the node's parent, or [#NONE]}
+    public int nextSibling(int node) {
+        return this.nextSiblings[node];
+    }
+
+    /// {@return the index of the child at the given position}
+    ///
+    /// @throws IndexOutOfBoundsException if the node has fewer children
+    public int child(int node, int index) {
+        int child = this.firstChildren[node];
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = this.nextSiblings[child];
+        }
+        if (child == NONE) {
+            throw new IndexOutOfBoundsException("node " + node + " has no child " + index);
+        }
+        return child;
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = this.firstChildren[node]; child != NONE; child = this.nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    /// {@return the indices of the node's children}
+    public int[] children(int node) {
+        int[] children = new int[childCount(node)];
+        int child = this.firstChildren[node];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = child;
+            child = this.nextSiblings[child];
+        }
+        return children;
+    }
+
+    /// {@return the index of the first node of the subtree rooted at the given node}
+    ///
+    /// The subtree consists of the nodes from there up to the given one.
+    public int subtreeStart(int node) {
+        int start = node;
+        while (this.firstChildren[start] != NONE) {
+            start = this.firstChildren[start];
+        }
+        return start;
+    }
+
+    /// {@return the [Span#pack packed] offsets of the node's span}
+    public long offsets(int node) {
+        return this.offsets[node];
+    }
+
+    /// {@return the span of the node, allocates a new span}
+    public Span span(int node) {
+        return new Span.PackedSpan(this.offsets[node], this.lines);
+    }
+
+    /// {@return the source text of the node's span}
+    public String text(int node) {
+        long offsets = this.offsets[node];
+        return this.source.substring(Span.startOffset(offsets), Span.endOffset(offsets));
+    }
+
+    /// {@return the name of a [TreeKind#NAME] node}
+    public Name name(int node) {
+        return this.symbols.name(nameId(node));
+    }
+
+    /// {@return the id of the name of a [TreeKind#NAME] node}
+    public int nameId(int node) {
+        assert kind(node) == TreeKind.NAME : "not a name: " + kind(node);
+        return this.data[node];
+    }
+
+    /// {@return the operator of a [TreeKind#BINARY_OPERATION] or [TreeKind#OPERATOR] node}
+    public OperatorType operatorType(int node) {
+        assert kind(node) == TreeKind.BINARY_OPERATION || kind(node) == TreeKind.OPERATOR
+                : "not an operator: " + kind(node);
+        return OPERATOR_TYPES[this.data[node]];
+    }
+
+    /// {@return the value of a [TreeKind#LITERAL] node, see [LiteralTree#parseValue()]}
+    public OptionalLong parseLiteral(int node) {
+        assert kind(node) == TreeKind.LITERAL : "not a literal: " + kind(node);
+        long offsets = this.offsets[node];
+        return LiteralTree.parseValue(this.source, Span.startOffset(offsets), Span.endOffset(offsets),
+                this.data[node]);
+    }
+
+    /// {@return the tree of the program}
+    public ProgramTree toProgramTree() {
+        return (ProgramTree) toTree(root());
+    }
+
+    /// Creates the tree of the subtree rooted at the given node.
+    ///
+    /// A [TreeKind#OPERATOR] is part of its assignment and has no tree of its own.
+    public Tree toTree(int node) {
+        if (kind(node) == TreeKind.OPERATOR) {
+            throw new IllegalArgumentException("operators have no tree of their own");
+        }
+        // trees of the nodes whose parent wasn't reached yet, in postorder there's no need to recurse
+        List<Tree> trees = new ArrayList<>();
+        for (int i = subtreeStart(node); i <= node; i++) {
+            if (kind(i) != TreeKind.OPERATOR) {
+                trees.add(tree(i, trees));
+            }
+        }
+        return trees.getLast();
+    }
+
+    /// Creates the tree of a node from the trees of its children, which are removed from the stack.
+    private Tree tree(int node, List<Tree> stack) {
+        Span span = span(node);
+        return switch (kind(node)) {
+            case ASSIGNMENT -> {
+                ExpressionTree expression = (ExpressionTree) stack.removeLast();
+                LValueTree lValue = (LValueTree) stack.removeLast();
+                int operator = this.nextSiblings[this.firstChildren[node]];
+                yield new AssignmentTree(lValue, new Operator(operatorType(operator), span(operator)), expression);
+            }
+            case BINARY_OPERATION -> {
+                ExpressionTree rhs = (ExpressionTree) stack.removeLast();
+                ExpressionTree lhs = (ExpressionTree) stack.removeLast();
+                yield new BinaryOperationTree(lhs, rhs, operatorType(node));
+            }
+            case BLOCK -> new BlockTree(pop(stack, childCount(node), StatementTree.class), span);
+            case DECLARATION -> {
+                ExpressionTree initializer = childCount(node) == 3 ? (ExpressionTree) stack.removeLast() : null;
+                NameTree name = (NameTree) stack.removeLast();
+                yield new DeclarationTree((TypeTree) stack.removeLast(), name, initializer);
+            }
+            case FUNCTION -> {
+                BlockTree body = (BlockTree) stack.removeLast();
+                NameTree name = (NameTree) stack.removeLast();
+                yield new FunctionTree((TypeTree) stack.removeLast(), name, body);
+            }
+            case IDENT_EXPRESSION -> new IdentExpressionTree((NameTree) stack.removeLast());
+            case LITERAL -> new LiteralTree(text(node), this.data[node], span);
+            case LVALUE_IDENT -> new LValueIdentTree((NameTree) stack.removeLast());
+            case NAME -> new NameTree(name(node), span);
+            case NEGATE -> {
+                int start = Span.startOffset(this.offsets[node]);
+                yield new NegateTree((ExpressionTree) stack.removeLast(),
+                        new Span.PackedSpan(start, start + 1, this.lines));
+            }
+            case OPERATOR -> throw new IllegalArgumentException("operators have no tree of their own");
+            case PROGRAM -> new ProgramTree(pop(stack, childCount(node), FunctionTree.class));
+            case RETURN -> {
+                int start = Span.startOffset(this.offsets[node]);
+                int end = start + KeywordType.RETURN.keyword().length();
+                yield new ReturnTree((ExpressionTree) stack.removeLast(), new Span.PackedSpan(start, end, this.lines));
+            }
+            case TYPE -> new TypeTree(BASIC_TYPES[this.data[node]], span);
+        };
+    }
+
+    private static <T extends Tree> List<T> pop(List<Tree> stack, int count, Class<T> type) {
+        List<Tree> top = stack.subList(stack.size() - count, stack.size());
+        List<T> trees = top.stream().map(type::cast).toList();
+        top.clear();
+        return trees;
+    }
+
+    /// Adds nodes in postorder, e.g. while parsing.
+    ///
+    /// Every node takes the latest nodes that aren't children yet as its children, like an operator
+    /// in postfix notation takes its operands from a stack.
+    public static final class Builder {
+        private final SourceFile source;
+        private final SymbolTable symbols;
+        private byte[] kinds;
+        private int[] firstChildren;
+        private int[] nextSiblings;
+        private long[] offsets;
+        private int[] data;
+        private int size;
+        /// The nodes that aren't children of another node yet.
+        private int[] roots = new int[16];
+        private int rootCount;
+
+        /// @param symbols the symbol table the ids of names refer to
+        /// @param capacity the number of nodes to make room for upfront. There are about as many nodes as
+        ///     tokens, as most tokens become a node and most nodes without a token of their own replace
+        ///     one that doesn't, like a declaration replaces its semicolon.
+        public Builder(SourceFile source, SymbolTable symbols, int capacity) {
+            this.source = source;
+            this.symbols = symbols;
+            capacity = Math.max(16, capacity);
+            this.kinds = new byte[capacity];
+            this.firstChildren = new int[capacity];
+            this.nextSiblings = new int[capacity];
+            this.offsets = new long[capacity];
+            this.data = new int[capacity];
+        }
+
+        /// Adds a node whose children are the last `children` nodes without a parent.
+        ///
+        /// @param offsets the [Span#pack packed] offsets of the node's span
+        /// @return the index of the node
+        public int add(TreeKind kind, long offsets, int data, int children) {
+            if (children > this.rootCount) {
+                throw new IllegalStateException("only " + this.rootCount + " nodes without a parent");
+            }
+            if (this.size == this.kinds.length) {
+                grow();
+            }
+            int node = this.size++;
+            int first = this.rootCount - children;
+            for (int i = first; i < this.rootCount - 1; i++) {
+                this.nextSiblings[this.roots[i]] = this.roots[i + 1];
+            }
+            this.kinds[node] = (byte) kind.ordinal();
+            this.firstChildren[node] = children == 0 ? NONE : this.roots[first];
+            this.nextSiblings[node] = NONE;
+            this.offsets[node] = offsets;
+            this.data[node] = data;
+            this.rootCount = first;
+            if (this.rootCount == this.roots.length) {
+                this.roots = Arrays.copyOf(this.roots, this.rootCount * 2);
+            }
+            this.roots[this.rootCount++] = node;
+            return node;
+        }
+
+        /// {@return the [Span#pack packed] offsets from the start of the first to the end of the last of
+        /// the last `count` nodes without a parent}
+        public long spanOfLast(int count) {
+            long first = this.offsets[this.roots[this.rootCount - count]];
+            long last = this.offsets[this.roots[this.rootCount - 1]];
+            return Span.pack(Span.startOffset(first), Span.endOffset(last));
+        }
+
+        /// {@return the tree of the nodes added so far}
+        ///
+        /// The tree shares the arrays of this builder, so later nodes may still link its nodes as their
+        /// children.
+        public FlatTree build() {
+            return new FlatTree(this);
+        }
+
+        private void grow() {
+            int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+            this.nextSiblings = Arrays.copyOf(this.nextSiblings, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.data = Arrays.copyOf(this.data, capacity);
+        }
+    }
+}
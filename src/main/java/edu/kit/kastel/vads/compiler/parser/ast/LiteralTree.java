@@ -11,18 +11,22 @@ public record LiteralTree(String value, int base, Span span) implements Expressi
     }
 
     public OptionalLong parseValue() {
-        int end = value.length();
+        return parseValue(value, 0, value.length(), base);
+    }
+
+    /// Parses the digits of a literal in the given range of characters, like [#parseValue()].
+    public static OptionalLong parseValue(CharSequence value, int start, int end, int base) {
         return switch (base) {
-            case 16 -> parseHex(end);
-            case 10 -> parseDec(end);
+            case 16 -> parseHex(value, start, end);
+            case 10 -> parseDec(value, start, end);
             default -> throw new IllegalArgumentException("unexpected base " + base);
         };
     }
 
-    private OptionalLong parseDec(int end) {
+    private static OptionalLong parseDec(CharSequence value, int start, int end) {
         long l;
         try {
-            l = Long.parseLong(value, 0, end, base);
+            l = Long.parseLong(value, start, end, 10);
         } catch (NumberFormatException _) {
             return OptionalLong.empty();
         }
@@ -32,9 +36,9 @@ public record LiteralTree(String value, int base, Span span) implements Expressi
         return OptionalLong.of(l);
     }
 
-    private OptionalLong parseHex(int end) {
+    private static OptionalLong parseHex(CharSequence value, int start, int end) {
         try {
-            return OptionalLong.of(Integer.parseUnsignedInt(value, 2, end, 16));
+            return OptionalLong.of(Integer.parseUnsignedInt(value, start + 2, end, 16));
         } catch (NumberFormatException e) {
             return OptionalLong.empty();
         }
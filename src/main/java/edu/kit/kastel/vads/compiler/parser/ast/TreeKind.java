@@ -0,0 +1,20 @@
+package edu.kit.kastel.vads.compiler.parser.ast;
+
+/// The kinds of nodes in a [FlatTree], one for each kind of [Tree].
+public enum TreeKind {
+    ASSIGNMENT,
+    BINARY_OPERATION,
+    BLOCK,
+    DECLARATION,
+    FUNCTION,
+    IDENT_EXPRESSION,
+    LITERAL,
+    LVALUE_IDENT,
+    NAME,
+    NEGATE,
+    /// The operator of an assignment, which [AssignmentTree] keeps as a token.
+    OPERATOR,
+    PROGRAM,
+    RETURN,
+    TYPE
+}
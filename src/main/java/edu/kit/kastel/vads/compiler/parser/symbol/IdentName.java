@@ -1,8 +1,20 @@
 package edu.kit.kastel.vads.compiler.parser.symbol;
 
-record IdentName(String identifier) implements Name {
+/// Created by [SymbolTable#intern], which gives every identifier a single id.
+/// Names are compared by their id only, the identifier is just kept for printing.
+record IdentName(int id, String identifier) implements Name {
     @Override
     public String asString() {
         return identifier();
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof IdentName other && other.id == this.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.id;
+    }
 }
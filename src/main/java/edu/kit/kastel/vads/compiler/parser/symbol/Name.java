@@ -1,6 +1,5 @@
 package edu.kit.kastel.vads.compiler.parser.symbol;
 
-import edu.kit.kastel.vads.compiler.lexer.Identifier;
 import edu.kit.kastel.vads.compiler.lexer.Keyword;
 
 public sealed interface Name permits IdentName, KeywordName {
@@ -9,9 +8,10 @@ public sealed interface Name permits IdentName, KeywordName {
         return new KeywordName(keyword.type());
     }
 
-    static Name forIdentifier(Identifier identifier) {
-        return new IdentName(identifier.value());
-    }
+    /// {@return the dense id of this name in its [SymbolTable]}
+    ///
+    /// Keywords use their ordinal, so the ids of identifiers start after the last keyword.
+    int id();
 
     String asString();
 }
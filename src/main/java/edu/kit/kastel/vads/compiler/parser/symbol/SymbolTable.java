@@ -0,0 +1,116 @@
+package edu.kit.kastel.vads.compiler.parser.symbol;
+
+import edu.kit.kastel.vads.compiler.lexer.KeywordType;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/// Interns the identifiers of a compilation to dense `int` ids, so names are compared and hashed as
+/// integers by all later phases.
+///
+/// Identifiers are looked up directly in the source text. Only the first occurrence of an identifier
+/// creates a [String] and a [Name], all later occurrences return the same [Name] instance.
+public final class SymbolTable {
+    private static final KeywordType[] KEYWORDS = KeywordType.values();
+
+    /// The names by their id.
+    private Name[] names = new Name[64];
+    private int[] hashes = new int[64];
+    private int count;
+    /// Open addressing hash table holding `id + 1` of each name, `0` marks free slots.
+    private int[] slots = new int[128];
+
+    public SymbolTable() {
+        for (KeywordType keyword : KEYWORDS) {
+            String spelling = keyword.keyword();
+            int hash = hash(spelling, 0, spelling.length());
+            // the keywords get their ordinals as ids, identifiers the ids after them
+            add(freeSlot(hash), hash, new KeywordName(keyword));
+        }
+    }
+
+    /// {@return the name spelled by the given range of characters}
+    public Name intern(CharSequence source, int start, int length) {
+        int hash = hash(source, start, length);
+        int mask = this.slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = this.slots[slot] - 1;
+            if (id < 0) {
+                String identifier = source.subSequence(start, start + length).toString();
+                return add(slot, hash, new IdentName(this.count, identifier));
+            }
+            if (this.hashes[id] == hash && matches(this.names[id].asString(), source, start, length)) {
+                return this.names[id];
+            }
+        }
+    }
+
+    public Name intern(String identifier) {
+        return intern(identifier, 0, identifier.length());
+    }
+
+    /// {@return the name with the given id}
+    ///
+    /// @throws IndexOutOfBoundsException if no name has that id
+    public Name name(int id) {
+        return this.names[Objects.checkIndex(id, this.count)];
+    }
+
+    /// {@return the number of ids handed out so far, including the keywords}
+    public int size() {
+        return this.count;
+    }
+
+    private Name add(int slot, int hash, Name name) {
+        if (this.count == this.names.length) {
+            this.names = Arrays.copyOf(this.names, this.count * 2);
+            this.hashes = Arrays.copyOf(this.hashes, this.count * 2);
+        }
+        this.names[this.count] = name;
+        this.hashes[this.count] = hash;
+        this.count++;
+        this.slots[slot] = this.count;
+        // keep the table at most half full, so probe sequences stay short
+        if (this.count * 2 > this.slots.length) {
+            rehash();
+        }
+        return name;
+    }
+
+    private void rehash() {
+        this.slots = new int[this.slots.length * 2];
+        for (int id = 0; id < this.count; id++) {
+            this.slots[freeSlot(this.hashes[id])] = id + 1;
+        }
+    }
+
+    private int freeSlot(int hash) {
+        int mask = this.slots.length - 1;
+        int slot = hash & mask;
+        while (this.slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(CharSequence source, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source.charAt(start + i);
+        }
+        // spread the higher bits, the table only looks at the lower ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence source, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// A single analysis of the fused [semantic analysis][SemanticAnalysisEvent] pass.
+///
+/// The analyses run interleaved, so each event spans the whole scan. How much of it an analysis took
+/// is not measured, as timing each visit would cost more than the visits themselves, but
+/// [#visitedNodes] shows how the work is split between the analyses.
+@Name("edu.kit.kastel.vads.compiler.Analysis")
+@Label("Analysis")
+@Category("L1 Compiler")
+@Description("A single analysis of the semantic analysis pass")
+@StackTrace(false)
+public class AnalysisEvent extends Event {
+    @Label("Analysis")
+    @Description("Name of the analysis")
+    public String analysis = "";
+
+    @Label("Visited Nodes")
+    @Description("Number of nodes of the kinds the analysis checks it was run on")
+    public int visitedNodes;
+
+    @Label("Stopped")
+    @Description("Whether the analysis was stopped early, because it or an analysis before it failed")
+    public boolean stopped;
+}
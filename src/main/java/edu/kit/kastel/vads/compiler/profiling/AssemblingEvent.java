@@ -0,0 +1,23 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// Assembling and linking with the builtin assembler.
+@Name("edu.kit.kastel.vads.compiler.Assembling")
+@Label("Assembling")
+@Category("L1 Compiler")
+@Description("Assembling and linking with the builtin assembler")
+@StackTrace(false)
+public class AssemblingEvent extends Event {
+    @Label("Assembly Length")
+    public int assemblyLength;
+
+    @Label("Code Size")
+    @Description("Number of bytes of machine code")
+    public int codeSize;
+}
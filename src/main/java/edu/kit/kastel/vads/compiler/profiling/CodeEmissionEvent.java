@@ -0,0 +1,27 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// Emitting the assembly for a function.
+@Name("edu.kit.kastel.vads.compiler.CodeEmission")
+@Label("Code Emission")
+@Category("L1 Compiler")
+@Description("Emitting the assembly for a function")
+@StackTrace(false)
+public class CodeEmissionEvent extends Event {
+    @Label("Function")
+    public String function = "";
+
+    @Label("Node Count")
+    @Description("Number of nodes that were assigned a register")
+    public int nodeCount;
+
+    @Label("Assembly Length")
+    @Description("Number of characters emitted")
+    public int assemblyLength;
+}
@@ -0,0 +1,23 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// Assembling and linking with an external gcc process.
+@Name("edu.kit.kastel.vads.compiler.Gcc")
+@Label("GCC")
+@Category("L1 Compiler")
+@Description("Assembling and linking with an external gcc process")
+@StackTrace(false)
+public class GccEvent extends Event {
+    @Label("Assembly File")
+    public String assemblyFile = "";
+
+    @Label("Exit Code")
+    @Description("-1 if gcc could not be started")
+    public int exitCode;
+}
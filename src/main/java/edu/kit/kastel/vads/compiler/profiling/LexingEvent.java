@@ -0,0 +1,37 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/// Turning the source into tokens.
+///
+/// When the parser pulls tokens from the lexer as it goes, lexing interleaves with parsing: the event
+/// is committed once parsing is done, spans the [ParsingEvent] and only [#lexingTime] was spent in
+/// the lexer.
+@Name("edu.kit.kastel.vads.compiler.Lexing")
+@Label("Lexing")
+@Category("L1 Compiler")
+@Description("Turning the source into tokens")
+@StackTrace(false)
+public class LexingEvent extends Event {
+    @Label("Source Length")
+    @Description("Number of characters in the source")
+    public int sourceLength;
+
+    @Label("Token Count")
+    public int tokenCount;
+
+    @Label("Streaming")
+    @Description("Whether lexing interleaved with parsing")
+    public boolean streaming;
+
+    @Label("Lexing Time")
+    @Description("Time spent in the lexer, less than the duration if lexing interleaved with parsing")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lexingTime;
+}
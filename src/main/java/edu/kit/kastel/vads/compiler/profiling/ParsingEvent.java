@@ -0,0 +1,23 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// Building the syntax tree from the tokens, including lexing unless the source was tokenized upfront
+/// (see [LexingEvent#lexingTime]).
+@Name("edu.kit.kastel.vads.compiler.Parsing")
+@Label("Parsing")
+@Category("L1 Compiler")
+@Description("Building the syntax tree from the tokens")
+@StackTrace(false)
+public class ParsingEvent extends Event {
+    @Label("Token Count")
+    public int tokenCount;
+
+    @Label("Function Count")
+    public int functionCount;
+}
@@ -0,0 +1,210 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sun.management.ThreadMXBean;
+
+/// Measures wall time, allocated bytes and peak heap usage of compiler phases.
+///
+/// Phases are identified by their name, sub-phases use `/` to separate the name of their parent, e.g.
+/// `register allocation/liveness`. A phase that runs several times (e.g. once per function) is reported
+/// once with the sum of its time and allocations and the maximum of its peak heap usage.
+///
+/// Allocations are measured on the thread that opened the phase, so a phase must be closed on the same
+/// thread and work that is handed to other threads has to be measured there. Phases running on different
+/// threads may overlap, the profiler is thread-safe.
+public final class PhaseProfiler {
+    private static final PhaseProfiler DISABLED = new PhaseProfiler(false);
+    private static final Phase NO_PHASE = () -> {
+    };
+
+    /// Only initialized once a profiler is enabled, loading the management beans takes a while.
+    private static final class Beans {
+        private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    private final boolean enabled;
+    private final Map<String, Summary> summaries = new LinkedHashMap<>();
+    private final Set<RunningPhase> running = new HashSet<>();
+
+    private PhaseProfiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static PhaseProfiler create() {
+        return new PhaseProfiler(true);
+    }
+
+    /// {@return a profiler that doesn't measure anything and has no overhead}
+    public static PhaseProfiler disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /// A running phase, closing it ends the measurement.
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /// The accumulated measurements of all runs of a phase.
+    ///
+    /// @param count how often the phase ran
+    /// @param wallNanos the sum of the wall time of all runs
+    /// @param allocatedBytes the sum of the bytes allocated by all runs
+    /// @param peakHeapBytes the highest heap usage during any run
+    public record Summary(String name, int count, long wallNanos, long allocatedBytes, long peakHeapBytes) {
+        private Summary add(long wallNanos, long allocatedBytes, long peakHeapBytes) {
+            return new Summary(this.name, this.count + 1, this.wallNanos + wallNanos,
+                    this.allocatedBytes + allocatedBytes, Math.max(this.peakHeapBytes, peakHeapBytes));
+        }
+
+        private int depth() {
+            return (int) this.name.chars().filter(c -> c == '/').count();
+        }
+
+        private String shortName() {
+            return this.name.substring(this.name.lastIndexOf('/') + 1);
+        }
+    }
+
+    /// Starts measuring a phase, use it in a try-with-resources statement.
+    public Phase phase(String name) {
+        if (!this.enabled) {
+            return NO_PHASE;
+        }
+        RunningPhase phase = new RunningPhase(name, Thread.currentThread());
+        synchronized (this) {
+            // keep the report in the order phases were started, parents come before their children
+            this.summaries.putIfAbsent(name, new Summary(name, 0, 0, 0, 0));
+            collectPeak();
+            this.running.add(phase);
+        }
+        phase.startAllocated = Beans.THREADS.getCurrentThreadAllocatedBytes();
+        phase.startNanos = System.nanoTime();
+        return phase;
+    }
+
+    /// Records a phase that happened outside of this JVM, e.g. an external process. Only wall time is known.
+    public void recordExternal(String name, long wallNanos) {
+        if (!this.enabled) {
+            return;
+        }
+        synchronized (this) {
+            this.summaries.merge(name, new Summary(name, 1, wallNanos, 0, 0),
+                    (old, _) -> old.add(wallNanos, 0, 0));
+        }
+    }
+
+    /// The memory pools only track a single peak, so every time it is reset the peak is handed to all
+    /// phases that are still running. Like this, overlapping phases each see the peak of their whole run.
+    private void collectPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : Beans.HEAP_POOLS) {
+            peak += pool.getPeakUsage().getUsed();
+            pool.resetPeakUsage();
+        }
+        for (RunningPhase phase : this.running) {
+            phase.peakHeap = Math.max(phase.peakHeap, peak);
+        }
+    }
+
+    private final class RunningPhase implements Phase {
+        private final String name;
+        private final Thread thread;
+        private long startNanos;
+        private long startAllocated;
+        private long peakHeap;
+
+        RunningPhase(String name, Thread thread) {
+            this.name = name;
+            this.thread = thread;
+        }
+
+        @Override
+        public void close() {
+            long wallNanos = System.nanoTime() - this.startNanos;
+            if (Thread.currentThread() != this.thread) {
+                throw new IllegalStateException("phase " + this.name + " must be closed by the thread that opened it");
+            }
+            long allocated = Beans.THREADS.getCurrentThreadAllocatedBytes() - this.startAllocated;
+            synchronized (PhaseProfiler.this) {
+                collectPeak();
+                PhaseProfiler.this.running.remove(this);
+                PhaseProfiler.this.summaries.computeIfPresent(this.name,
+                        (_, old) -> old.add(wallNanos, allocated, this.peakHeap));
+            }
+        }
+    }
+
+    /// {@return the measurements of all phases, in the order they were first started}
+    public synchronized List<Summary> summaries() {
+        return new ArrayList<>(this.summaries.values());
+    }
+
+    /// Prints a human-readable table of all phases, sub-phases are indented below their parent.
+    public void report(PrintStream out) {
+        out.println("===-------------------------------------------------------------------------===");
+        out.println("                            Compiler phase report");
+        out.println("===-------------------------------------------------------------------------===");
+        out.printf("%12s %12s %15s %7s  %s%n", "Time (ms)", "Alloc (MiB)", "Peak heap (MiB)", "Count", "Phase");
+        for (Summary summary : summaries()) {
+            out.printf("%12.3f %12.3f %15.3f %7d  %s%s%n",
+                    summary.wallNanos() / 1e6,
+                    summary.allocatedBytes() / (1024.0 * 1024.0),
+                    summary.peakHeapBytes() / (1024.0 * 1024.0),
+                    summary.count(),
+                    "  ".repeat(summary.depth()),
+                    summary.shortName());
+        }
+    }
+
+    /// {@return all measurements as a JSON document}
+    public String toJson() {
+        StringBuilder builder = new StringBuilder("{\n  \"phases\": [");
+        List<Summary> summaries = summaries();
+        for (int i = 0; i < summaries.size(); i++) {
+            Summary summary = summaries.get(i);
+            builder.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(escape(summary.name()))
+                    .append("\", \"count\": ").append(summary.count())
+                    .append(", \"wallNanos\": ").append(summary.wallNanos())
+                    .append(", \"allocatedBytes\": ").append(summary.allocatedBytes())
+                    .append(", \"peakHeapBytes\": ").append(summary.peakHeapBytes())
+                    .append('}');
+        }
+        return builder.append("\n  ]\n}\n").toString();
+    }
+
+    private static String escape(String s) {
+        StringBuilder builder = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"', '\\' -> builder.append('\\').append(c);
+                default -> {
+                    if (c < 0x20) {
+                        builder.append("\\u%04x".formatted((int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+}
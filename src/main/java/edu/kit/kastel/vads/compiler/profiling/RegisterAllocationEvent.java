@@ -0,0 +1,34 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// A single stage of register allocation for a function.
+@Name("edu.kit.kastel.vads.compiler.RegisterAllocation")
+@Label("Register Allocation")
+@Category("L1 Compiler")
+@Description("A single stage of register allocation for a function")
+@StackTrace(false)
+public class RegisterAllocationEvent extends Event {
+    @Label("Function")
+    public String function = "";
+
+    @Label("Stage")
+    @Description("liveness, interference graph, elimination ordering or coloring")
+    public String stage = "";
+
+    @Label("Node Count")
+    public int nodeCount;
+
+    @Label("Edge Count")
+    @Description("Number of interference edges, if known at this stage")
+    public int edgeCount;
+
+    @Label("Color Count")
+    @Description("Number of colors used, if known at this stage")
+    public int colorCount;
+}
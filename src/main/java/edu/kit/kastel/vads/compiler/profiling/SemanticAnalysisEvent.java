@@ -0,0 +1,20 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// The semantic analysis pass over the syntax tree, running all analyses at once.
+@Name("edu.kit.kastel.vads.compiler.SemanticAnalysis")
+@Label("Semantic Analysis")
+@Category("L1 Compiler")
+@Description("The semantic analysis pass over the syntax tree, running all analyses at once")
+@StackTrace(false)
+public class SemanticAnalysisEvent extends Event {
+    @Label("Analyses")
+    @Description("Names of the analyses run in the pass")
+    public String analysis = "";
+}
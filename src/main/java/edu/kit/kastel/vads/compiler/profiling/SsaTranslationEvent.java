@@ -0,0 +1,23 @@
+package edu.kit.kastel.vads.compiler.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// Translating a function into an IR graph.
+@Name("edu.kit.kastel.vads.compiler.SsaTranslation")
+@Label("SSA Translation")
+@Category("L1 Compiler")
+@Description("Translating a function into an IR graph")
+@StackTrace(false)
+public class SsaTranslationEvent extends Event {
+    @Label("Function")
+    public String function = "";
+
+    @Label("Node Count")
+    @Description("Number of nodes reachable from the end block")
+    public int nodeCount;
+}
@@ -0,0 +1,18 @@
+package edu.kit.kastel.vads.compiler.semantic;
+
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
+
+import java.util.Set;
+
+/// A check of the [SemanticAnalysis], looking at the nodes of a [FlatTree] one at a time.
+///
+/// @param <T> the state of the analysis
+interface Analysis<T> {
+
+    /// {@return the kinds of nodes the analysis checks, it isn't called for the other ones}
+    Set<TreeKind> kinds();
+
+    /// Checks a node, after all of its children were checked.
+    void visit(FlatTree tree, int node, T data);
+}
@@ -0,0 +1,67 @@
+package edu.kit.kastel.vads.compiler.semantic;
+
+import edu.kit.kastel.vads.compiler.parser.symbol.Name;
+
+import java.util.Arrays;
+
+/// A [Namespace] for values that fit into a byte, like the ordinals of enum constants, stored
+/// without boxing. Names without a value map to [#ABSENT].
+public class ByteNamespace {
+    public static final byte ABSENT = 0;
+
+    private byte[] values = new byte[64];
+    /// The ids and previous values of the names put inside the open scopes.
+    private int[] undoIds = new int[16];
+    private byte[] undoValues = new byte[16];
+    private int undoCount;
+    /// The undo count at the start of each open scope.
+    private int[] scopes = new int[4];
+    private int scopeCount;
+
+    public void put(Name name, byte value) {
+        put(name.id(), value);
+    }
+
+    public void put(int id, byte value) {
+        if (id >= this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(id + 1, this.values.length * 2));
+        }
+        if (this.scopeCount > 0) {
+            if (this.undoCount == this.undoIds.length) {
+                this.undoIds = Arrays.copyOf(this.undoIds, this.undoCount * 2);
+                this.undoValues = Arrays.copyOf(this.undoValues, this.undoCount * 2);
+            }
+            this.undoIds[this.undoCount] = id;
+            this.undoValues[this.undoCount] = this.values[id];
+            this.undoCount++;
+        }
+        this.values[id] = value;
+    }
+
+    public byte get(Name name) {
+        return get(name.id());
+    }
+
+    public byte get(int id) {
+        return id < this.values.length ? this.values[id] : ABSENT;
+    }
+
+    public void enterScope() {
+        if (this.scopeCount == this.scopes.length) {
+            this.scopes = Arrays.copyOf(this.scopes, this.scopeCount * 2);
+        }
+        this.scopes[this.scopeCount++] = this.undoCount;
+    }
+
+    /// Resets the names put since the matching [#enterScope()], the latest ones first.
+    public void exitScope() {
+        if (this.scopeCount == 0) {
+            throw new IllegalStateException("no scope to exit");
+        }
+        int start = this.scopes[--this.scopeCount];
+        while (this.undoCount > start) {
+            this.undoCount--;
+            this.values[this.undoIds[this.undoCount]] = this.undoValues[this.undoCount];
+        }
+    }
+}
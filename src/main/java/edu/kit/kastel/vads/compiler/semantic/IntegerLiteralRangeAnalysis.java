@@ -1,15 +1,22 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
-import edu.kit.kastel.vads.compiler.parser.ast.LiteralTree;
-import edu.kit.kastel.vads.compiler.parser.visitor.NoOpVisitor;
-import edu.kit.kastel.vads.compiler.parser.visitor.Unit;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
 
-public class IntegerLiteralRangeAnalysis implements NoOpVisitor<Namespace<Void>> {
+import java.util.EnumSet;
+import java.util.Set;
+
+public class IntegerLiteralRangeAnalysis implements Analysis<Namespace<Void>> {
+
+    @Override
+    public Set<TreeKind> kinds() {
+        return EnumSet.of(TreeKind.LITERAL);
+    }
 
     @Override
-    public Unit visit(LiteralTree literalTree, Namespace<Void> data) {
-        literalTree.parseValue()
-                .orElseThrow(() -> new SemanticException("invalid integer literal " + literalTree.value()));
-        return NoOpVisitor.super.visit(literalTree, data);
+    public void visit(FlatTree tree, int node, Namespace<Void> data) {
+        if (tree.kind(node) == TreeKind.LITERAL && tree.parseLiteral(node).isEmpty()) {
+            throw new SemanticException("invalid integer literal " + tree.text(node));
+        }
     }
 }
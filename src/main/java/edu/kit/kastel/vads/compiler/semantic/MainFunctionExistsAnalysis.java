@@ -1,16 +1,29 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
-import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
-import edu.kit.kastel.vads.compiler.parser.visitor.NoOpVisitor;
-import edu.kit.kastel.vads.compiler.parser.visitor.Unit;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
 
-public class MainFunctionExistsAnalysis implements NoOpVisitor<Namespace<Void>> {
+import java.util.EnumSet;
+import java.util.Set;
+
+public class MainFunctionExistsAnalysis implements Analysis<Namespace<Void>> {
 
     @Override
-    public Unit visit(ProgramTree programTree, Namespace<Void> data) {
-        long mainFns = programTree.topLevelTrees().stream()
-                .filter(fnTree -> fnTree.name().name().asString().equals("main"))
-                .count();
+    public Set<TreeKind> kinds() {
+        return EnumSet.of(TreeKind.PROGRAM);
+    }
+
+    @Override
+    public void visit(FlatTree tree, int node, Namespace<Void> data) {
+        if (tree.kind(node) != TreeKind.PROGRAM) {
+            return;
+        }
+        long mainFns = 0;
+        for (int function = tree.firstChild(node); function != FlatTree.NONE; function = tree.nextSibling(function)) {
+            if (tree.name(tree.child(function, 1)).asString().equals("main")) {
+                mainFns++;
+            }
+        }
 
         if (mainFns < 1) {
             throw new SemanticException("missing main function");
@@ -20,7 +33,5 @@ public class MainFunctionExistsAnalysis implements NoOpVisitor<Namespace<Void>>
         if (mainFns > 1) {
             throw new SemanticException("found multiple main functions");
         }
-
-        return NoOpVisitor.super.visit(programTree, data);
     }
 }
@@ -1,26 +1,72 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
-import edu.kit.kastel.vads.compiler.parser.ast.NameTree;
 import edu.kit.kastel.vads.compiler.parser.symbol.Name;
 import org.jspecify.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.BinaryOperator;
+import java.util.Arrays;
 
+/// Maps names to values in an array indexed by their [id][Name#id()], so looking up a name neither
+/// hashes nor allocates.
+///
+/// Values put inside a [scope][#enterScope()] are reset to the ones before when it is exited.
+/// See [ByteNamespace] for values that fit into a byte, e.g. enum constants.
 public class Namespace<T> {
 
-    private final Map<Name, T> content;
+    private @Nullable Object[] values = new Object[64];
+    /// The ids and previous values of the names put inside the open scopes.
+    private int[] undoIds = new int[16];
+    private @Nullable Object[] undoValues = new Object[16];
+    private int undoCount;
+    /// The undo count at the start of each open scope.
+    private int[] scopes = new int[4];
+    private int scopeCount;
 
-    public Namespace() {
-        this.content = new HashMap<>();
+    public void put(Name name, T value) {
+        put(name.id(), value);
     }
 
-    public void put(NameTree name, T value, BinaryOperator<T> merger) {
-        this.content.merge(name.name(), value, merger);
+    public void put(int id, T value) {
+        if (id >= this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(id + 1, this.values.length * 2));
+        }
+        if (this.scopeCount > 0) {
+            if (this.undoCount == this.undoIds.length) {
+                this.undoIds = Arrays.copyOf(this.undoIds, this.undoCount * 2);
+                this.undoValues = Arrays.copyOf(this.undoValues, this.undoCount * 2);
+            }
+            this.undoIds[this.undoCount] = id;
+            this.undoValues[this.undoCount] = this.values[id];
+            this.undoCount++;
+        }
+        this.values[id] = value;
     }
 
-    public @Nullable T get(NameTree name) {
-        return this.content.get(name.name());
+    public @Nullable T get(Name name) {
+        return get(name.id());
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable T get(int id) {
+        return id < this.values.length ? (T) this.values[id] : null;
+    }
+
+    public void enterScope() {
+        if (this.scopeCount == this.scopes.length) {
+            this.scopes = Arrays.copyOf(this.scopes, this.scopeCount * 2);
+        }
+        this.scopes[this.scopeCount++] = this.undoCount;
+    }
+
+    /// Resets the names put since the matching [#enterScope()], the latest ones first.
+    public void exitScope() {
+        if (this.scopeCount == 0) {
+            throw new IllegalStateException("no scope to exit");
+        }
+        int start = this.scopes[--this.scopeCount];
+        while (this.undoCount > start) {
+            this.undoCount--;
+            this.values[this.undoIds[this.undoCount]] = this.undoValues[this.undoCount];
+            this.undoValues[this.undoCount] = null;
+        }
     }
 }
@@ -1,30 +1,36 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
-import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.ReturnTree;
-import edu.kit.kastel.vads.compiler.parser.visitor.NoOpVisitor;
-import edu.kit.kastel.vads.compiler.parser.visitor.Unit;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
+
+import java.util.EnumSet;
+import java.util.Set;
 
 /// Checks that functions return.
 /// Currently only works for straight-line code.
-class ReturnAnalysis implements NoOpVisitor<ReturnAnalysis.ReturnState> {
+class ReturnAnalysis implements Analysis<ReturnAnalysis.ReturnState> {
 
     static class ReturnState {
         boolean returns = false;
     }
 
     @Override
-    public Unit visit(ReturnTree returnTree, ReturnState data) {
-        data.returns = true;
-        return NoOpVisitor.super.visit(returnTree, data);
+    public Set<TreeKind> kinds() {
+        return EnumSet.of(TreeKind.RETURN, TreeKind.FUNCTION);
     }
 
     @Override
-    public Unit visit(FunctionTree functionTree, ReturnState data) {
-        if (!data.returns) {
-            throw new SemanticException("function " + functionTree.name() + " does not return");
+    public void visit(FlatTree tree, int node, ReturnState data) {
+        switch (tree.kind(node)) {
+            case RETURN -> data.returns = true;
+            case FUNCTION -> {
+                if (!data.returns) {
+                    throw new SemanticException("function " + tree.toTree(tree.child(node, 1)) + " does not return");
+                }
+                data.returns = false;
+            }
+            default -> {
+            }
         }
-        data.returns = false;
-        return NoOpVisitor.super.visit(functionTree, data);
     }
 }
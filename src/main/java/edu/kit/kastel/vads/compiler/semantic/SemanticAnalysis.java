@@ -1,21 +1,101 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
-import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
-import edu.kit.kastel.vads.compiler.parser.visitor.RecursivePostorderVisitor;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
+import edu.kit.kastel.vads.compiler.profiling.AnalysisEvent;
+import edu.kit.kastel.vads.compiler.profiling.SemanticAnalysisEvent;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class SemanticAnalysis {
 
-    private final ProgramTree program;
+    private final FlatTree program;
 
-    public SemanticAnalysis(ProgramTree program) {
+    public SemanticAnalysis(FlatTree program) {
         this.program = program;
     }
 
     public void analyze() {
-        this.program.accept(new RecursivePostorderVisitor<>(new IntegerLiteralRangeAnalysis()), new Namespace<>());
-        this.program.accept(new RecursivePostorderVisitor<>(new VariableStatusAnalysis()), new Namespace<>());
-        this.program.accept(new RecursivePostorderVisitor<>(new ReturnAnalysis()), new ReturnAnalysis.ReturnState());
-        this.program.accept(new RecursivePostorderVisitor<>(new MainFunctionExistsAnalysis()), new Namespace<>());
+        analyze(List.of(
+                new Pass<>(new IntegerLiteralRangeAnalysis(), new Namespace<>()),
+                new Pass<>(new VariableStatusAnalysis(), new ByteNamespace()),
+                new Pass<>(new ReturnAnalysis(), new ReturnAnalysis.ReturnState()),
+                new Pass<>(new MainFunctionExistsAnalysis(), new Namespace<>())
+        ));
+    }
+
+    /// Runs the analyses in a single scan over the nodes, each with its own state and only for the
+    /// [kinds][Analysis#kinds()] of nodes it checks.
+    ///
+    /// The error reported is the first one of the first analysis that finds any, like when running
+    /// them one after another: once an analysis fails, the analyses after it are stopped, and the
+    /// ones before it go on, as they may still find an error that takes precedence.
+    ///
+    /// Besides the event for the whole scan, an [AnalysisEvent] with the number of nodes visited is
+    /// committed for each analysis at the end. Timing each visit would slow the scan down several times,
+    /// so the analyses are not timed individually.
+    private void analyze(List<Pass<?>> passes) {
+        SemanticAnalysisEvent event = new SemanticAnalysisEvent();
+        event.begin();
+        AnalysisEvent[] analysisEvents = new AnalysisEvent[passes.size()];
+        for (int i = 0; i < passes.size(); i++) {
+            analysisEvents[i] = new AnalysisEvent();
+            analysisEvents[i].begin();
+        }
+        int[] visitedNodes = new int[passes.size()];
+        SemanticException error = null;
+        // the indices of the analyses checking each kind of node, in order
+        int[][] passesByKind = new int[TreeKind.values().length][];
+        for (TreeKind kind : TreeKind.values()) {
+            passesByKind[kind.ordinal()] = IntStream.range(0, passes.size())
+                    .filter(i -> passes.get(i).analysis().kinds().contains(kind))
+                    .toArray();
+        }
+        // the analyses from this index on were stopped
+        int running = passes.size();
+        // the nodes are stored in postorder
+        for (int node = 0; node < this.program.size() && running > 0; node++) {
+            for (int i : passesByKind[this.program.kind(node).ordinal()]) {
+                if (i >= running) {
+                    break;
+                }
+                visitedNodes[i]++;
+                try {
+                    passes.get(i).visit(this.program, node);
+                } catch (SemanticException e) {
+                    error = e;
+                    running = i;
+                }
+            }
+        }
+        for (int i = 0; i < passes.size(); i++) {
+            AnalysisEvent analysisEvent = analysisEvents[i];
+            analysisEvent.end();
+            if (analysisEvent.shouldCommit()) {
+                analysisEvent.analysis = passes.get(i).analysis().getClass().getSimpleName();
+                analysisEvent.visitedNodes = visitedNodes[i];
+                analysisEvent.stopped = i >= running;
+                analysisEvent.commit();
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.analysis = passes.stream()
+                    .map(pass -> pass.analysis().getClass().getSimpleName())
+                    .collect(Collectors.joining(", "));
+            event.commit();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private record Pass<T>(Analysis<T> analysis, T data) {
+        void visit(FlatTree tree, int node) {
+            this.analysis.visit(tree, node, this.data);
+        }
     }
 
 }
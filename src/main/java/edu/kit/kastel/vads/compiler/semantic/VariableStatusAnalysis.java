@@ -1,92 +1,103 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
 import edu.kit.kastel.vads.compiler.lexer.Operator;
-import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
-import edu.kit.kastel.vads.compiler.parser.ast.DeclarationTree;
-import edu.kit.kastel.vads.compiler.parser.ast.IdentExpressionTree;
-import edu.kit.kastel.vads.compiler.parser.ast.LValueIdentTree;
-import edu.kit.kastel.vads.compiler.parser.ast.NameTree;
-import edu.kit.kastel.vads.compiler.parser.visitor.NoOpVisitor;
-import edu.kit.kastel.vads.compiler.parser.visitor.Unit;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
 import org.jspecify.annotations.Nullable;
 
+import java.util.EnumSet;
 import java.util.Locale;
+import java.util.Set;
 
 /// Checks that variables are
 /// - declared before assignment
 /// - not declared twice
 /// - not initialized twice
 /// - assigned before referenced
-class VariableStatusAnalysis implements NoOpVisitor<Namespace<VariableStatusAnalysis.VariableStatus>> {
+class VariableStatusAnalysis implements Analysis<ByteNamespace> {
 
     @Override
-    public Unit visit(AssignmentTree assignmentTree, Namespace<VariableStatus> data) {
-        switch (assignmentTree.lValue()) {
-            case LValueIdentTree(var name) -> {
-                VariableStatus status = data.get(name);
-                if (assignmentTree.operator().type() == Operator.OperatorType.ASSIGN) {
-                    checkDeclared(name, status);
-                } else {
-                    checkInitialized(name, status);
-                }
-                if (status != VariableStatus.INITIALIZED) {
-                    // only update when needed, reassignment is totally fine
-                    updateStatus(data, VariableStatus.INITIALIZED, name);
-                }
+    public Set<TreeKind> kinds() {
+        return EnumSet.of(TreeKind.ASSIGNMENT, TreeKind.DECLARATION, TreeKind.IDENT_EXPRESSION);
+    }
+
+    @Override
+    public void visit(FlatTree tree, int node, ByteNamespace data) {
+        switch (tree.kind(node)) {
+            case ASSIGNMENT -> visitAssignment(tree, node, data);
+            case DECLARATION -> visitDeclaration(tree, node, data);
+            case IDENT_EXPRESSION -> {
+                int name = tree.firstChild(node);
+                checkInitialized(tree, name, status(tree, data, name));
+            }
+            default -> {
             }
         }
-        return NoOpVisitor.super.visit(assignmentTree, data);
     }
 
-    private static void checkDeclared(NameTree name, @Nullable VariableStatus status) {
+    private static void visitAssignment(FlatTree tree, int assignment, ByteNamespace data) {
+        int lValue = tree.firstChild(assignment);
+        assert tree.kind(lValue) == TreeKind.LVALUE_IDENT : "unexpected lvalue " + tree.kind(lValue);
+        int name = tree.firstChild(lValue);
+        VariableStatus status = status(tree, data, name);
+        if (tree.operatorType(tree.nextSibling(lValue)) == Operator.OperatorType.ASSIGN) {
+            checkDeclared(tree, name, status);
+        } else {
+            checkInitialized(tree, name, status);
+        }
+        if (status != VariableStatus.INITIALIZED) {
+            // only update when needed, reassignment is totally fine
+            updateStatus(tree, data, VariableStatus.INITIALIZED, name);
+        }
+    }
+
+    private static void checkDeclared(FlatTree tree, int name, @Nullable VariableStatus status) {
         if (status == null) {
-            throw new SemanticException("Variable " + name + " must be declared before assignment");
+            throw new SemanticException("Variable " + tree.toTree(name) + " must be declared before assignment");
         }
     }
 
-    private static void checkInitialized(NameTree name, @Nullable VariableStatus status) {
+    private static void checkInitialized(FlatTree tree, int name, @Nullable VariableStatus status) {
         if (status == null || status == VariableStatus.DECLARED) {
-            throw new SemanticException("Variable " + name + " must be initialized before use");
+            throw new SemanticException("Variable " + tree.toTree(name) + " must be initialized before use");
         }
     }
 
-    private static void checkUndeclared(NameTree name, @Nullable VariableStatus status) {
+    private static void checkUndeclared(FlatTree tree, int name, @Nullable VariableStatus status) {
         if (status != null) {
-            throw new SemanticException("Variable " + name + " is already declared");
+            throw new SemanticException("Variable " + tree.toTree(name) + " is already declared");
         }
     }
 
-    @Override
-    public Unit visit(DeclarationTree declarationTree, Namespace<VariableStatus> data) {
-        checkUndeclared(declarationTree.name(), data.get(declarationTree.name()));
-        VariableStatus status = declarationTree.initializer() == null
+    private static void visitDeclaration(FlatTree tree, int declaration, ByteNamespace data) {
+        int name = tree.child(declaration, 1);
+        checkUndeclared(tree, name, status(tree, data, name));
+        VariableStatus status = tree.nextSibling(name) == FlatTree.NONE
                 ? VariableStatus.DECLARED
                 : VariableStatus.INITIALIZED;
-        updateStatus(data, status, declarationTree.name());
-        return NoOpVisitor.super.visit(declarationTree, data);
+        updateStatus(tree, data, status, name);
     }
 
-    private static void updateStatus(Namespace<VariableStatus> data, VariableStatus status, NameTree name) {
-        data.put(name, status, (existing, replacement) -> {
-            if (existing.ordinal() >= replacement.ordinal()) {
-                throw new SemanticException(
-                        "variable is already " + existing + ". Cannot be " + replacement + " here.");
-            }
-            return replacement;
-        });
+    private static void updateStatus(FlatTree tree, ByteNamespace data, VariableStatus status, int name) {
+        VariableStatus existing = status(tree, data, name);
+        if (existing != null && existing.ordinal() >= status.ordinal()) {
+            throw new SemanticException("variable is already " + existing + ". Cannot be " + status + " here.");
+        }
+        data.put(tree.nameId(name), (byte) (status.ordinal() + 1));
     }
 
-    @Override
-    public Unit visit(IdentExpressionTree identExpressionTree, Namespace<VariableStatus> data) {
-        VariableStatus status = data.get(identExpressionTree.name());
-        checkInitialized(identExpressionTree.name(), status);
-        return NoOpVisitor.super.visit(identExpressionTree, data);
+    /// {@return the status of the variable of a name node, the namespace holds the ordinals plus one}
+    private static @Nullable VariableStatus status(FlatTree tree, ByteNamespace data, int name) {
+        byte status = data.get(tree.nameId(name));
+        return status == ByteNamespace.ABSENT ? null : VariableStatus.VALUES[status - 1];
     }
 
     enum VariableStatus {
         DECLARED,
         INITIALIZED;
 
+        private static final VariableStatus[] VALUES = values();
+
         @Override
         public String toString() {
             return name().toLowerCase(Locale.ROOT);
@@ -0,0 +1,57 @@
+package edu.kit.kastel.vads.compiler.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/// The Java counterpart to [CompileServer], used by `compiler --connect`.
+///
+/// This still starts a JVM for every request, so it only saves the warm-up of the compiler itself.
+/// `run.sh` talks to the server through `socat` instead.
+public final class CompileClient {
+    private CompileClient() {
+
+    }
+
+    /// Sends a single compile request to the server.
+    ///
+    /// Relative paths are resolved against the working directory of the client,
+    /// as the server may run somewhere else entirely.
+    ///
+    /// @return the exit code of the compilation
+    public static int compile(Path socketPath, Path input, Path output, PrintStream diagnostics) throws IOException {
+        byte[] response;
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            OutputStream out = Channels.newOutputStream(channel);
+            String request = input.toAbsolutePath() + "\n" + output.toAbsolutePath() + "\n";
+            out.write(request.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            response = Channels.newInputStream(channel).readAllBytes();
+        }
+        // the exit code is the last line, everything before it are the diagnostics
+        int end = response.length - 1;
+        if (end < 0 || response[end] != '\n') {
+            throw new IOException("incomplete response from " + socketPath);
+        }
+        int start = end;
+        while (start > 0 && response[start - 1] != '\n') {
+            start--;
+        }
+        int exitCode;
+        try {
+            exitCode = Integer.parseInt(new String(response, start, end - start, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            throw new IOException("malformed response from " + socketPath, e);
+        }
+        diagnostics.write(response, 0, start);
+        diagnostics.flush();
+        return exitCode;
+    }
+}
@@ -0,0 +1,107 @@
+package edu.kit.kastel.vads.compiler.server;
+
+import edu.kit.kastel.vads.compiler.Compilation;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// A long-lived compiler process listening on a Unix domain socket.
+///
+/// Repeated compilations through the server skip JVM startup, class loading and JIT warm-up.
+/// Every connection carries exactly one request and is served on its own virtual thread.
+///
+/// ## Protocol
+///
+/// The protocol is plain UTF-8 text, so a shell script can speak it through `socat` without starting
+/// a JVM (see `run.sh`). The client sends the absolute input and output paths, each on its own line.
+/// The server answers with the diagnostics the compilation would have written to stderr, followed by
+/// the exit code on a line of its own, and closes the connection.
+public final class CompileServer implements AutoCloseable {
+    private final Path socketPath;
+    private final ServerSocketChannel channel;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private CompileServer(Path socketPath, ServerSocketChannel channel) {
+        this.socketPath = socketPath;
+        this.channel = channel;
+    }
+
+    /// Binds a new server to the given socket path, replacing a stale socket file if there is one.
+    public static CompileServer bind(Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.bind(UnixDomainSocketAddress.of(socketPath));
+        return new CompileServer(socketPath, channel);
+    }
+
+    /// Accepts connections until the server is closed.
+    public void serve() throws IOException {
+        while (this.channel.isOpen()) {
+            SocketChannel connection;
+            try {
+                connection = this.channel.accept();
+            } catch (IOException e) {
+                if (!this.channel.isOpen()) {
+                    return;
+                }
+                throw e;
+            }
+            this.executor.execute(() -> handle(connection));
+        }
+    }
+
+    private static void handle(SocketChannel connection) {
+        try (connection;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.UTF_8));
+             OutputStream out = Channels.newOutputStream(connection)) {
+            String input = in.readLine();
+            String output = in.readLine();
+            if (input == null || output == null) {
+                throw new IOException("incomplete request");
+            }
+
+            ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+            int exitCode;
+            try (PrintStream stream = new PrintStream(diagnostics, true, StandardCharsets.UTF_8)) {
+                try {
+                    exitCode = new Compilation(Path.of(input), Path.of(output), stream).run();
+                } catch (Throwable e) {
+                    // e.g. an OutOfMemoryError, the client still gets an answer and the server stays up
+                    e.printStackTrace(stream);
+                    exitCode = Compilation.EXIT_FAILURE;
+                }
+            }
+
+            if (diagnostics.size() > 0 && !diagnostics.toString(StandardCharsets.UTF_8).endsWith("\n")) {
+                diagnostics.write('\n');
+            }
+            diagnostics.writeTo(out);
+            out.write((exitCode + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // the client went away, there is nobody left to report this to
+            System.err.println("Error serving compile request: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+        this.executor.close();
+        Files.deleteIfExists(this.socketPath);
+    }
+}
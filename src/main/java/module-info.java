@@ -3,5 +3,7 @@ import org.jspecify.annotations.NullMarked;
 @NullMarked module edu.kit.kastel.vads.compiler {
     requires org.jspecify;
     requires java.xml;
+    requires jdk.jfr;
+    requires jdk.management;
     requires org.fusesource.jansi;
 }
@@ -0,0 +1,40 @@
+package edu.kit.kastel.vads.compiler;
+
+import edu.kit.kastel.vads.compiler.profiling.PhaseProfiler;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+class TestCompilation {
+    private static final int DEPTH = 50_000;
+
+    @Test
+    void testDeeplyNestedNegations() throws IOException {
+        Path directory = Files.createTempDirectory("compilation-test");
+        try {
+            Path input = Files.writeString(directory.resolve("deep.l1"),
+                    "int main() { return " + "-(".repeat(DEPTH) + "1" + ")".repeat(DEPTH) + "; }");
+            Path output = directory.resolve("deep");
+            ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+            int exitCode = new Compilation(input, output, new PrintStream(diagnostics, true, StandardCharsets.UTF_8),
+                    null, PhaseProfiler.disabled()).run();
+            // every pass after parsing walks the whole expression, too
+            Assertions.assertEquals(Compilation.EXIT_SUCCESS, exitCode, diagnostics.toString(StandardCharsets.UTF_8));
+            Assertions.assertTrue(Files.exists(output));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package edu.kit.kastel.vads.compiler;
+
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+
+import org.junit.jupiter.api.*;
+
+class TestSourceFile {
+    @Test
+    void testLines() {
+        SourceFile source = SourceFile.of("int main() {\n  return 0;\r\n}");
+        Assertions.assertEquals("int main() {", source.line(0));
+        Assertions.assertEquals("  return 0;", source.line(1));
+        // \r and \n both end a line, like in the lexer
+        Assertions.assertEquals("", source.line(2));
+        Assertions.assertEquals("}", source.line(3));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> source.line(5));
+    }
+
+    @Test
+    void testNonAsciiCountsCharacters() {
+        SourceFile source = SourceFile.of("/* ä */ x");
+        Assertions.assertEquals(9, source.length());
+        Assertions.assertEquals('x', source.charAt(8));
+        Assertions.assertEquals("ä", source.substring(3, 4));
+    }
+
+    @Test
+    void testLineIndexMatchesLexer() {
+        SourceFile lexed = SourceFile.of("int main() {\n  /* a\n b */ return 0;\r\n}\n");
+        Lexer lexer = Lexer.forSource(lexed);
+        while (lexer.nextToken().isPresent()) {
+            // only the line starts recorded while lexing are of interest
+        }
+        SourceFile scanned = SourceFile.of(lexed.toString());
+        Assertions.assertEquals(scanned.lineIndex().lineCount(), lexed.lineIndex().lineCount());
+        for (int line = 0; line < scanned.lineIndex().lineCount(); line++) {
+            Assertions.assertEquals(scanned.lineIndex().lineStart(line), lexed.lineIndex().lineStart(line));
+        }
+    }
+}
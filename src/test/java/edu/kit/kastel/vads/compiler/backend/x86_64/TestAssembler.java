@@ -0,0 +1,70 @@
+package edu.kit.kastel.vads.compiler.backend.x86_64;
+
+import org.junit.jupiter.api.*;
+
+import java.util.HexFormat;
+
+class TestAssembler {
+    private static String encode(String assembly) {
+        return HexFormat.of().formatHex(Assembler.assemble(assembly).code());
+    }
+
+    @Test
+    void testRegisterToRegister() {
+        Assertions.assertEquals("89de", encode("movl %ebx, %esi"));
+        Assertions.assertEquals("4589c3", encode("movl %r8d, %r11d"));
+        Assertions.assertEquals("4801c8", encode("addq %rcx, %rax"));
+        Assertions.assertEquals("440fafdb", encode("imull %ebx, %r11d"));
+    }
+
+    @Test
+    void testSpillSlots() {
+        Assertions.assertEquals("8b45fc", encode("movl -4(%rbp), %eax"));
+        Assertions.assertEquals("44895df8", encode("movl %r11d, -8(%rbp)"));
+        Assertions.assertEquals("f77df4", encode("idivl -12(%rbp)"));
+        Assertions.assertEquals("c745fc2a000000", encode("movl $42, -4(%rbp)"));
+        Assertions.assertEquals("8b8570ffffff", encode("movl -144(%rbp), %eax"));
+    }
+
+    @Test
+    void testImmediates() {
+        Assertions.assertEquals("bb05000000", encode("movl $5, %ebx"));
+        Assertions.assertEquals("41bbffffffff", encode("movl $-1, %r11d"));
+        Assertions.assertEquals("48c7c03c000000", encode("movq $0x3C, %rax"));
+    }
+
+    @Test
+    void testShiftsAndMasks() {
+        Assertions.assertEquals("c1fa03", encode("sarl $3, %edx"));
+        Assertions.assertEquals("c1ea1f", encode("shrl $31, %edx"));
+        Assertions.assertEquals("c17dfc02", encode("sarl $2, -4(%rbp)"));
+        Assertions.assertEquals("83e007", encode("andl $7, %eax"));
+        Assertions.assertEquals("83e2f8", encode("andl $-8, %edx"));
+        Assertions.assertEquals("4181e3ff000000", encode("andl $255, %r11d"));
+        Assertions.assertThrows(AssemblerException.class, () -> encode("sarl %ecx, %edx"));
+    }
+
+    @Test
+    void testCallIsRelative() {
+        Assertions.assertEquals("e801000000" + "c3" + "c3", encode("""
+                main:
+                    call _main # comment
+                    ret
+                _main:
+                    ret
+                """));
+    }
+
+    @Test
+    void testUnsupportedInstruction() {
+        Assertions.assertThrows(AssemblerException.class, () -> encode("jmp main"));
+    }
+
+    @Test
+    void testMalformedAssembly() {
+        Assertions.assertThrows(AssemblerException.class, () -> encode("main:\nmain:"));
+        Assertions.assertThrows(AssemblerException.class, () -> encode("call nowhere"));
+        Assertions.assertThrows(AssemblerException.class, () -> encode("movl %rax, %ebx"));
+        Assertions.assertThrows(AssemblerException.class, () -> encode("addl %eax"));
+    }
+}
@@ -0,0 +1,41 @@
+package edu.kit.kastel.vads.compiler.batch;
+
+import edu.kit.kastel.vads.compiler.Compilation;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+class TestBatchCompilation {
+
+    @Test
+    void testExitCodeOfFirstFailure() throws IOException {
+        Path directory = Files.createTempDirectory("batch-test");
+        try {
+            Files.writeString(directory.resolve("a.l1"), "int main() { return 0; }");
+            Files.writeString(directory.resolve("b.l1"), "int main() { return x; }");
+            Files.writeString(directory.resolve("c.l1"), "int main() { return; }");
+            List<BatchCompilation.Result> results;
+            try (ForkJoinPool pool = new ForkJoinPool(2)) {
+                results = BatchCompilation.fromDirectory(directory, directory).run(pool, 2);
+            }
+            Assertions.assertEquals(3, results.size());
+            Assertions.assertEquals(Compilation.EXIT_SEMANTIC_ERROR, results.get(1).exitCode());
+            Assertions.assertEquals(Compilation.EXIT_PARSE_ERROR, results.get(2).exitCode());
+            Assertions.assertEquals(Compilation.EXIT_SEMANTIC_ERROR, BatchCompilation.exitCode(results));
+            Assertions.assertEquals(Compilation.EXIT_SUCCESS, BatchCompilation.exitCode(results.subList(0, 1)));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.ir.SsaTranslation;
+import edu.kit.kastel.vads.compiler.ir.optimize.LocalValueNumbering;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
+import edu.kit.kastel.vads.compiler.semantic.SemanticAnalysis;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+
+/// Measures the memory a [FlatTree] keeps per node compared to the trees of all its nodes, and how long
+/// parsing, semantic analysis and SSA translation take with the flat tree. Pass a large young generation
+/// (e.g. `-Xmn2g`) to keep garbage collection from dominating the times.
+///
+/// Run with `./gradlew bench -Pbench=FlatTreeBenchmark`.
+public class FlatTreeBenchmark {
+    private static final int[] LINES = {12_500, 50_000, 200_000};
+    private static final int ROUNDS = 10;
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %10s %14s %16s %12s %14s %12s%n",
+                "lines", "nodes", "flat (B/node)", "trees (B/node)", "parse (ms)", "semantic (ms)", "ssa (ms)");
+        // the first measurement also sees the heap settle after startup
+        retained(SpanLookupBenchmark.generate(LINES[0]));
+        for (int lines : LINES) {
+            String text = SpanLookupBenchmark.generate(lines);
+            long parseNanos = Long.MAX_VALUE;
+            long semanticNanos = Long.MAX_VALUE;
+            long ssaNanos = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                TokenSource tokens = new TokenSource(ByteLexer.forSource(SourceFile.of(text)));
+                long start = System.nanoTime();
+                FlatTree tree = new Parser(tokens).parse();
+                parseNanos = Math.min(parseNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                new SemanticAnalysis(tree).analyze();
+                semanticNanos = Math.min(semanticNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                new SsaTranslation(tree, tree.firstChild(tree.root()), new LocalValueNumbering()).translate();
+                ssaNanos = Math.min(ssaNanos, System.nanoTime() - start);
+            }
+            Retained retained = retained(text);
+            System.out.printf("%10d %10d %14.1f %16.1f %12.2f %14.2f %12.2f%n", lines, retained.nodes(),
+                    (double) retained.flat() / retained.nodes(), (double) retained.trees() / retained.nodes(),
+                    parseNanos / 1e6, semanticNanos / 1e6, ssaNanos / 1e6);
+        }
+    }
+
+    /// The bytes kept by the flat tree of a source, and additionally by the trees of all its nodes.
+    private record Retained(int nodes, long flat, long trees) {
+    }
+
+    private static Retained retained(String text) {
+        TokenSource tokens = new TokenSource(ByteLexer.forSource(SourceFile.of(text)));
+        long used = usedAfterGc();
+        FlatTree tree = new Parser(tokens).parse();
+        long flat = usedAfterGc() - used;
+        ProgramTree program = tree.toProgramTree();
+        long trees = usedAfterGc() - used - flat;
+        Reference.reachabilityFence(program);
+        return new Retained(tree.size(), flat, trees);
+    }
+
+    /// {@return the heap used by reachable objects}
+    private static long usedAfterGc() {
+        // a second collection frees what finalization and reference processing kept alive in the first
+        System.gc();
+        System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
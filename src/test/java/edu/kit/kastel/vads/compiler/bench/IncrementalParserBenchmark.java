@@ -0,0 +1,46 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.parser.IncrementalParser;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+
+/// Compares lexing and parsing a generated source from scratch with [IncrementalParser#edit] for a
+/// single typed character in the middle of it. The edit itself and assembling the edited program, which
+/// moves the statements after the edit, are measured separately.
+///
+/// Run with `./gradlew bench -Pbench=IncrementalParserBenchmark`.
+public class IncrementalParserBenchmark {
+    private static final int[] LINES = {12_500, 50_000, 200_000};
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %14s %14s %14s%n", "lines", "full (ms)", "edit (ms)", "program (ms)",
+                "speedup");
+        for (int lines : LINES) {
+            String text = SpanLookupBenchmark.generate(lines);
+            // typing a digit into a literal in the middle of the function
+            int offset = text.indexOf(" * 3 + ", text.length() / 2) + 3;
+            long fullNanos = Long.MAX_VALUE;
+            long editNanos = Long.MAX_VALUE;
+            long programNanos = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                SourceFile source = SourceFile.of(text);
+                long start = System.nanoTime();
+                new Parser(new TokenSource(ByteLexer.forSource(source))).parseProgram();
+                fullNanos = Math.min(fullNanos, System.nanoTime() - start);
+
+                IncrementalParser parser = IncrementalParser.parse(SourceFile.of(text));
+                start = System.nanoTime();
+                IncrementalParser edited = parser.edit(offset, 0, "7");
+                long edit = System.nanoTime() - start;
+                edited.program();
+                editNanos = Math.min(editNanos, edit);
+                programNanos = Math.min(programNanos, System.nanoTime() - start - edit);
+            }
+            System.out.printf("%10d %14.2f %14.2f %14.2f %13.1fx%n", lines, fullNanos / 1e6, editNanos / 1e6,
+                    programNanos / 1e6, (double) fullNanos / (editNanos + programNanos));
+        }
+    }
+}
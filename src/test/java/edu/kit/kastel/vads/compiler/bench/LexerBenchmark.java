@@ -0,0 +1,73 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.Token;
+
+import java.util.Optional;
+
+/// Compares the throughput of [Lexer] and [ByteLexer] on generated sources, in tokens per second.
+///
+/// Run with `./gradlew bench -Pbench=LexerBenchmark`.
+public class LexerBenchmark {
+    private static final int[] LINES = {12_500, 50_000, 200_000};
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %10s %18s %18s %18s%n",
+                "lines", "tokens", "Lexer (tok/s)", "ByteLexer (tok/s)", "ByteLexer+token()");
+        for (int lines : LINES) {
+            String text = SpanLookupBenchmark.generate(lines);
+            long lexerNanos = Long.MAX_VALUE;
+            long byteLexerNanos = Long.MAX_VALUE;
+            long materializingNanos = Long.MAX_VALUE;
+            int tokens = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                // fresh sources, so the line index has to be built every time
+                SourceFile source = SourceFile.of(text);
+                long start = System.nanoTime();
+                tokens = lex(source);
+                lexerNanos = Math.min(lexerNanos, System.nanoTime() - start);
+
+                source = SourceFile.of(text);
+                start = System.nanoTime();
+                int byteTokens = byteLex(source, false);
+                byteLexerNanos = Math.min(byteLexerNanos, System.nanoTime() - start);
+
+                source = SourceFile.of(text);
+                start = System.nanoTime();
+                byteLex(source, true);
+                materializingNanos = Math.min(materializingNanos, System.nanoTime() - start);
+                if (byteTokens != tokens) {
+                    throw new AssertionError("lexers disagree: " + tokens + " vs " + byteTokens);
+                }
+            }
+            System.out.printf("%10d %10d %18.0f %18.0f %18.0f%n", lines, tokens,
+                    tokens / (lexerNanos / 1e9), tokens / (byteLexerNanos / 1e9), tokens / (materializingNanos / 1e9));
+        }
+    }
+
+    private static int lex(SourceFile source) {
+        Lexer lexer = Lexer.forSource(source);
+        int count = 0;
+        for (Optional<Token> token = lexer.nextToken(); token.isPresent(); token = lexer.nextToken()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int byteLex(SourceFile source, boolean materialize) {
+        ByteLexer lexer = ByteLexer.forSource(source);
+        int count = 0;
+        long checksum = 0;
+        while (lexer.next()) {
+            checksum += materialize ? lexer.token().span().hashCode() & 1 : lexer.subtype();
+            count++;
+        }
+        if (checksum < 0) {
+            throw new AssertionError();
+        }
+        return count;
+    }
+}
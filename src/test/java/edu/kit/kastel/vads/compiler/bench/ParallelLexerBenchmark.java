@@ -0,0 +1,45 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.ParallelLexer;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+
+import java.util.concurrent.ForkJoinPool;
+
+/// Compares tokenizing multi-megabyte generated sources into a [TokenSource] with [ByteLexer] on one
+/// thread and with [ParallelLexer] on the common pool. The speedup is bounded by the number of cores.
+///
+/// Run with `./gradlew bench -Pbench=ParallelLexerBenchmark`.
+public class ParallelLexerBenchmark {
+    private static final int[] LINES = {100_000, 400_000, 1_600_000};
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        System.out.println("parallelism: " + ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf("%10s %10s %14s %14s %10s%n", "MB", "tokens", "sequential (ms)", "parallel (ms)", "speedup");
+        for (int lines : LINES) {
+            String text = SpanLookupBenchmark.generate(lines);
+            long sequentialNanos = Long.MAX_VALUE;
+            long parallelNanos = Long.MAX_VALUE;
+            int tokens = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                SourceFile source = SourceFile.of(text);
+                long start = System.nanoTime();
+                TokenSource sequential = new TokenSource(ByteLexer.forSource(source));
+                sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+
+                source = SourceFile.of(text);
+                start = System.nanoTime();
+                TokenSource parallel = new TokenSource(ParallelLexer.forSource(source));
+                parallelNanos = Math.min(parallelNanos, System.nanoTime() - start);
+                if (sequential.tokenCount() != parallel.tokenCount()) {
+                    throw new AssertionError("lexers disagree");
+                }
+                tokens = sequential.tokenCount();
+            }
+            System.out.printf("%10.1f %10d %14.1f %14.1f %9.2fx%n", text.length() / 1e6, tokens,
+                    sequentialNanos / 1e6, parallelNanos / 1e6, (double) sequentialNanos / parallelNanos);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.SsaTranslation;
+import edu.kit.kastel.vads.compiler.ir.node.Node;
+import edu.kit.kastel.vads.compiler.ir.optimize.LocalValueNumbering;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/// Measures the allocations and time of reading the predecessors of every node of large graphs, by
+/// copying them like [Node#predecessors()] used to, through the view it returns now, and by index.
+///
+/// Run with `./gradlew bench -Pbench=PredecessorBenchmark`.
+public class PredecessorBenchmark {
+    private static final int[] LINES = {12_500, 50_000, 200_000};
+    private static final int ROUNDS = 20;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static long sink;
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %10s %14s %14s %16s %10s %10s %12s%n", "lines", "nodes",
+                "copy (B/node)", "view (B/node)", "indexed (B/node)", "copy (ms)", "view (ms)", "indexed (ms)");
+        for (int lines : LINES) {
+            List<Node> nodes = nodes(translate(SpanLookupBenchmark.generate(lines)));
+            Measurement copy = measure(nodes, PredecessorBenchmark::copying);
+            Measurement view = measure(nodes, PredecessorBenchmark::viewing);
+            Measurement indexed = measure(nodes, PredecessorBenchmark::indexing);
+            System.out.printf("%10d %10d %14.1f %14.1f %16.1f %10.2f %10.2f %12.2f%n", lines, nodes.size(),
+                    copy.bytesPerNode(nodes), view.bytesPerNode(nodes), indexed.bytesPerNode(nodes),
+                    copy.nanos() / 1e6, view.nanos() / 1e6, indexed.nanos() / 1e6);
+        }
+        // keeps the reads from being optimized away
+        if (sink == 0) {
+            throw new AssertionError("no predecessors read");
+        }
+    }
+
+    private record Measurement(long bytes, long nanos) {
+        double bytesPerNode(List<Node> nodes) {
+            return (double) this.bytes / nodes.size();
+        }
+    }
+
+    private static Measurement measure(List<Node> nodes, ToLongFunction<Node> read) {
+        long bytes = Long.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long sum = 0;
+            for (Node node : nodes) {
+                sum += read.applyAsLong(node);
+            }
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            bytes = Math.min(bytes, THREADS.getCurrentThreadAllocatedBytes() - allocated);
+            sink += sum;
+        }
+        return new Measurement(bytes, nanos);
+    }
+
+    private static long copying(Node node) {
+        long sum = 0;
+        for (Node predecessor : List.copyOf(node.predecessors())) {
+            sum += System.identityHashCode(predecessor);
+        }
+        return sum;
+    }
+
+    private static long viewing(Node node) {
+        long sum = 0;
+        for (Node predecessor : node.predecessors()) {
+            sum += System.identityHashCode(predecessor);
+        }
+        return sum;
+    }
+
+    private static long indexing(Node node) {
+        long sum = 0;
+        for (int i = 0; i < node.predecessorCount(); i++) {
+            sum += System.identityHashCode(node.predecessor(i));
+        }
+        return sum;
+    }
+
+    private static IrGraph translate(String text) {
+        FlatTree tree = new Parser(new TokenSource(ByteLexer.forSource(SourceFile.of(text)))).parse();
+        return new SsaTranslation(tree, tree.firstChild(tree.root()), new LocalValueNumbering()).translate();
+    }
+
+    /// {@return the nodes reachable from the end block}, without recursion as the graphs are deep
+    private static List<Node> nodes(IrGraph graph) {
+        List<Node> nodes = new ArrayList<>();
+        Set<Node> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(graph.endBlock());
+        seen.add(graph.endBlock());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            nodes.add(node);
+            for (int i = 0; i < node.predecessorCount(); i++) {
+                if (seen.add(node.predecessor(i))) {
+                    stack.push(node.predecessor(i));
+                }
+            }
+        }
+        return nodes;
+    }
+}
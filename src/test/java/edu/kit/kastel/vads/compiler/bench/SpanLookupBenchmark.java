@@ -0,0 +1,64 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/// Maps the span of every token of generated sources back to the source, as the code generator does
+/// for debug info. With the line index, the time per lookup must not grow with the number of lines.
+///
+/// Run with `./gradlew bench -Pbench=SpanLookupBenchmark`.
+public class SpanLookupBenchmark {
+    private static final int[] LINES = {12_500, 25_000, 50_000, 100_000};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %12s %12s %16s%n", "lines", "lex (ms)", "lookup (ms)", "ns per lookup");
+        for (int lines : LINES) {
+            SourceFile source = SourceFile.of(generate(lines));
+            long lexNanos = Long.MAX_VALUE;
+            long lookupNanos = Long.MAX_VALUE;
+            List<Span> spans = List.of();
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                spans = lexSpans(source);
+                lexNanos = Math.min(lexNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                long checksum = 0;
+                for (Span span : spans) {
+                    checksum += span.fromSource(source).length();
+                }
+                lookupNanos = Math.min(lookupNanos, System.nanoTime() - start);
+                if (checksum == 0) {
+                    throw new AssertionError("no source was found");
+                }
+            }
+            System.out.printf("%10d %12.3f %12.3f %16.1f%n",
+                    lines, lexNanos / 1e6, lookupNanos / 1e6, (double) lookupNanos / spans.size());
+        }
+    }
+
+    static String generate(int lines) {
+        StringBuilder builder = new StringBuilder("int main() {\n    int x0 = 1;\n");
+        for (int i = 1; i < lines - 3; i++) {
+            builder.append("    int x").append(i).append(" = x").append(i - 1).append(" * 3 + ").append(i % 7)
+                    .append("; // step ").append(i).append('\n');
+        }
+        return builder.append("    return x").append(lines - 4).append(";\n}\n").toString();
+    }
+
+    private static List<Span> lexSpans(SourceFile source) {
+        Lexer lexer = Lexer.forSource(source);
+        List<Span> spans = new ArrayList<>();
+        for (Optional<Token> token = lexer.nextToken(); token.isPresent(); token = lexer.nextToken()) {
+            spans.add(token.get().span());
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,72 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.Token;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Measures the memory needed per token by the packed [TokenSource] compared to a list of [Token]
+/// objects, and the throughput of lexing and parsing with it, upfront and streaming. Pass a large young generation
+/// (e.g. `-Xmn2g`) to keep garbage collection from dominating the times.
+///
+/// Run with `./gradlew bench -Pbench=TokenSourceBenchmark`.
+public class TokenSourceBenchmark {
+    private static final int[] LINES = {12_500, 50_000, 200_000};
+    private static final int ROUNDS = 10;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %10s %20s %18s %18s %18s%n",
+                "lines", "tokens", "List<Token> (B/tok)", "packed (B/tok)", "lex+parse (tok/s)", "streaming (tok/s)");
+        for (int lines : LINES) {
+            String text = SpanLookupBenchmark.generate(lines);
+            long listBytes = Long.MAX_VALUE;
+            long packedBytes = Long.MAX_VALUE;
+            long parseNanos = Long.MAX_VALUE;
+            long streamingNanos = Long.MAX_VALUE;
+            int tokens = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                SourceFile source = SourceFile.of(text);
+                long allocated = allocatedBytes();
+                List<Token> list = tokenList(source);
+                listBytes = Math.min(listBytes, allocatedBytes() - allocated);
+                tokens = list.size();
+
+                source = SourceFile.of(text);
+                long start = System.nanoTime();
+                allocated = allocatedBytes();
+                TokenSource tokenSource = new TokenSource(ByteLexer.forSource(source));
+                packedBytes = Math.min(packedBytes, allocatedBytes() - allocated);
+                new Parser(tokenSource).parseProgram();
+                parseNanos = Math.min(parseNanos, System.nanoTime() - start);
+
+                source = SourceFile.of(text);
+                start = System.nanoTime();
+                new Parser(TokenSource.streaming(ByteLexer.forSource(source))).parseProgram();
+                streamingNanos = Math.min(streamingNanos, System.nanoTime() - start);
+            }
+            System.out.printf("%10d %10d %20.1f %18.1f %18.0f %18.0f%n", lines, tokens,
+                    (double) listBytes / tokens, (double) packedBytes / tokens, tokens / (parseNanos / 1e9),
+                    tokens / (streamingNanos / 1e9));
+        }
+    }
+
+    private static List<Token> tokenList(SourceFile source) {
+        ByteLexer lexer = ByteLexer.forSource(source);
+        List<Token> tokens = new ArrayList<>();
+        while (lexer.next()) {
+            tokens.add(lexer.token());
+        }
+        return tokens;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+}
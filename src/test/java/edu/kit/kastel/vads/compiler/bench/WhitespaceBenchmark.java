@@ -0,0 +1,46 @@
+package edu.kit.kastel.vads.compiler.bench;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+
+/// Measures how fast [ByteLexer] gets through generated sources dominated by indentation and
+/// comments, in megabytes per second.
+///
+/// Run with `./gradlew bench -Pbench=WhitespaceBenchmark`.
+public class WhitespaceBenchmark {
+    private static final int LINES = 200_000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        System.out.printf("%-12s %10s %10s %12s%n", "input", "MB", "tokens", "MB/s");
+        run("code", SpanLookupBenchmark.generate(LINES));
+        run("indented", generate("                        ", "x = x + 1; // " + "-".repeat(40)));
+        String comment = generate("  ", "a long comment describing the code in plain words, with a * star");
+        run("comments", "int main() {\n/*" + comment + "*/ return 0;\n}\n");
+    }
+
+    private static String generate(String indent, String line) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            builder.append(indent).append(line).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void run(String name, String text) {
+        long nanos = Long.MAX_VALUE;
+        int tokens = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            SourceFile source = SourceFile.of(text);
+            long start = System.nanoTime();
+            ByteLexer lexer = ByteLexer.forSource(source);
+            tokens = 0;
+            while (lexer.next()) {
+                tokens++;
+            }
+            nanos = Math.min(nanos, System.nanoTime() - start);
+        }
+        System.out.printf("%-12s %10.1f %10d %12.0f%n", name, text.length() / 1e6, tokens,
+                text.length() / 1e6 / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,80 @@
+package edu.kit.kastel.vads.compiler.cache;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+class TestCompilationCache {
+
+    @Test
+    void testStoreSameKeyTwice() throws IOException {
+        Path directory = Files.createTempDirectory("cache-test");
+        try {
+            Path assembly = Files.writeString(directory.resolve("in.s"), "main:\n    ret\n");
+            Path executable = Files.writeString(directory.resolve("in"), "binary");
+            CompilationCache cache = new CompilationCache(directory.resolve("cache"), 1024 * 1024, "test");
+            CompilationCache.Key key = cache.key(ByteBuffer.wrap("int main() {}".getBytes(StandardCharsets.UTF_8)), "");
+
+            cache.store(key, assembly, executable);
+            // like a second compiler with the same input that finished later
+            cache.store(key, assembly, executable);
+
+            Path restored = directory.resolve("out");
+            Assertions.assertTrue(cache.restore(key, directory.resolve("out.s"), restored));
+            Assertions.assertEquals("binary", Files.readString(restored));
+            try (Stream<Path> entries = Files.list(directory.resolve("cache"))) {
+                // no leftover temporary directories
+                Assertions.assertEquals(1, entries.count());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEvictsOnceOverLimit() throws IOException {
+        Path directory = Files.createTempDirectory("cache-test");
+        try {
+            Path assembly = Files.writeString(directory.resolve("in.s"), "x".repeat(50));
+            Path executable = Files.writeString(directory.resolve("in"), "x".repeat(50));
+            Path cacheDirectory = directory.resolve("cache");
+            CompilationCache first = new CompilationCache(cacheDirectory, 250, "test");
+            first.store(first.key(ByteBuffer.wrap(new byte[] {1}), ""), assembly, executable);
+            first.store(first.key(ByteBuffer.wrap(new byte[] {2}), ""), assembly, executable);
+            Assertions.assertEquals(0, first.stats().evictions());
+
+            // a new cache over the same directory knows about the existing entries
+            CompilationCache second = new CompilationCache(cacheDirectory, 250, "test");
+            second.store(second.key(ByteBuffer.wrap(new byte[] {3}), ""), assembly, executable);
+            Assertions.assertEquals(1, second.stats().evictions());
+            try (Stream<Path> entries = Files.list(cacheDirectory)) {
+                Assertions.assertEquals(2, entries.count());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testKeyDependsOnVersion() {
+        Path directory = Path.of("unused");
+        ByteBuffer source = ByteBuffer.wrap("int main() {}".getBytes(StandardCharsets.UTF_8));
+        CompilationCache.Key old = new CompilationCache(directory, 0, "old").key(source.duplicate(), "");
+        CompilationCache.Key rebuilt = new CompilationCache(directory, 0, "new").key(source.duplicate(), "");
+        Assertions.assertNotEquals(old, rebuilt);
+    }
+}
@@ -0,0 +1,106 @@
+package edu.kit.kastel.vads.compiler.ir.analysis;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+import java.util.function.BinaryOperator;
+import java.util.function.IntBinaryOperator;
+
+class TestValueRange {
+    private static final int SAMPLES = 200;
+
+    @Test
+    void testConstants() {
+        ValueRange seven = ValueRange.constant(7);
+        ValueRange two = ValueRange.constant(2);
+        Assertions.assertEquals(ValueRange.constant(9), seven.add(two));
+        Assertions.assertEquals(ValueRange.constant(5), seven.sub(two));
+        Assertions.assertEquals(ValueRange.constant(-3), ValueRange.constant(-7).div(two));
+        Assertions.assertEquals(ValueRange.constant(-1), ValueRange.constant(-7).mod(two));
+        Assertions.assertTrue(two.isPowerOfTwo());
+        Assertions.assertFalse(ValueRange.constant(Integer.MIN_VALUE).isPowerOfTwo());
+    }
+
+    @Test
+    void testOverflowGivesFull() {
+        ValueRange max = ValueRange.constant(Integer.MAX_VALUE);
+        Assertions.assertEquals(ValueRange.FULL.min(), max.add(ValueRange.constant(1)).min());
+        // the known bits still follow the wrapped sum
+        Assertions.assertTrue(max.add(max).contains(-2));
+        Assertions.assertFalse(max.add(max).contains(-1));
+    }
+
+    @Test
+    void testSafeDivisors() {
+        ValueRange positive = ValueRange.interval(1, 10);
+        ValueRange negative = ValueRange.interval(-10, -1);
+        Assertions.assertTrue(positive.isSafeDivisorOf(ValueRange.FULL));
+        Assertions.assertFalse(ValueRange.interval(-1, 1).isSafeDivisorOf(ValueRange.constant(1)));
+        Assertions.assertFalse(negative.isSafeDivisorOf(ValueRange.FULL));
+        Assertions.assertTrue(negative.isSafeDivisorOf(ValueRange.interval(0, 100)));
+        // the known bits rule out zero, even though the interval doesn't
+        Assertions.assertTrue(ValueRange.FULL.add(ValueRange.FULL).mul(ValueRange.constant(2))
+                .add(ValueRange.constant(1)).isSafeDivisorOf(ValueRange.constant(1)));
+    }
+
+    @Test
+    void testSoundness() {
+        Random random = new Random(23);
+        check(random, ValueRange::add, (a, b) -> a + b);
+        check(random, ValueRange::sub, (a, b) -> a - b);
+        check(random, ValueRange::mul, (a, b) -> a * b);
+        check(random, ValueRange::join, (a, b) -> random.nextBoolean() ? a : b);
+        check(random, ValueRange::div, (a, b) -> a / b);
+        check(random, ValueRange::mod, (a, b) -> a % b);
+    }
+
+    /// Checks that the results of the operation on values in random ranges are in the result range.
+    private static void check(Random random, BinaryOperator<ValueRange> operation, IntBinaryOperator semantics) {
+        for (int i = 0; i < SAMPLES; i++) {
+            ValueRange a = randomRange(random);
+            ValueRange b = randomRange(random);
+            ValueRange result = operation.apply(a, b);
+            for (int j = 0; j < SAMPLES; j++) {
+                int x = sample(random, a);
+                int y = sample(random, b);
+                if (y == 0 || (x == Integer.MIN_VALUE && y == -1)) {
+                    // traps
+                    continue;
+                }
+                int value = semantics.applyAsInt(x, y);
+                Assertions.assertTrue(result.contains(value),
+                        () -> "%d, %d from %s and %s gave %d outside of %s".formatted(x, y, a, b, value, result));
+            }
+        }
+    }
+
+    private static ValueRange randomRange(Random random) {
+        int scale = switch (random.nextInt(3)) {
+            case 0 -> 16;
+            case 1 -> 1 << 16;
+            default -> Integer.MAX_VALUE;
+        };
+        long x = random.nextLong(-(long) scale - 1, scale);
+        long y = random.nextLong(-(long) scale - 1, scale);
+        ValueRange range = ValueRange.interval(Math.min(x, y), Math.max(x, y));
+        // known low bits, as left by multiplications
+        return random.nextInt(4) == 0 ? range.mul(ValueRange.constant(4)) : range;
+    }
+
+    private static int sample(Random random, ValueRange range) {
+        int bound = random.nextBoolean() ? range.min() : range.max();
+        if (random.nextInt(8) == 0 && range.contains(bound)) {
+            return bound;
+        }
+        while (true) {
+            int value = (int) random.nextLong(range.min(), (long) range.max() + 1);
+            if (range.contains(value)) {
+                return value;
+            }
+            int fixed = value & ~range.knownZeros() | range.knownOnes();
+            if (range.contains(fixed)) {
+                return fixed;
+            }
+        }
+    }
+}
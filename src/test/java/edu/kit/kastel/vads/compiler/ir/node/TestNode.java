@@ -0,0 +1,49 @@
+package edu.kit.kastel.vads.compiler.ir.node;
+
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+class TestNode {
+
+    @Test
+    void testSuccessorsPerInput() {
+        IrGraph graph = new IrGraph("f");
+        Block block = graph.startBlock();
+        ConstIntNode one = new ConstIntNode(block, 1);
+        ConstIntNode two = new ConstIntNode(block, 2);
+        AddNode twice = new AddNode(block, one, one);
+        AddNode sum = new AddNode(block, one, two);
+        Assertions.assertEquals(List.of(twice, twice, sum), one.successors());
+        Assertions.assertEquals(1, two.successorCount());
+
+        sum.setPredecessor(BinaryOperationNode.LEFT, two);
+        Assertions.assertEquals(List.of(twice, twice), one.successors());
+        Assertions.assertEquals(List.of(sum, sum), two.successors());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> one.successor(2));
+    }
+
+    @Test
+    void testReplaceAllUses() {
+        IrGraph graph = new IrGraph("f");
+        Block block = graph.startBlock();
+        ConstIntNode one = new ConstIntNode(block, 1);
+        ConstIntNode two = new ConstIntNode(block, 2);
+        AddNode twice = new AddNode(block, one, one);
+        Phi phi = new Phi(block);
+        phi.appendOperand(one);
+        phi.appendOperand(twice);
+        List<? extends Node> operands = phi.predecessors();
+
+        one.replaceAllUsesWith(two);
+        Assertions.assertEquals(0, one.successorCount());
+        Assertions.assertEquals(3, two.successorCount());
+        Assertions.assertSame(two, twice.predecessor(BinaryOperationNode.LEFT));
+        Assertions.assertSame(two, twice.predecessor(BinaryOperationNode.RIGHT));
+        // the view reflects the change
+        Assertions.assertEquals(List.of(two, twice), operands);
+        Assertions.assertEquals(2, phi.predecessorCount());
+    }
+}
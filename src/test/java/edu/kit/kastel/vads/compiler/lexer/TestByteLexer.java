@@ -0,0 +1,91 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class TestByteLexer {
+    @Test
+    void testSameTokensAsLexer() {
+        assertSameTokens("""
+                int main() {
+                  int x = 0x1F; // comment / with slash
+                  x += 10 /* nested /* comment */ still */ - 3;\r
+                  x %= 2; x -= 1; x *= x; x /= 7;
+                  return x % 3 / 1 * 2 + -x;
+                }
+                """);
+    }
+
+    @Test
+    void testErrors() {
+        assertSameTokens("int 0x; 007 $ x");
+        assertSameTokens("a / /");
+        assertSameTokens("x /* never /* closed */ ");
+        assertSameTokens("/* / */ x /");
+        assertSameTokens("");
+    }
+
+    @Test
+    void testLongRunsAndComments() {
+        // runs of every length around the eight bytes skipped at once
+        StringBuilder input = new StringBuilder();
+        for (int length = 0; length < 20; length++) {
+            String run = "x".repeat(length);
+            input.append(" ".repeat(length)).append("a\t".repeat(length)).append('b').append('\n');
+            input.append("/* ").append(run).append(" /* ").append(run).append("*/").append(run).append("**/ c\r\n");
+            input.append("// ").append(run).append(" /* ").append(run).append('\r');
+            input.append("/*").append(run).append("\n").append(run).append("*/ d /").append(run).append('\n');
+        }
+        assertSameTokens(input.toString());
+        assertSameTokens(input + "/* unterminated " + " ".repeat(9));
+        assertSameTokens(input + "// no line break " + " ".repeat(9));
+    }
+
+    @Test
+    void testKeywordPrefixes() {
+        assertSameTokens("in int int_ alloc alloc_array alloc_arrays NULL null returns");
+    }
+
+    @Test
+    void testKeywordLookup() {
+        for (KeywordType type : KeywordType.values()) {
+            String keyword = type.keyword();
+            Assertions.assertEquals(type, KeywordType.lookup(keyword, 0, keyword.length()));
+            Assertions.assertEquals(type, KeywordType.lookup(SourceFile.of(" " + keyword).segment(), 1, keyword.length()));
+            Assertions.assertNull(KeywordType.lookup(keyword + "_", 0, keyword.length() + 1));
+            Assertions.assertNull(KeywordType.lookup("z" + keyword.substring(1), 0, keyword.length()));
+        }
+        Assertions.assertNull(KeywordType.lookup("x", 0, 1));
+    }
+
+    @Test
+    void testRejectsNonAscii() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ByteLexer.forSource(SourceFile.of("/* ä */")));
+    }
+
+    private static void assertSameTokens(String input) {
+        Lexer lexer = Lexer.forString(input);
+        List<Token> expected = new ArrayList<>();
+        for (Optional<Token> token = lexer.nextToken(); token.isPresent(); token = lexer.nextToken()) {
+            expected.add(token.get());
+        }
+        SourceFile source = SourceFile.of(input);
+        ByteLexer byteLexer = ByteLexer.forSource(source);
+        List<Token> actual = new ArrayList<>();
+        while (byteLexer.next()) {
+            actual.add(byteLexer.token());
+        }
+        Assertions.assertEquals(expected, actual);
+        // the line starts recorded while lexing must match those found by scanning a fresh copy
+        SourceFile scanned = SourceFile.of(input);
+        Assertions.assertEquals(scanned.lineIndex().lineCount(), source.lineIndex().lineCount());
+        for (int line = 0; line < scanned.lineIndex().lineCount(); line++) {
+            Assertions.assertEquals(scanned.lineIndex().lineStart(line), source.lineIndex().lineStart(line));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TestParallelLexer {
+    @Test
+    void testCommentsAcrossChunks() {
+        assertSameTokensForAllChunkSizes("""
+                int main() {
+                  int x = 1; /* starts here
+                  /* nested // not a line comment
+                  */ still in the outer comment
+                  */ x += 2; // line comment /* not a comment start
+                  return x */ 3;\r
+                }\r\n/*
+                /* never closed
+                */
+                """);
+    }
+
+    @Test
+    void testEdgeCases() {
+        assertSameTokensForAllChunkSizes("");
+        assertSameTokensForAllChunkSizes("\n\n\n");
+        assertSameTokensForAllChunkSizes("x\n/\n/ y\n/* a */ /\n");
+        assertSameTokensForAllChunkSizes("/*\n/*\n*/\n*/ 0x\n007 $");
+    }
+
+    @Test
+    void testSplitsAtLineStarts() {
+        SourceFile source = SourceFile.of("a\nb\nc\nd\n");
+        Assertions.assertEquals(4, ParallelLexer.forSource(source, 1).chunkCount());
+        Assertions.assertEquals(2, ParallelLexer.forSource(source, 4).chunkCount());
+        Assertions.assertEquals(1, ParallelLexer.forSource(source, 100).chunkCount());
+    }
+
+    /// Chunk size 1 puts every line into its own chunk, larger ones split anywhere in between.
+    private static void assertSameTokensForAllChunkSizes(String input) {
+        List<Token> expected = tokens(ByteLexer.forSource(SourceFile.of(input)));
+        for (int chunkSize = 1; chunkSize <= input.length() + 1; chunkSize++) {
+            List<Token> actual = tokens(ParallelLexer.forSource(SourceFile.of(input), chunkSize));
+            Assertions.assertEquals(expected, actual, "chunk size " + chunkSize);
+        }
+    }
+
+    private static List<Token> tokens(TokenCursor cursor) {
+        List<Token> tokens = new ArrayList<>();
+        while (cursor.next()) {
+            tokens.add(cursor.token());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,127 @@
+package edu.kit.kastel.vads.compiler.parser;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.Token;
+import edu.kit.kastel.vads.compiler.parser.ast.StatementTree;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class TestIncrementalParser {
+    private static final String INPUT = """
+            int main() {
+              int x = 0x1F; // comment
+              x += 10 /* nested /* comment */ still */ - 3;
+              int y = x * (2 + x);
+              return x % 3 + y;
+            }
+            """;
+    private static final String[] INSERTIONS = {
+            "x", " ", ";", "/*", "*/", "//", "\n", "1", "+", "=", "}", "(", "int z = 2;", "return", "main"
+    };
+
+    @Test
+    void testRandomEditsMatchFullParse() {
+        Random random = new Random(42);
+        for (int run = 0; run < 400; run++) {
+            String text = INPUT;
+            IncrementalParser parser = IncrementalParser.parse(SourceFile.of(text));
+            for (int step = 0; step < 6; step++) {
+                int offset = random.nextInt(text.length() + 1);
+                int length = random.nextInt(3) == 0 ? random.nextInt(Math.min(4, text.length() - offset) + 1) : 0;
+                String replacement = random.nextInt(4) == 0 ? "" : INSERTIONS[random.nextInt(INSERTIONS.length)];
+                text = text.substring(0, offset) + replacement + text.substring(offset + length);
+                parser = parser.edit(offset, length, replacement);
+                assertSameAsFullParse(text, parser);
+            }
+        }
+    }
+
+    @Test
+    void testTypingStatement() {
+        String statement = "  x = (y + 1) / 2;\n";
+        int offset = INPUT.indexOf("  return");
+        String text = INPUT;
+        IncrementalParser parser = IncrementalParser.parse(SourceFile.of(text));
+        for (int i = 0; i < statement.length(); i++) {
+            String typed = statement.substring(i, i + 1);
+            text = text.substring(0, offset + i) + typed + text.substring(offset + i);
+            parser = parser.edit(offset + i, 0, typed);
+            assertSameAsFullParse(text, parser);
+        }
+    }
+
+    @Test
+    void testCommentingOut() {
+        IncrementalParser parser = IncrementalParser.parse(SourceFile.of(INPUT));
+        int open = INPUT.indexOf("  int y");
+        String text = INPUT.substring(0, open) + "/*" + INPUT.substring(open);
+        parser = parser.edit(open, 0, "/*");
+        assertSameAsFullParse(text, parser);
+        int close = text.indexOf("  return");
+        text = text.substring(0, close) + "*/" + text.substring(close);
+        parser = parser.edit(close, 0, "*/");
+        assertSameAsFullParse(text, parser);
+        Assertions.assertEquals(3, parser.program().topLevelTrees().getFirst().body().statements().size());
+    }
+
+    @Test
+    void testStatementsBeforeEditAreReused() {
+        IncrementalParser parser = IncrementalParser.parse(SourceFile.of(INPUT));
+        List<StatementTree> before = parser.program().topLevelTrees().getFirst().body().statements();
+        int offset = INPUT.indexOf("x % 3");
+        IncrementalParser edited = parser.edit(offset, 0, "1 + ");
+        List<StatementTree> after = edited.program().topLevelTrees().getFirst().body().statements();
+        for (int i = 0; i < before.size() - 1; i++) {
+            Assertions.assertSame(before.get(i), after.get(i));
+        }
+        Assertions.assertNotSame(before.getLast(), after.getLast());
+    }
+
+    @Test
+    void testEditBeforeDeepExpression() {
+        String text = "int main() { int x = 0; return " + "-".repeat(100_000) + "1; }";
+        IncrementalParser parser = IncrementalParser.parse(SourceFile.of(text));
+        // the deep return statement is moved to the edited source
+        IncrementalParser edited = parser.edit(text.indexOf('0'), 1, "5");
+        Assertions.assertEquals(2, edited.program().topLevelTrees().getFirst().body().statements().size());
+        edited = edited.edit(text.indexOf('0'), 1, "15");
+        Assertions.assertEquals(2, edited.program().topLevelTrees().getFirst().body().statements().size());
+    }
+
+    private static void assertSameAsFullParse(String text, IncrementalParser parser) {
+        TokenSource tokens = new TokenSource(ByteLexer.forSource(SourceFile.of(text)));
+        Assertions.assertEquals(unpack(tokens), unpack(parser.tokens()), text);
+        String expected;
+        try {
+            expected = describe(new Parser(tokens).parseProgram());
+        } catch (ParseException e) {
+            expected = e.getMessage();
+        }
+        String actual;
+        try {
+            actual = describe(parser.program());
+        } catch (ParseException e) {
+            actual = e.getMessage();
+        }
+        Assertions.assertEquals(expected, actual, text);
+    }
+
+    /// The trees with their spans as lines and columns, but without the ids of names, as those
+    /// depend on the order identifiers were seen in.
+    private static String describe(Object tree) {
+        return tree.toString().replaceAll("id=\\d+, ", "");
+    }
+
+    private static List<Token> unpack(TokenSource tokens) {
+        List<Token> result = new ArrayList<>();
+        for (int i = 0; i < tokens.tokenCount(); i++) {
+            result.add(tokens.token(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package edu.kit.kastel.vads.compiler.parser;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.parser.ast.FlatTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TreeKind;
+
+import org.junit.jupiter.api.*;
+
+class TestParser {
+    private static final int DEPTH = 100_000;
+
+    @Test
+    void testPrecedenceAndAssociativity() {
+        Assertions.assertEquals("((a) - (b)) - ((c) * (-(d)))", printReturned("a - b - c * -d"));
+        Assertions.assertEquals("((a) % (b)) / (c)", printReturned("a % b / c"));
+        Assertions.assertEquals("-((a) + ((b) * (c)))", printReturned("-(a + (b * c))"));
+        Assertions.assertEquals("((-(a)) * (b)) + (-(-(c)))", printReturned("(-a * b) + - -c"));
+        Assertions.assertEquals("a", printReturned("((((a))))"));
+    }
+
+    @Test
+    void testErrors() {
+        assertError("invalid factor", "a + ");
+        assertError("invalid factor", "(a + b) * ()");
+        assertError("expected separator ')'", "((a + b)");
+        assertError("expected separator ';'", "(a + b))");
+        assertError("expected separator ';'", "a b");
+    }
+
+    @Test
+    void testDeeplyNestedParentheses() {
+        FlatTree tree = parse("int main() { return " + "(".repeat(DEPTH) + "1 + 2" + ")".repeat(DEPTH) + "; }");
+        int ret = tree.child(tree.child(tree.child(tree.root(), 0), 2), 0);
+        Assertions.assertEquals(TreeKind.BINARY_OPERATION, tree.kind(tree.firstChild(ret)));
+    }
+
+    @Test
+    void testDeeplyNestedNegations() {
+        String text = "int main() { (" + "(".repeat(DEPTH) + "x" + ")".repeat(DEPTH) + ") = "
+                + "-(".repeat(DEPTH) + "x" + ")".repeat(DEPTH) + " - " + "- ".repeat(DEPTH) + "1; }";
+        FlatTree tree = parse(text);
+        int assignment = tree.child(tree.child(tree.child(tree.root(), 0), 2), 0);
+        int expression = tree.child(assignment, 2);
+        Assertions.assertEquals(TreeKind.BINARY_OPERATION, tree.kind(expression));
+        int negations = 0;
+        for (int node = tree.child(expression, 0); tree.kind(node) == TreeKind.NEGATE; node = tree.firstChild(node)) {
+            negations++;
+        }
+        Assertions.assertEquals(DEPTH, negations);
+        // spans start at the outermost minus
+        Assertions.assertEquals(text.indexOf("-("), Span.startOffset(tree.offsets(tree.child(expression, 0))));
+    }
+
+    private static String printReturned(String expression) {
+        FlatTree tree = parse("int main() { return " + expression + "; }");
+        int ret = tree.child(tree.child(tree.child(tree.root(), 0), 2), 0);
+        return Printer.print(tree.toTree(tree.firstChild(ret)));
+    }
+
+    private static void assertError(String expected, String expression) {
+        ParseException e = Assertions.assertThrows(ParseException.class,
+                () -> parse("int main() { return " + expression + "; }"));
+        Assertions.assertTrue(e.getMessage().startsWith(expected), e.getMessage());
+    }
+
+    private static FlatTree parse(String text) {
+        return new Parser(new TokenSource(ByteLexer.forSource(SourceFile.of(text)))).parse();
+    }
+}
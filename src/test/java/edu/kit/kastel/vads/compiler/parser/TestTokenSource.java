@@ -0,0 +1,80 @@
+package edu.kit.kastel.vads.compiler.parser;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.Token;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class TestTokenSource {
+    private static final String INPUT = """
+            int main() {
+              int x = 0x1F; // comment
+              x += 10 /* nested /* comment */ still */ - 3;\r
+              return x % 3 $ 007;
+            }
+            /* unterminated""";
+
+    @Test
+    void testPackedTokensMatchLexer() {
+        List<Token> expected = new ArrayList<>();
+        Lexer lexer = Lexer.forString(INPUT);
+        for (Optional<Token> token = lexer.nextToken(); token.isPresent(); token = lexer.nextToken()) {
+            expected.add(token.get());
+        }
+        Assertions.assertEquals(expected, unpack(new TokenSource(Lexer.forString(INPUT))));
+        Assertions.assertEquals(expected, unpack(new TokenSource(ByteLexer.forSource(SourceFile.of(INPUT)))));
+        Assertions.assertEquals(expected, unpack(TokenSource.streaming(Lexer.forString(INPUT))));
+        Assertions.assertEquals(expected, unpack(TokenSource.streaming(ByteLexer.forSource(SourceFile.of(INPUT)))));
+    }
+
+    @Test
+    void testStreamingOnlyKeepsWindow() {
+        TokenSource tokens = TokenSource.streaming(ByteLexer.forSource(SourceFile.of("x ".repeat(100))));
+        int first = tokens.consume();
+        Assertions.assertEquals("[0:0|0:1]", tokens.span(first).toString());
+        for (int i = 1; i < TokenSource.WINDOW; i++) {
+            tokens.consume();
+        }
+        // the window is full, but the first token wasn't replaced yet
+        Assertions.assertEquals("[0:0|0:1]", tokens.span(first).toString());
+        tokens.consume();
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tokens.span(first));
+        Assertions.assertEquals(TokenSource.WINDOW + 1, tokens.tokenCount());
+    }
+
+    @Test
+    void testMeasureLexing() {
+        TokenSource tokens = TokenSource.streaming(ByteLexer.forSource(SourceFile.of(INPUT)));
+        tokens.consume();
+        // nothing is measured before asking for it
+        Assertions.assertEquals(0, tokens.lexingNanos());
+        tokens.measureLexing();
+        while (tokens.hasMore()) {
+            tokens.consume();
+        }
+        Assertions.assertTrue(tokens.lexingNanos() > 0);
+    }
+
+    @Test
+    void testNonAsciiPositions() {
+        TokenSource tokens = new TokenSource(Lexer.forString("/* ä */ int\nx"));
+        Assertions.assertEquals("[0:8|0:11]", tokens.span(tokens.consume()).toString());
+        Assertions.assertEquals("[1:0|1:1]", tokens.span(tokens.consume()).toString());
+    }
+
+    private static List<Token> unpack(TokenSource tokenSource) {
+        List<Token> tokens = new ArrayList<>();
+        while (tokenSource.hasMore()) {
+            Token token = tokenSource.peek();
+            Assertions.assertEquals(token.span(), tokenSource.span(tokenSource.consume()));
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
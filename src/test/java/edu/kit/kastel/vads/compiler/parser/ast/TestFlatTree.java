@@ -0,0 +1,84 @@
+package edu.kit.kastel.vads.compiler.parser.ast;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TestFlatTree {
+    private static final String INPUT = """
+            int main() {
+              int x = 0x1F;
+              int y;
+              (y) -= -x * (2 + x);
+              return x % 3 + y;
+            }
+            """;
+
+    @Test
+    void testNodesAreInPostorder() {
+        FlatTree tree = parse(INPUT);
+        Assertions.assertEquals(TreeKind.PROGRAM, tree.kind(tree.root()));
+        Assertions.assertEquals(0, tree.subtreeStart(tree.root()));
+        for (int node = 0; node < tree.size(); node++) {
+            int start = tree.subtreeStart(node);
+            int next = start;
+            for (int child : tree.children(node)) {
+                // the subtrees of the children follow each other, and the node follows the last of them
+                Assertions.assertEquals(next, tree.subtreeStart(child));
+                next = child + 1;
+            }
+            Assertions.assertEquals(next, node);
+        }
+    }
+
+    @Test
+    void testKindsAndData() {
+        FlatTree tree = parse(INPUT);
+        List<TreeKind> kinds = new ArrayList<>();
+        for (int node = 0; node < tree.size(); node++) {
+            kinds.add(tree.kind(node));
+        }
+        Assertions.assertEquals(List.of(
+                TreeKind.TYPE, TreeKind.NAME,
+                TreeKind.TYPE, TreeKind.NAME, TreeKind.LITERAL, TreeKind.DECLARATION,
+                TreeKind.TYPE, TreeKind.NAME, TreeKind.DECLARATION,
+                TreeKind.NAME, TreeKind.LVALUE_IDENT, TreeKind.OPERATOR,
+                TreeKind.NAME, TreeKind.IDENT_EXPRESSION, TreeKind.NEGATE,
+                TreeKind.LITERAL, TreeKind.NAME, TreeKind.IDENT_EXPRESSION, TreeKind.BINARY_OPERATION,
+                TreeKind.BINARY_OPERATION, TreeKind.ASSIGNMENT,
+                TreeKind.NAME, TreeKind.IDENT_EXPRESSION, TreeKind.LITERAL, TreeKind.BINARY_OPERATION,
+                TreeKind.NAME, TreeKind.IDENT_EXPRESSION, TreeKind.BINARY_OPERATION, TreeKind.RETURN,
+                TreeKind.BLOCK, TreeKind.FUNCTION, TreeKind.PROGRAM), kinds);
+        Assertions.assertEquals("main", tree.name(1).asString());
+        Assertions.assertEquals(31, tree.parseLiteral(4).orElseThrow());
+        Assertions.assertEquals("0x1F", tree.text(4));
+        Assertions.assertEquals(tree.name(3), tree.name(12));
+        Assertions.assertEquals("2 + x", tree.text(18));
+        Assertions.assertEquals("-=", tree.text(11));
+    }
+
+    @Test
+    void testTreesHaveSameSpans() {
+        FlatTree tree = parse(INPUT);
+        for (int node = 0; node < tree.size(); node++) {
+            if (tree.kind(node) != TreeKind.OPERATOR) {
+                Assertions.assertEquals(tree.span(node), tree.toTree(node).span(), tree.kind(node).toString());
+            }
+        }
+        AssignmentTree assignment = (AssignmentTree) tree.toTree(20);
+        Assertions.assertEquals("[3:3|3:4]", assignment.lValue().span().toString());
+        Assertions.assertEquals("[3:6|3:8]", assignment.operator().span().toString());
+        ReturnTree ret = (ReturnTree) tree.toTree(28);
+        Assertions.assertEquals("[4:2|4:8]", ret.returnPos().toString());
+    }
+
+    private static FlatTree parse(String input) {
+        return new Parser(new TokenSource(ByteLexer.forSource(SourceFile.of(input)))).parse();
+    }
+}
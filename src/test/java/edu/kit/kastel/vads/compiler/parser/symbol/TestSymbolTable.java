@@ -0,0 +1,31 @@
+package edu.kit.kastel.vads.compiler.parser.symbol;
+
+import edu.kit.kastel.vads.compiler.lexer.KeywordType;
+
+import org.junit.jupiter.api.*;
+
+class TestSymbolTable {
+    @Test
+    void testInterning() {
+        SymbolTable symbols = new SymbolTable();
+        Name x = symbols.intern("int x = x1 + x;", 4, 1);
+        Assertions.assertSame(x, symbols.intern("x"));
+        Assertions.assertNotEquals(x, symbols.intern("x1"));
+        Assertions.assertEquals("x", x.asString());
+        Assertions.assertEquals(KeywordType.values().length, x.id());
+        Assertions.assertEquals(KeywordType.INT.ordinal(), symbols.intern("int").id());
+    }
+
+    @Test
+    void testIdsStayDenseWhenGrowing() {
+        SymbolTable symbols = new SymbolTable();
+        int first = symbols.size();
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(first + i, symbols.intern("x" + i).id());
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(first + i, symbols.intern("x" + i).id());
+        }
+        Assertions.assertEquals(first + 1000, symbols.size());
+    }
+}
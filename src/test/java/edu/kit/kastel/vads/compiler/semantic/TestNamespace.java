@@ -0,0 +1,47 @@
+package edu.kit.kastel.vads.compiler.semantic;
+
+import edu.kit.kastel.vads.compiler.parser.symbol.Name;
+import edu.kit.kastel.vads.compiler.parser.symbol.SymbolTable;
+
+import org.junit.jupiter.api.*;
+
+class TestNamespace {
+
+    @Test
+    void testScopes() {
+        SymbolTable symbols = new SymbolTable();
+        Name x = symbols.intern("x");
+        Name y = symbols.intern("y");
+        Namespace<String> namespace = new Namespace<>();
+        namespace.put(x, "outer");
+        namespace.enterScope();
+        namespace.put(x, "inner");
+        namespace.put(y, "inner");
+        namespace.enterScope();
+        namespace.put(x, "innermost");
+        Assertions.assertEquals("innermost", namespace.get(x));
+        namespace.exitScope();
+        Assertions.assertEquals("inner", namespace.get(x));
+        namespace.exitScope();
+        Assertions.assertEquals("outer", namespace.get(x));
+        Assertions.assertNull(namespace.get(y));
+        Assertions.assertThrows(IllegalStateException.class, namespace::exitScope);
+    }
+
+    @Test
+    void testByteScopes() {
+        ByteNamespace namespace = new ByteNamespace();
+        // far beyond the initial capacity
+        int id = 1_000;
+        Assertions.assertEquals(ByteNamespace.ABSENT, namespace.get(id));
+        namespace.put(id, (byte) 1);
+        namespace.enterScope();
+        namespace.put(id, (byte) 2);
+        namespace.put(id, (byte) 3);
+        namespace.put(id + 1, (byte) 4);
+        Assertions.assertEquals(3, namespace.get(id));
+        namespace.exitScope();
+        Assertions.assertEquals(1, namespace.get(id));
+        Assertions.assertEquals(ByteNamespace.ABSENT, namespace.get(id + 1));
+    }
+}
@@ -0,0 +1,42 @@
+package edu.kit.kastel.vads.compiler.semantic;
+
+import edu.kit.kastel.vads.compiler.SourceFile;
+import edu.kit.kastel.vads.compiler.lexer.ByteLexer;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+
+import org.junit.jupiter.api.*;
+
+class TestSemanticAnalysis {
+
+    @Test
+    void testValidProgram() {
+        Assertions.assertDoesNotThrow(() -> analyze("int main() { int x = 1; x += 2147483648; return x; }"));
+    }
+
+    @Test
+    void testErrorOfEarlierAnalysisWins() {
+        // the variable status analysis finds its error first, but the literal range analysis runs before it
+        assertError("invalid integer literal 2147483649",
+                "int main() { y = 1; int x = 2147483649; return x; }");
+        // the function doesn't return either, which the return analysis after it would report
+        assertError("identifier=x], span=[0:28|0:29]] must be initialized before use",
+                "int main() { int x; int y = x; }");
+    }
+
+    @Test
+    void testFirstErrorOfAnAnalysisWins() {
+        assertError("identifier=y], span=[0:13|0:14]] must be declared before assignment",
+                "int main() { y = 1; int x; z = x; return x; }");
+    }
+
+    /// Checks the end of the error message, names are printed as trees with their id and span.
+    private static void assertError(String expected, String text) {
+        SemanticException e = Assertions.assertThrows(SemanticException.class, () -> analyze(text));
+        Assertions.assertTrue(e.getMessage().endsWith(expected), e.getMessage());
+    }
+
+    private static void analyze(String text) {
+        new SemanticAnalysis(new Parser(new TokenSource(ByteLexer.forSource(SourceFile.of(text)))).parse()).analyze();
+    }
+}
@@ -0,0 +1,70 @@
+package edu.kit.kastel.vads.compiler.server;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+class TestCompileServer {
+
+    @Test
+    void testDiagnosticsAndExitCode() throws Exception {
+        withServer((socket, directory) -> {
+            Path input = Files.writeString(directory.resolve("undeclared.l1"), "int main() { return x; }");
+            ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+            int exitCode = CompileClient.compile(socket, input, directory.resolve("undeclared"),
+                    new PrintStream(diagnostics, true, StandardCharsets.UTF_8));
+            Assertions.assertEquals(7, exitCode);
+            Assertions.assertFalse(diagnostics.toString(StandardCharsets.UTF_8).isBlank());
+        });
+    }
+
+    @Test
+    void testErrorIsReported() throws Exception {
+        withServer((socket, directory) -> {
+            // a missing input fails the compilation
+            Path input = directory.resolve("missing.l1");
+            ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+            int exitCode = CompileClient.compile(socket, input, directory.resolve("missing"),
+                    new PrintStream(diagnostics, true, StandardCharsets.UTF_8));
+            Assertions.assertEquals(1, exitCode);
+            Assertions.assertTrue(diagnostics.toString(StandardCharsets.UTF_8).contains("NoSuchFileException"));
+
+            // the server is still up
+            Path valid = Files.writeString(directory.resolve("undeclared.l1"), "int main() { return x; }");
+            Assertions.assertEquals(7, CompileClient.compile(socket, valid, directory.resolve("undeclared"),
+                    new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8)));
+        });
+    }
+
+    private interface ServerTest {
+        void run(Path socket, Path directory) throws Exception;
+    }
+
+    private static void withServer(ServerTest test) throws Exception {
+        Path directory = Files.createTempDirectory("server-test");
+        Path socket = directory.resolve("compiler.sock");
+        try (CompileServer server = CompileServer.bind(socket)) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            test.run(socket, directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}